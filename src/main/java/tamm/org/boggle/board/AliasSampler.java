@@ -0,0 +1,97 @@
+package tamm.org.boggle.board;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples indices from a fixed discrete distribution in constant time, using
+ * Vose's alias method. Each index <tt>i</tt> is drawn with probability
+ * <tt>weights[i] / sum(weights)</tt>.
+ * <p>
+ * A sampler is immutable; the random number generator is passed in, so one
+ * sampler can be shared by any number of threads.
+ *
+ * @author Urmas
+ *
+ */
+public final class AliasSampler {
+
+	/** Per column: the probability of keeping the column's own index **/
+	private final double[] probability;
+
+	/** Per column: the index to return instead **/
+	private final int[] alias;
+
+	/**
+	 * Constructor
+	 * @param weights - non-negative weights, at least one of them positive
+	 */
+	public AliasSampler(double[] weights) {
+		int n = weights.length;
+		double total = 0;
+
+		for (double w : weights) {
+			if (w < 0)
+				throw new IllegalArgumentException("Weights must not be negative!");
+			total += w;
+		}
+		if (n == 0 || total <= 0)
+			throw new IllegalArgumentException("At least one weight must be positive!");
+
+		probability = new double[n];
+		alias = new int[n];
+
+		// Scale the weights so they average 1, then pair each column below 1
+		// with a column above 1 that tops it up.
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / total;
+			if (scaled[i] < 1)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+
+			probability[less] = scaled[less];
+			alias[less] = more;
+
+			scaled[more] = scaled[more] + scaled[less] - 1;
+			if (scaled[more] < 1)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+
+		// Whatever is left is 1 up to rounding errors.
+		while (largeCount > 0)
+			probability[large[--largeCount]] = 1;
+		while (smallCount > 0)
+			probability[small[--smallCount]] = 1;
+	}
+
+	/**
+	 * Draws an index
+	 * @param random - the source of randomness
+	 * @return int index between 0 and the number of weights
+	 */
+	public int sample(SplittableRandom random) {
+		int column = random.nextInt(probability.length);
+		return random.nextDouble() < probability[column] ? column : alias[column];
+	}
+
+	/**
+	 * Returns the number of indices this sampler draws from
+	 * @return int
+	 */
+	public int size() {
+		return probability.length;
+	}
+}
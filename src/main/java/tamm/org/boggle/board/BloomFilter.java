@@ -0,0 +1,174 @@
+package tamm.org.boggle.board;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A Bloom filter of words, i.e. a compact set that answers whether it
+ * <em>might</em> contain a word. A word that was added is always found; a word
+ * that wasn't is found with a small false positive rate. The server builds one
+ * of all words on a board, so a client can reject non-words without asking.
+ * <p>
+ * A word is hashed once to 64 bits, with FNV-1a over its lower case UTF-8
+ * bytes followed by a finalizing mix; the low and high 32 bits are
+ * <tt>h1</tt> and <tt>h2</tt>, and the <tt>i</tt>th of the filter's hash
+ * functions sets bit <tt>(h1 + i * h2) mod bitCount</tt> (as unsigned 32-bit
+ * arithmetic), bit <tt>b</tt> being bit <tt>b % 8</tt> of byte <tt>b / 8</tt>
+ * of {@link #toByteArray}. That's all a client in another language needs to
+ * use the filter.
+ * <p>
+ * A filter is immutable once built, so it can be shared by any number of
+ * threads.
+ *
+ * @author Urmas
+ *
+ */
+public final class BloomFilter implements Serializable {
+
+	private static final long serialVersionUID = -3326590313815926158L;
+
+	/** The false positive rate filters are built for by default **/
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	/** No filter is smaller than this, in bits **/
+	private static final int MIN_BITS = 64;
+
+	/** The most hash functions a filter uses **/
+	private static final int MAX_HASHES = 16;
+
+	private final byte[] bits;
+	private final int bitCount;
+	private final int hashCount;
+
+	/**
+	 * Constructor
+	 * @param bits - the filter's bits, as returned by {@link #toByteArray}
+	 * @param bitCount - the number of bits used, at most 8 per byte
+	 * @param hashCount - the number of hash functions
+	 */
+	public BloomFilter(byte[] bits, int bitCount, int hashCount) {
+		if (bitCount < 1 || bitCount > bits.length * 8)
+			throw new IllegalArgumentException("Bad bit count " + bitCount);
+		if (hashCount < 1 || hashCount > MAX_HASHES)
+			throw new IllegalArgumentException("Bad hash count " + hashCount);
+
+		this.bits = bits.clone();
+		this.bitCount = bitCount;
+		this.hashCount = hashCount;
+	}
+
+	/**
+	 * Builds a filter of the words that has the given false positive rate. Its
+	 * size grows with the number of words: about ten bits a word for a rate of
+	 * 1%.
+	 * @param words - the words, in any case
+	 * @param falsePositiveRate - between 0 and 1
+	 * @return BloomFilter
+	 */
+	public static BloomFilter of(Collection<String> words, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+			throw new IllegalArgumentException("Bad false positive rate " + falsePositiveRate);
+
+		int n = Math.max(1, words.size());
+		double ln2 = Math.log(2);
+		int bitCount = (int) Math.max(MIN_BITS, Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2)));
+		bitCount = (bitCount + 7) & ~7;
+		int hashCount = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) bitCount / n * ln2)));
+
+		byte[] bits = new byte[bitCount / 8];
+		for (String word : words) {
+			long hash = hash(word);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < hashCount; i++) {
+				int bit = index(h1 + i * h2, bitCount);
+				bits[bit >>> 3] |= 1 << (bit & 7);
+			}
+		}
+
+		return new BloomFilter(bits, bitCount, hashCount);
+	}
+
+	/**
+	 * Builds a filter of the words with the
+	 * {@link #DEFAULT_FALSE_POSITIVE_RATE}
+	 * @param words - the words, in any case
+	 * @return BloomFilter
+	 */
+	public static BloomFilter of(Collection<String> words) {
+		return of(words, DEFAULT_FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * Returns false if the word is certainly not in the filter, and true if it
+	 * might be
+	 * @param word - the word, in any case
+	 * @return boolean
+	 */
+	public boolean mightContain(String word) {
+		long hash = hash(word);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+
+		for (int i = 0; i < hashCount; i++) {
+			int bit = index(h1 + i * h2, bitCount);
+			if ((bits[bit >>> 3] & (1 << (bit & 7))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getBitCount() {
+		return bitCount;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * Returns the filter's bits
+	 * @return a copy of the bits
+	 */
+	public byte[] toByteArray() {
+		return bits.clone();
+	}
+
+	/** The unsigned value of the hash, modulo the bit count **/
+	private static int index(int hash, int bitCount) {
+		return (int) ((hash & 0xFFFFFFFFL) % bitCount);
+	}
+
+	private static long hash(String word) {
+		byte[] bytes = word.toLowerCase().getBytes(StandardCharsets.UTF_8);
+
+		long h = 0xcbf29ce484222325L;
+		for (byte b : bytes) {
+			h ^= b & 0xFF;
+			h *= 0x100000001b3L;
+		}
+
+		// FNV alone spreads short words poorly over the high bits
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof BloomFilter))
+			return false;
+
+		BloomFilter other = (BloomFilter) o;
+		return bitCount == other.bitCount && hashCount == other.hashCount && Arrays.equals(bits, other.bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(bits) * 31 + hashCount;
+	}
+}
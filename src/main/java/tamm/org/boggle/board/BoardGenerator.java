@@ -0,0 +1,119 @@
+package tamm.org.boggle.board;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class generates Boggle boards from a seed, so the same seed always
+ * gives the same board. It models a set of Boggle dice: when the board has as
+ * many cells as there are dice, the dice are shuffled onto the board and each
+ * is rolled. For any other size, each cell gets a letter drawn from the
+ * letter frequencies of all faces of all dice, using an {@link AliasSampler}.
+ * <p>
+ * Boards are written as letter codes (see {@link BoggleBoard#getCode}) into a
+ * byte buffer, which can hold many boards at once. Generators are immutable
+ * and can be shared by any number of threads.
+ *
+ * @author Urmas
+ *
+ */
+public final class BoardGenerator {
+
+	/**
+	 * The version of the generation algorithm. It changes whenever the same
+	 * seed would give a different board, so a board can only be rebuilt from
+	 * its seed by a generator of the same version.
+	 */
+	public static final int VERSION = 1;
+
+	/** The 16 dice of the classic English Boggle set; "Q" stands for "Qu" **/
+	public static final String[] CLASSIC_DICE = { "AAEEGN", "ABBJOO", "ACHOPS", "AFFKPS",
+			"AOOTTW", "CIMOTU", "DEILRX", "DELRVY", "DISTTY", "EEGHNW", "EEINSU", "EHRTVW",
+			"EIOSST", "ELRTTY", "HIMNUQ", "HLNNRZ" };
+
+	/** The generator for the classic dice, used for randomly created boards **/
+	public static final BoardGenerator CLASSIC = new BoardGenerator(CLASSIC_DICE);
+
+	/** Per die: the letter code of each face **/
+	private final byte[][] dice;
+
+	/** Draws letter codes by their frequency over all faces **/
+	private final AliasSampler letters;
+
+	/**
+	 * Constructor
+	 * @param dice - one string per die, with one letter A-Z per face
+	 */
+	public BoardGenerator(String[] dice) {
+		this.dice = new byte[dice.length][];
+		double[] weights = new double[Lexicon.ALPHABET_SIZE];
+
+		for (int d = 0; d < dice.length; d++) {
+			this.dice[d] = new byte[dice[d].length()];
+
+			for (int f = 0; f < dice[d].length(); f++) {
+				int code = Lexicon.letterCode(dice[d].charAt(f));
+				if (code == Lexicon.NONE)
+					throw new IllegalArgumentException("Not a letter: " + dice[d].charAt(f));
+
+				this.dice[d][f] = (byte) code;
+				weights[code]++;
+			}
+		}
+
+		letters = new AliasSampler(weights);
+	}
+
+	/**
+	 * Writes the board for the given seed into the buffer
+	 * @param size - the number of rows (and columns) of the board
+	 * @param seed - the seed
+	 * @param buffer - receives size*size letter codes
+	 * @param offset - where in the buffer to start writing
+	 */
+	public void fill(int size, long seed, byte[] buffer, int offset) {
+		fill(size, seed, buffer, offset, dice.length == size * size ? new int[dice.length] : null);
+	}
+
+	/**
+	 * Writes one board per seed into the buffer, one after the other, so board
+	 * <tt>i</tt> starts at <tt>i * size * size</tt>
+	 * @param size - the number of rows (and columns) of each board
+	 * @param seeds - the seeds of the boards
+	 * @param buffer - receives seeds.length * size*size letter codes
+	 */
+	public void fillBatch(int size, long[] seeds, byte[] buffer) {
+		int cells = size * size;
+		int[] order = dice.length == cells ? new int[dice.length] : null;
+
+		for (int i = 0; i < seeds.length; i++) {
+			fill(size, seeds[i], buffer, i * cells, order);
+		}
+	}
+
+	private void fill(int size, long seed, byte[] buffer, int offset, int[] order) {
+		SplittableRandom random = new SplittableRandom(seed);
+		int cells = size * size;
+
+		if (order == null) {
+			for (int i = 0; i < cells; i++) {
+				buffer[offset + i] = (byte) letters.sample(random);
+			}
+			return;
+		}
+
+		// Shuffle the dice onto the cells, then roll each one.
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		for (int i = order.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		for (int i = 0; i < cells; i++) {
+			byte[] die = dice[order[i]];
+			buffer[offset + i] = die[random.nextInt(die.length)];
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package tamm.org.boggle.board;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class describes which cells of a size*size Boggle board are adjacent,
+ * i.e. touch horizontally, vertically or diagonally. Cells are numbered in
+ * row-major order, so cell <tt>(x, y)</tt> has index <tt>x * size + y</tt>.
+ * <p>
+ * The adjacency lists are stored in compressed sparse row form: the
+ * neighbors of cell <tt>c</tt> are
+ * <tt>neighbor(offset(c))</tt> up to, but not including,
+ * <tt>neighbor(offset(c + 1))</tt>. A topology only depends on the board size,
+ * so a single immutable instance is shared by all boards of that size.
+ *
+ * @author Urmas
+ *
+ */
+public final class BoardTopology {
+
+	/** Topologies per board size **/
+	private static final Map<Integer, BoardTopology> TOPOLOGIES = new ConcurrentHashMap<Integer, BoardTopology>();
+
+	private final int size;
+
+	/** Per cell: index of the cell's first neighbor in {@link #neighbors} **/
+	private final int[] offsets;
+
+	/** Neighbor cell indices, grouped by cell **/
+	private final int[] neighbors;
+
+	private BoardTopology(int size) {
+		this.size = size;
+
+		int cells = size * size;
+		offsets = new int[cells + 1];
+		int[] buffer = new int[cells * 8];
+		int n = 0;
+
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				offsets[x * size + y] = n;
+
+				for (int dx = -1; dx <= 1; dx++) {
+					for (int dy = -1; dy <= 1; dy++) {
+						int nx = x + dx;
+						int ny = y + dy;
+						if ((dx != 0 || dy != 0) && nx >= 0 && ny >= 0 && nx < size && ny < size) {
+							buffer[n++] = nx * size + ny;
+						}
+					}
+				}
+			}
+		}
+
+		offsets[cells] = n;
+		neighbors = Arrays.copyOf(buffer, n);
+	}
+
+	/**
+	 * Returns the shared topology for boards of the given size
+	 * @param size - the number of rows (and columns) of the board
+	 * @return BoardTopology
+	 */
+	public static BoardTopology forSize(int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("Board size must be positive!");
+
+		BoardTopology topology = TOPOLOGIES.get(size);
+
+		if (topology == null) {
+			topology = new BoardTopology(size);
+			BoardTopology existing = TOPOLOGIES.putIfAbsent(size, topology);
+			if (existing != null) {
+				topology = existing;
+			}
+		}
+
+		return topology;
+	}
+
+	/**
+	 * Getter for the board size
+	 * @return int size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of cells on the board
+	 * @return int
+	 */
+	public int cellCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the index of the first neighbor of the given cell; the neighbors
+	 * of cell <tt>c</tt> run up to <tt>offset(c + 1)</tt>
+	 * @param cell - the cell index
+	 * @return int
+	 */
+	public int offset(int cell) {
+		return offsets[cell];
+	}
+
+	/**
+	 * Returns the neighbor cell stored at the given index
+	 * @param index - an index between two offsets
+	 * @return int cell index
+	 */
+	public int neighbor(int index) {
+		return neighbors[index];
+	}
+
+	/**
+	 * Returns true if the two cells touch horizontally, vertically or
+	 * diagonally
+	 * @param a - the first cell index
+	 * @param b - the second cell index
+	 * @return boolean
+	 */
+	public boolean isAdjacent(int a, int b) {
+		int dx = a / size - b / size;
+		int dy = a % size - b % size;
+		return a != b && dx >= -1 && dx <= 1 && dy >= -1 && dy <= 1;
+	}
+}
@@ -3,23 +3,43 @@ package tamm.org.boggle.board;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * A square Boggle board. The cells are stored as one byte per cell in
+ * row-major order, holding the letter code of the cell: the index of its
+ * value in the {@link #getLetters() letters} list, which is also the
+ * {@link Lexicon} letter code of its first character. Which cells are adjacent
+ * is described by the {@link BoardTopology} shared by all boards of the same
+ * size.
+ * <p>
+ * Random boards are generated by the {@link BoardGenerator} from a seed,
+ * which is kept with the board so the board can be reproduced.
+ */
 public class BoggleBoard implements Serializable{
-	
+
 	/**
 	 * Serializable id
 	 */
-	private static final long serialVersionUID = 1016130578633869867L;
+	private static final long serialVersionUID = -3391284906574409238L;
 	public static final int DEFAULT_SIZE = 4;
 	private static final List<String> letters = new ArrayList<String>(Arrays.asList("A",
 			"B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N",
 			"O", "P", "Qu", "R", "S", "T", "U", "V", "W", "X", "Y", "Z"));
-	
+
 	private final int size;
-	private String[][] fieldValues;
-	
+	private final byte[] cells;
+
+	/**
+	 * The seed the board was generated from, and the version of the
+	 * {@link BoardGenerator} that generated it; the version is 0 for boards
+	 * that were not generated from a seed.
+	 */
+	private final long seed;
+	private final int generatorVersion;
+
 	/**
 	 * The default constructor that uses the defaultSize value
 	 */
@@ -27,43 +47,93 @@ public class BoggleBoard implements Serializable{
 	{
 		this(DEFAULT_SIZE);
 	}
-	
+
 	/**
 	 * Constructor that takes a value and creates a value*value size board
+	 * from a random seed
 	 * @param s
 	 */
 	public BoggleBoard(int s)
+	{
+		this(s, ThreadLocalRandom.current().nextLong());
+	}
+
+	/**
+	 * Constructor that creates a s*s size board from the given seed. The same
+	 * size and seed always give the same board, as long as the
+	 * {@link BoardGenerator#VERSION} stays the same.
+	 * @param s - the size of the board
+	 * @param seed - the seed
+	 */
+	public BoggleBoard(int s, long seed)
 	{
 		size = s;
-		fieldValues = new String[size][size];
-		generateBoard();
+		cells = new byte[size * size];
+		this.seed = seed;
+		generatorVersion = BoardGenerator.VERSION;
+		BoardGenerator.CLASSIC.fill(size, seed, cells, 0);
 	}
-	
+
 	/**
-	 * Populates the board with values
+	 * Constructor that creates a board with the given cell values, e.g. to
+	 * replay a known board
+	 * @param values - a square array of values from the letters list
 	 */
-	private void generateBoard()
+	public BoggleBoard(String[][] values)
 	{
+		size = values.length;
+		cells = new byte[size * size];
+		seed = 0;
+		generatorVersion = 0;
+
 		for (int i = 0; i<size; i++)
 		{
+			if (values[i].length != size)
+			{
+				throw new IllegalArgumentException("Board must be square!");
+			}
+
 			for (int j = 0; j<size; j++)
 			{
-				String l = randomLetter();
-				fieldValues[i][j] = l;
+				int index = letters.indexOf(values[i][j]);
+				if (index == -1)
+				{
+					throw new IllegalArgumentException("Unknown letter: " + values[i][j]);
+				}
+				cells[i * size + j] = (byte) index;
 			}
 		}
 	}
-	
+
+	/**
+	 * Returns true if the board was generated from a seed, so that it can be
+	 * rebuilt with {@link #BoggleBoard(int, long)}
+	 * @return boolean
+	 */
+	public boolean hasSeed()
+	{
+		return generatorVersion != 0;
+	}
+
 	/**
-	 * Helper to generate random letters
-	 * @return String random letter
+	 * Getter for the seed the board was generated from
+	 * @return long seed
 	 */
-	private String randomLetter()
+	public long getSeed()
 	{
-		Random rand = new Random();
-		return letters.get(rand.nextInt(letters.size()));
+		return seed;
 	}
-	
+
+	/**
+	 * Getter for the version of the generator that generated the board, or 0
+	 * if the board wasn't generated from a seed
+	 * @return int version
+	 */
+	public int getGeneratorVersion()
+	{
+		return generatorVersion;
+	}
+
 	/**
 	 * Getter for retrieving the letters list
 	 * @return
@@ -72,7 +142,17 @@ public class BoggleBoard implements Serializable{
 	{
 		return letters;
 	}
-	
+
+	/**
+	 * Getter for the letters list, without a board; a letter code is an index
+	 * in this list
+	 * @return unmodifiable List
+	 */
+	public static List<String> getLetterValues()
+	{
+		return Collections.unmodifiableList(letters);
+	}
+
 	/**
 	 * Get the value of an individual cell
 	 * @param x
@@ -81,9 +161,38 @@ public class BoggleBoard implements Serializable{
 	 */
 	public String getCell(int x, int y)
 	{
-		return fieldValues[x][y];
+		return letters.get(cells[x * size + y]);
+	}
+
+	/**
+	 * Get the letter code of a cell, which is the index of its value in the
+	 * letters list
+	 * @param cell - the cell index, in row-major order
+	 * @return int letter code
+	 */
+	public int getCode(int cell)
+	{
+		return cells[cell];
+	}
+
+	/**
+	 * Returns the number of cells on the board
+	 * @return int
+	 */
+	public int getCellCount()
+	{
+		return cells.length;
+	}
+
+	/**
+	 * Getter for the adjacency of the board's cells
+	 * @return BoardTopology
+	 */
+	public BoardTopology getTopology()
+	{
+		return BoardTopology.forSize(size);
 	}
-	
+
 	/**
 	 * Getter for the size instance variable
 	 * @return int size
@@ -92,7 +201,7 @@ public class BoggleBoard implements Serializable{
 	{
 		return size;
 	}
-	
+
 	/**
 	 * Getter for the default size of the board
 	 * @return int default size
@@ -101,13 +210,24 @@ public class BoggleBoard implements Serializable{
 	{
 		return DEFAULT_SIZE;
 	}
-	
+
 	/**
-	 * Getter for the values of the board
+	 * Getter for the values of the board. The array is built from the cells on
+	 * every call, so changes to it don't affect the board.
 	 * @return String[][] values
 	 */
 	public String[][] getFieldValues()
 	{
-		return fieldValues;
+		String[][] values = new String[size][size];
+
+		for (int i = 0; i<size; i++)
+		{
+			for (int j = 0; j<size; j++)
+			{
+				values[i][j] = getCell(i, j);
+			}
+		}
+
+		return values;
 	}
 }
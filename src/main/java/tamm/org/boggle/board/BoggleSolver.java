@@ -0,0 +1,262 @@
+package tamm.org.boggle.board;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+
+/**
+ * This class finds every word of a {@link Lexicon} that can be traced on a
+ * {@link BoggleBoard}, i.e. spelled by moving between horizontally,
+ * vertically or diagonally adjacent cells without using a cell twice.
+ * <p>
+ * The search is a depth-first walk from every cell that follows the lexicon
+ * node by node, so a path is abandoned as soon as no word starts with the
+ * letters collected so far. Visited cells are tracked in a bitmask.
+ * <p>
+ * Large boards can be solved in parallel on a {@link ForkJoinPool}: the
+ * starting cells are split into ranges that are searched as separate tasks,
+ * each with its own search state.
+ * <p>
+ * A solver holds no per-search state, so one instance can be shared by any
+ * number of threads.
+ *
+ * @author Urmas
+ *
+ */
+public class BoggleSolver {
+
+	/** The shortest word that counts in a round of Boggle **/
+	public static final int MIN_WORD_LENGTH = 3;
+
+	/** Letter code of the "Qu" tile, which spells two letters **/
+	private static final int QU = Lexicon.letterCode('q');
+	private static final int U = Lexicon.letterCode('u');
+
+	/** Parallel searches stop splitting at this many starting cells **/
+	private static final int PARALLEL_THRESHOLD = 16;
+
+	/** The words to search for **/
+	private final Lexicon lexicon;
+
+	/**
+	 * Constructor
+	 * @param lexicon - the words to search for
+	 */
+	public BoggleSolver(Lexicon lexicon) {
+		if (lexicon == null)
+			throw new NullPointerException();
+
+		this.lexicon = lexicon;
+	}
+
+	/**
+	 * Finds all words of at least {@link #MIN_WORD_LENGTH} letters on the board.
+	 * Each word is mapped to one path that spells it; the path holds cell
+	 * indices in row-major order, as used by {@link BoardTopology}.
+	 * @param board - the board to solve
+	 * @return Map of words to paths, in the order the words were found
+	 */
+	public Map<String, int[]> solve(BoggleBoard board) {
+		Search search = new Search(board);
+
+		for (int cell = 0; cell < board.getCellCount(); cell++) {
+			search.visit(cell, lexicon.root(), 0, 0);
+		}
+
+		return Collections.unmodifiableMap(search.found);
+	}
+
+	/**
+	 * Same as {@link #solve(BoggleBoard)}, but splits the starting cells
+	 * across tasks in the given pool. Each task collects its words in a map of
+	 * its own, and the maps are merged pairwise as the tasks are joined, so
+	 * the tasks never write to shared state.
+	 * @param board - the board to solve
+	 * @param pool - the pool to run the search in
+	 * @return Map of words to paths
+	 */
+	public Map<String, int[]> solveParallel(BoggleBoard board, ForkJoinPool pool) {
+		return Collections.unmodifiableMap(pool.invoke(new CollectTask(board, 0, board.getCellCount())));
+	}
+
+	/**
+	 * Searches the board in the given pool and hands every word to the
+	 * consumer as soon as it is found, without collecting all words first.
+	 * Each task passes a word only once, together with a path that spells it,
+	 * but tasks don't share what they found, so a word found from starting
+	 * cells of different tasks is passed once by each; the consumer drops the
+	 * repeats if it needs to. The consumer is called from the pool's threads,
+	 * so it must be safe for concurrent use. This method returns once the
+	 * whole board is searched.
+	 * @param board - the board to solve
+	 * @param pool - the pool to run the search in
+	 * @param consumer - receives each word and its path
+	 */
+	public void solveParallel(BoggleBoard board, ForkJoinPool pool, BiConsumer<String, int[]> consumer) {
+		pool.invoke(new StreamTask(board, 0, board.getCellCount(), consumer));
+	}
+
+	/**
+	 * Searches from the starting cells <tt>from</tt> up to <tt>to</tt>, or
+	 * splits the range in two if it is too large
+	 */
+	private final class CollectTask extends RecursiveTask<Map<String, int[]>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BoggleBoard board;
+		private final int from;
+		private final int to;
+
+		CollectTask(BoggleBoard board, int from, int to) {
+			this.board = board;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Map<String, int[]> compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				Search search = new Search(board);
+				for (int cell = from; cell < to; cell++) {
+					search.visit(cell, lexicon.root(), 0, 0);
+				}
+				return search.found;
+			}
+
+			int middle = (from + to) >>> 1;
+			CollectTask left = new CollectTask(board, from, middle);
+			left.fork();
+			Map<String, int[]> right = new CollectTask(board, middle, to).compute();
+			Map<String, int[]> merged = left.join();
+
+			// Merge the smaller map into the larger one.
+			if (merged.size() < right.size()) {
+				Map<String, int[]> tmp = merged;
+				merged = right;
+				right = tmp;
+			}
+			for (Map.Entry<String, int[]> e : right.entrySet()) {
+				if (!merged.containsKey(e.getKey())) {
+					merged.put(e.getKey(), e.getValue());
+				}
+			}
+			return merged;
+		}
+	}
+
+	/**
+	 * Searches from the starting cells <tt>from</tt> up to <tt>to</tt>,
+	 * reporting new words to a consumer, or splits the range in two if it is
+	 * too large
+	 */
+	private final class StreamTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final BoggleBoard board;
+		private final int from;
+		private final int to;
+		private final BiConsumer<String, int[]> consumer;
+
+		StreamTask(BoggleBoard board, int from, int to, BiConsumer<String, int[]> consumer) {
+			this.board = board;
+			this.from = from;
+			this.to = to;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				Search search = new Search(board);
+				search.consumer = consumer;
+				for (int cell = from; cell < to; cell++) {
+					search.visit(cell, lexicon.root(), 0, 0);
+				}
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new StreamTask(board, from, middle, consumer),
+					new StreamTask(board, middle, to, consumer));
+		}
+	}
+
+	/**
+	 * The state of a single search over one board
+	 */
+	private final class Search {
+
+		final BoggleBoard board;
+		final BoardTopology topology;
+		final long[] visited;
+		final int[] path;
+		final char[] letters;
+		final Map<String, int[]> found = new LinkedHashMap<String, int[]>();
+
+		/** When streaming, where to report the words new to this search **/
+		BiConsumer<String, int[]> consumer;
+
+		Search(BoggleBoard board) {
+			this.board = board;
+			topology = board.getTopology();
+			visited = new long[(board.getCellCount() + 63) / 64];
+			path = new int[board.getCellCount()];
+			letters = new char[board.getCellCount() * 2];
+		}
+
+		/**
+		 * Extends the current path, which is <tt>depth</tt> cells and
+		 * <tt>length</tt> letters long and has reached <tt>node</tt>, by
+		 * <tt>cell</tt>
+		 */
+		void visit(int cell, int node, int depth, int length) {
+			int code = board.getCode(cell);
+
+			node = lexicon.child(node, code);
+			if (node == Lexicon.NONE) {
+				return;
+			}
+			letters[length++] = (char) ('a' + code);
+
+			if (code == QU) {
+				node = lexicon.child(node, U);
+				if (node == Lexicon.NONE) {
+					return;
+				}
+				letters[length++] = 'u';
+			}
+
+			path[depth++] = cell;
+
+			if (length >= MIN_WORD_LENGTH && lexicon.isWord(node)) {
+				String word = new String(letters, 0, length);
+				if (!found.containsKey(word)) {
+					int[] wordPath = Arrays.copyOf(path, depth);
+					found.put(word, wordPath);
+
+					if (consumer != null) {
+						consumer.accept(word, wordPath);
+					}
+				}
+			}
+
+			visited[cell >>> 6] |= 1L << cell;
+
+			for (int i = topology.offset(cell), end = topology.offset(cell + 1); i < end; i++) {
+				int next = topology.neighbor(i);
+				if ((visited[next >>> 6] & (1L << next)) == 0) {
+					visit(next, node, depth, length);
+				}
+			}
+
+			visited[cell >>> 6] &= ~(1L << cell);
+		}
+	}
+}
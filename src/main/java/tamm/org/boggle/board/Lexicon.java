@@ -0,0 +1,390 @@
+package tamm.org.boggle.board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, immutable prefix index over a set of lower-case words, stored as
+ * a minimized DAWG (directed acyclic word graph). Words that share a prefix
+ * share nodes, and so do words that share a suffix.
+ * <p>
+ * Nodes are plain <tt>int</tt> ids and the graph lives in three primitive
+ * arrays, so walking it never allocates. Letters are addressed by their
+ * letter code, which is 0 for 'a' up to 25 for 'z'. A typical walk looks like
+ * this:
+ *
+ * <pre>
+ *   int node = lexicon.root();
+ *   node = lexicon.child(node, 'q');
+ *   node = lexicon.child(node, 'u');   // -1 if no word starts with "qu"
+ *   if (node != -1 &amp;&amp; lexicon.isWord(node)) ...
+ * </pre>
+ * <p>
+ * Only the letters a-z are indexed; words containing anything else (such as
+ * "ain't") are skipped, since they can't be formed on a Boggle board anyway.
+ *
+ * @author Urmas
+ *
+ */
+public final class Lexicon {
+
+	/** Number of distinct letter codes **/
+	public static final int ALPHABET_SIZE = 26;
+
+	/** The value returned by the walking methods when there is no such node **/
+	public static final int NONE = -1;
+
+	/** Bit in {@link #masks} marking a node at which a word ends **/
+	private static final int TERMINAL = 1 << ALPHABET_SIZE;
+
+	/** Bits in {@link #masks} marking which letters have outgoing edges **/
+	private static final int CHILD_MASK = TERMINAL - 1;
+
+	/** Per node: the child-letter bitmask, plus the {@link #TERMINAL} bit **/
+	private final int[] masks;
+
+	/** Per node: index of the node's first edge in {@link #targets} **/
+	private final int[] firstEdge;
+
+	/** Edge targets, grouped by node and ordered by letter within a node **/
+	private final int[] targets;
+
+	/** The number of words in the lexicon **/
+	private final int wordCount;
+
+	private Lexicon(int[] masks, int[] firstEdge, int[] targets, int wordCount) {
+		this.masks = masks;
+		this.firstEdge = firstEdge;
+		this.targets = targets;
+		this.wordCount = wordCount;
+	}
+
+	/**
+	 * Builds a lexicon from the given words. The words are lower-cased and
+	 * trimmed; duplicates and words with characters outside a-z are dropped.
+	 * @param words - the words to index, in any order
+	 * @return Lexicon
+	 */
+	public static Lexicon build(Collection<String> words) {
+		List<String> sorted = new ArrayList<String>(words.size());
+
+		for (String w : words) {
+			String word = w.toLowerCase().trim();
+			if (!word.isEmpty() && isIndexable(word)) {
+				sorted.add(word);
+			}
+		}
+
+		String[] array = sorted.toArray(new String[0]);
+		Arrays.sort(array);
+
+		Builder builder = new Builder();
+		String previous = null;
+		for (String word : array) {
+			if (!word.equals(previous)) {
+				builder.add(word);
+				previous = word;
+			}
+		}
+
+		return builder.finish();
+	}
+
+	private static boolean isIndexable(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			if (letterCode(word.charAt(i)) == NONE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Converts a character to its letter code, ignoring case
+	 * @param c - the character
+	 * @return int letter code 0-25, or {@link #NONE} if c is not a letter a-z
+	 */
+	public static int letterCode(char c) {
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a';
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A';
+		}
+		return NONE;
+	}
+
+	/**
+	 * Returns the root node, which represents the empty prefix
+	 * @return int node
+	 */
+	public int root() {
+		return 0;
+	}
+
+	/**
+	 * Steps from a node along the edge for the given letter code
+	 * @param node - the node to step from
+	 * @param letter - the letter code, 0-25
+	 * @return int the child node, or {@link #NONE} if no word continues this way
+	 */
+	public int child(int node, int letter) {
+		int mask = masks[node];
+		int bit = 1 << letter;
+
+		if ((mask & bit) == 0) {
+			return NONE;
+		}
+
+		return targets[firstEdge[node] + Integer.bitCount(mask & (bit - 1))];
+	}
+
+	/**
+	 * Steps from a node along the edge for the given character
+	 * @param node - the node to step from
+	 * @param c - the character, upper or lower case
+	 * @return int the child node, or {@link #NONE} if no word continues this way
+	 */
+	public int child(int node, char c) {
+		int letter = letterCode(c);
+		return letter == NONE ? NONE : child(node, letter);
+	}
+
+	/**
+	 * Walks from a node along all characters of the given sequence
+	 * @param node - the node to start from
+	 * @param s - the characters to follow
+	 * @return int the node reached, or {@link #NONE} if the walk falls off
+	 */
+	public int walk(int node, CharSequence s) {
+		for (int i = 0; i < s.length() && node != NONE; i++) {
+			node = child(node, s.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns a bitmask of the letter codes that have outgoing edges from the
+	 * given node; bit <tt>n</tt> is set if {@link #child(int, int)} with
+	 * letter <tt>n</tt> would succeed
+	 * @param node - the node
+	 * @return int bitmask
+	 */
+	public int childMask(int node) {
+		return masks[node] & CHILD_MASK;
+	}
+
+	/**
+	 * Returns true if a word ends at the given node
+	 * @param node - the node
+	 * @return boolean
+	 */
+	public boolean isWord(int node) {
+		return (masks[node] & TERMINAL) != 0;
+	}
+
+	/**
+	 * Check if the given word is in the lexicon
+	 * @param word - the word to be checked
+	 * @return boolean
+	 */
+	public boolean contains(CharSequence word) {
+		int node = walk(root(), word);
+		return node != NONE && isWord(node);
+	}
+
+	/**
+	 * Check if at least one word in the lexicon starts with the given prefix.
+	 * Every word is a prefix of itself.
+	 * @param prefix - the prefix to be checked
+	 * @return boolean
+	 */
+	public boolean isPrefix(CharSequence prefix) {
+		return walk(root(), prefix) != NONE;
+	}
+
+	/**
+	 * Returns the number of words in the lexicon
+	 * @return int
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns the number of nodes in the graph
+	 * @return int
+	 */
+	public int nodeCount() {
+		return masks.length;
+	}
+
+	/**
+	 * Returns all words of the lexicon in alphabetical order. This allocates a
+	 * string per word, so it is meant for tooling rather than lookups.
+	 * @return List
+	 */
+	public List<String> words() {
+		List<String> result = new ArrayList<String>(wordCount);
+		collect(root(), new StringBuilder(), result);
+		return result;
+	}
+
+	private void collect(int node, StringBuilder prefix, List<String> result) {
+		if (isWord(node)) {
+			result.add(prefix.toString());
+		}
+
+		int mask = childMask(node);
+		while (mask != 0) {
+			int letter = Integer.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+
+			prefix.append((char) ('a' + letter));
+			collect(child(node, letter), prefix, result);
+			prefix.setLength(prefix.length() - 1);
+		}
+	}
+
+	/**
+	 * Builds a minimized DAWG from words added in sorted order, using the
+	 * incremental algorithm of Daciuk et al. Nodes whose subtrees are complete
+	 * are replaced by an equivalent registered node, if one exists.
+	 */
+	private static final class Builder {
+
+		private final Node root = new Node();
+		private final Map<Node, Node> register = new HashMap<Node, Node>();
+		private int wordCount;
+
+		void add(String word) {
+			Node node = root;
+			int i = 0;
+
+			while (i < word.length() && node.children[word.charAt(i) - 'a'] != null) {
+				node = node.children[word.charAt(i) - 'a'];
+				i++;
+			}
+
+			if (node.lastLetter != NONE) {
+				replaceOrRegister(node);
+			}
+
+			for (; i < word.length(); i++) {
+				Node next = new Node();
+				node.children[word.charAt(i) - 'a'] = next;
+				node.lastLetter = word.charAt(i) - 'a';
+				node = next;
+			}
+
+			node.terminal = true;
+			wordCount++;
+		}
+
+		private void replaceOrRegister(Node node) {
+			Node child = node.children[node.lastLetter];
+
+			if (child.lastLetter != NONE) {
+				replaceOrRegister(child);
+			}
+
+			Node existing = register.get(child);
+			if (existing != null) {
+				node.children[node.lastLetter] = existing;
+			} else {
+				register.put(child, child);
+			}
+		}
+
+		Lexicon finish() {
+			if (root.lastLetter != NONE) {
+				replaceOrRegister(root);
+			}
+
+			// Number the nodes breadth-first, so the root gets id 0. Nodes are
+			// keyed by identity here, since Node.equals compares structure.
+			Map<Node, Integer> ids = new IdentityHashMap<Node, Integer>();
+			List<Node> order = new ArrayList<Node>();
+			ids.put(root, 0);
+			order.add(root);
+
+			int edgeCount = 0;
+			for (int n = 0; n < order.size(); n++) {
+				for (Node child : order.get(n).children) {
+					if (child != null) {
+						edgeCount++;
+						if (!ids.containsKey(child)) {
+							ids.put(child, order.size());
+							order.add(child);
+						}
+					}
+				}
+			}
+
+			int[] masks = new int[order.size()];
+			int[] firstEdge = new int[order.size()];
+			int[] targets = new int[edgeCount];
+
+			int edge = 0;
+			for (int n = 0; n < order.size(); n++) {
+				Node node = order.get(n);
+				firstEdge[n] = edge;
+				masks[n] = node.terminal ? TERMINAL : 0;
+
+				for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+					Node child = node.children[letter];
+					if (child != null) {
+						masks[n] |= 1 << letter;
+						targets[edge++] = ids.get(child);
+					}
+				}
+			}
+
+			return new Lexicon(masks, firstEdge, targets, wordCount);
+		}
+	}
+
+	/**
+	 * A mutable node used while building. Two nodes are equal when they have
+	 * the same terminal flag and the very same (already registered) children.
+	 */
+	private static final class Node {
+
+		final Node[] children = new Node[ALPHABET_SIZE];
+		boolean terminal;
+		int lastLetter = NONE;
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Node)) {
+				return false;
+			}
+
+			Node other = (Node) o;
+			if (terminal != other.terminal) {
+				return false;
+			}
+
+			for (int i = 0; i < ALPHABET_SIZE; i++) {
+				if (children[i] != other.children[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = terminal ? 1 : 0;
+			for (int i = 0; i < ALPHABET_SIZE; i++) {
+				h = 31 * h + System.identityHashCode(children[i]);
+			}
+			return h;
+		}
+	}
+}
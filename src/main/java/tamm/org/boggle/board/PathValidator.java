@@ -0,0 +1,266 @@
+package tamm.org.boggle.board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class checks whether words can be traced on a single
+ * {@link BoggleBoard}, using adjacent cells and no cell more than once.
+ * <p>
+ * The outcome for every word is memoized, since the players of a round tend
+ * to submit many of the same words. So is every prefix traced on the way,
+ * together with the paths that spell it, in a trie keyed by letter code: a
+ * word is checked by walking the trie, and only the letters past its longest
+ * known prefix extend those paths. Words that share a prefix don't trace it
+ * again, and a prefix no path spells rejects every longer word at once. A
+ * prefix spelled by too many paths, as on boards of many equal letters, isn't
+ * memoized; words through it are traced by a plain search instead. The
+ * validator is safe for use by several threads at once.
+ *
+ * @author Urmas
+ *
+ */
+public class PathValidator {
+
+	private static final int QU = Lexicon.letterCode('q');
+
+	/**
+	 * The most paths memoized for a prefix. Prefixes spelled by more paths
+	 * are traced by a plain search instead.
+	 **/
+	private static final int MAX_PATHS = 256;
+
+	/** The paths of a prefix spelled by more than {@link #MAX_PATHS} paths. **/
+	private static final int[][] TOO_MANY = new int[0][];
+
+	/** The board words are validated against **/
+	private final BoggleBoard board;
+
+	/** Which of the board's cells are adjacent **/
+	private final BoardTopology topology;
+
+	/** Cells holding each letter code, to start searches from **/
+	private final int[][] cellsByLetter;
+
+	/** Words checked so far, and whether they could be traced **/
+	private final Map<String, Boolean> checked = new ConcurrentHashMap<String, Boolean>();
+
+	/** The empty prefix, spelled by the empty path **/
+	private final Prefix root = new Prefix(new int[][] { new int[0] });
+
+	/**
+	 * A prefix traced so far. Its paths are final, so a prefix can be read
+	 * without a lock once it is in its parent's children.
+	 **/
+	private static final class Prefix {
+
+		/**
+		 * The cells of each path that spells the prefix, none if it can't be
+		 * traced, or {@link #TOO_MANY}.
+		 **/
+		final int[][] paths;
+
+		/** The prefixes one letter code longer, by code, created on demand. **/
+		final Prefix[] children = new Prefix[Lexicon.ALPHABET_SIZE];
+
+		Prefix(int[][] paths) {
+			this.paths = paths;
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param board - the board words are validated against
+	 */
+	public PathValidator(BoggleBoard board) {
+		this.board = board;
+		topology = board.getTopology();
+
+		int[] counts = new int[Lexicon.ALPHABET_SIZE];
+		for (int cell = 0; cell < board.getCellCount(); cell++) {
+			counts[board.getCode(cell)]++;
+		}
+
+		cellsByLetter = new int[Lexicon.ALPHABET_SIZE][];
+		for (int letter = 0; letter < cellsByLetter.length; letter++) {
+			cellsByLetter[letter] = new int[counts[letter]];
+		}
+
+		Arrays.fill(counts, 0);
+		for (int cell = 0; cell < board.getCellCount(); cell++) {
+			int code = board.getCode(cell);
+			cellsByLetter[code][counts[code]++] = cell;
+		}
+	}
+
+	/**
+	 * Returns true if the word can be spelled on the board by moving between
+	 * adjacent cells without reusing a cell
+	 * @param word - the word, in any case
+	 * @return boolean
+	 */
+	public boolean isTraceable(String word) {
+		String w = word.toLowerCase();
+		Boolean known = checked.get(w);
+
+		if (known == null) {
+			known = search(w);
+			checked.put(w, known);
+		}
+
+		return known;
+	}
+
+	/**
+	 * Walks the word down the trie of prefixes, one letter code at a time,
+	 * extending it where the word goes past what has been traced before.
+	 */
+	private boolean search(String word) {
+		if (word.isEmpty()) {
+			return false;
+		}
+
+		Prefix prefix = root;
+		int pos = 0;
+		while (pos < word.length()) {
+			int code = Lexicon.letterCode(word.charAt(pos++));
+			if (code == Lexicon.NONE) {
+				return false;
+			}
+
+			// A 'q' is only ever spelled together with the 'u' after it.
+			if (code == QU) {
+				if (pos == word.length() || word.charAt(pos) != 'u') {
+					return false;
+				}
+				pos++;
+			}
+
+			prefix = child(prefix, code);
+			if (prefix.paths == TOO_MANY) {
+				return traceFromScratch(word);
+			}
+			if (prefix.paths.length == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the prefix one letter code longer, tracing it if it is new
+	 */
+	private Prefix child(Prefix parent, int code) {
+		Prefix child = parent.children[code];
+
+		if (child == null) {
+			synchronized (parent) {
+				child = parent.children[code];
+				if (child == null) {
+					child = new Prefix(extend(parent.paths, code));
+					parent.children[code] = child;
+				}
+			}
+		}
+
+		return child;
+	}
+
+	/**
+	 * Extends each of the paths by a cell of the given letter code, next to
+	 * its last cell and not on it yet
+	 */
+	private int[][] extend(int[][] paths, int code) {
+		List<int[]> longer = new ArrayList<int[]>();
+
+		for (int[] path : paths) {
+			if (path.length == 0) {
+				for (int cell : cellsByLetter[code]) {
+					longer.add(new int[] { cell });
+				}
+			} else {
+				int last = path[path.length - 1];
+				for (int i = topology.offset(last), end = topology.offset(last + 1); i < end; i++) {
+					int next = topology.neighbor(i);
+					if (board.getCode(next) == code && !contains(path, next)) {
+						int[] path2 = Arrays.copyOf(path, path.length + 1);
+						path2[path.length] = next;
+						longer.add(path2);
+					}
+				}
+			}
+
+			if (longer.size() > MAX_PATHS) {
+				return TOO_MANY;
+			}
+		}
+
+		return longer.toArray(new int[longer.size()][]);
+	}
+
+	private static boolean contains(int[] path, int cell) {
+		for (int c : path) {
+			if (c == cell) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Searches for the whole word from every cell, without the memo
+	 */
+	private boolean traceFromScratch(String word) {
+		long[] visited = new long[(board.getCellCount() + 63) / 64];
+
+		for (int cell : cellsByLetter[Lexicon.letterCode(word.charAt(0))]) {
+			if (trace(word, 0, cell, visited)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Tries to spell <tt>word</tt> from position <tt>pos</tt> on, starting
+	 * in <tt>cell</tt>
+	 */
+	private boolean trace(String word, int pos, int cell, long[] visited) {
+		int code = board.getCode(cell);
+
+		if (Lexicon.letterCode(word.charAt(pos)) != code) {
+			return false;
+		}
+		pos++;
+
+		if (code == QU) {
+			if (pos == word.length() || word.charAt(pos) != 'u') {
+				return false;
+			}
+			pos++;
+		}
+
+		if (pos == word.length()) {
+			return true;
+		}
+
+		visited[cell >>> 6] |= 1L << cell;
+
+		boolean found = false;
+		for (int i = topology.offset(cell), end = topology.offset(cell + 1); i < end && !found; i++) {
+			int next = topology.neighbor(i);
+			if ((visited[next >>> 6] & (1L << next)) == 0) {
+				found = trace(word, pos, next, visited);
+			}
+		}
+
+		visited[cell >>> 6] &= ~(1L << cell);
+
+		return found;
+	}
+}
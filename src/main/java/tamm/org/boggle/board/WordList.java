@@ -6,6 +6,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -141,6 +142,18 @@ public class WordList implements Serializable{
 		return wordList.contains(preprocessWord(word));
 	}
 	
+	/**
+	 * Returns a copy of this word list that can't be changed, e.g. to publish
+	 * to several threads
+	 * @return WordList
+	 */
+	public WordList unmodifiableCopy()
+	{
+		WordList copy = new WordList();
+		copy.wordList = Collections.unmodifiableSet(new HashSet<String>(wordList));
+		return copy;
+	}
+	
 	/**
 	 * Getter
 	 * @return Set
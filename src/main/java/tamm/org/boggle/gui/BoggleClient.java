@@ -3,13 +3,22 @@ package tamm.org.boggle.gui;
 import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.GridLayout;
+import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.DefaultListModel;
 import javax.swing.JButton;
@@ -18,22 +27,35 @@ import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Logger;
 
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoardGenerator;
 import tamm.org.boggle.board.BoggleBoard;
 import tamm.org.boggle.board.WordList;
 import tamm.org.boggle.gui.JBoggleButton.State;
 import tamm.org.boggle.gui.dialog.JGameResultsDialog;
 import tamm.org.boggle.gui.dialog.JStartDialog;
+import tamm.org.boggle.server.BoardSpec;
+import tamm.org.boggle.server.BoggleListener;
 import tamm.org.boggle.server.BoggleServer;
+import tamm.org.boggle.server.BoggleServerApp;
 import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.NioBoggleServer;
 import tamm.org.boggle.server.PlayerException;
+import tamm.org.boggle.server.RoomException;
+import tamm.org.boggle.server.RoomManager;
+import tamm.org.boggle.server.RoomSettings;
 
 public class BoggleClient {
 	
+	// set this system property to "nio" to talk to the server over the binary protocol instead of RMI
+	public static final String TRANSPORT_PROPERTY = "boggle.transport";
+	
 	// the main frame containing parts of the BoggleBoard
 	private JFrame mainFrame;
 	// the panel containing start button and time
@@ -47,6 +69,8 @@ public class BoggleClient {
 	
 	// the wordlist instance
 	private WordList wordList;
+	// the words on the current board, or null if the server didn't send them
+	private BloomFilter wordFilter;
 	// a control button for clearButtoning the last selection of letters
 	private final JButton clearButton = new JButton("Clear Word");
 	// a control button for submitButtonting the word
@@ -64,6 +88,32 @@ public class BoggleClient {
 	private BoggleServer server;
 	//player's username
 	private String username;
+	//the game room the player plays in
+	private String roomName;
+	//the listener the server calls back as the round progresses, once exported
+	private volatile BoggleListener listenerStub;
+	//the ticket of the current game, or 0 if there is none
+	private volatile long ticket;
+	//how far the server's clock is off from ours, sampled when joining a game
+	private volatile ServerClock clock = ServerClock.LOCAL;
+	//sends the words to the server as they are found, in order and off the event thread
+	private final ExecutorService wordSender = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "boggle-word-sender");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	
+	//keeps the server's lease on the current game, so it knows the player is still there
+	private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "boggle-heartbeat");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private ScheduledFuture<?> heartbeat;
 	
 	//dialog object, which gets displayed, when game is starting
 	private JStartDialog startDialog;
@@ -72,19 +122,25 @@ public class BoggleClient {
 	private static Logger logger = Logger.getLogger(BoggleClient.class);
 	
 	public BoggleClient(BoggleServer s, String u)
+	{
+		this(s, u, RoomManager.DEFAULT_ROOM);
+	}
+	
+	public BoggleClient(BoggleServer s, String u, String r)
 	{
 		server = s;
 		username = u;
+		roomName = r;
 	}
 	
 	public static void main(String[] args) {
-		if(args.length == 1 || args.length == 2)
+		if(args.length >= 1 && args.length <= 3)
 		{
 			BasicConfigurator.configure();
 			try
 			{
 				String host;
-				if(args.length == 2)
+				if(args.length >= 2)
 				{
 					host = args[1]; 
 				}
@@ -93,20 +149,37 @@ public class BoggleClient {
 					host = "localhost";
 				}
 				
-				Registry registry = LocateRegistry.getRegistry(host);
+				final String roomName;
+				if(args.length == 3)
+				{
+					roomName = args[2];
+				}
+				else
+				{
+					roomName = RoomManager.DEFAULT_ROOM;
+				}
 				
 				//this "final" thing is a bit weird...
-				final BoggleServer server = (BoggleServer)registry.lookup("BoggleServer");
+				final BoggleServer server;
+				if("nio".equals(System.getProperty(TRANSPORT_PROPERTY)))
+				{
+					server = new NioBoggleConnection(host, NioBoggleServer.DEFAULT_PORT);
+				}
+				else
+				{
+					Registry registry = LocateRegistry.getRegistry(host);
+					server = (BoggleServer)registry.lookup("BoggleServer");
+				}
 				final String username = args[0];
 				
 				javax.swing.SwingUtilities.invokeLater(new Runnable() {
 		            public void run() {
-		            	BoggleClient client = new BoggleClient(server, username);
+		            	BoggleClient client = new BoggleClient(server, username, roomName);
 		            	client.createAndShowGUI();
 		            }
 		        });
 			}
-			catch (RemoteException | NotBoundException e) {
+			catch (IOException | NotBoundException e) {
 				//System.err.println("Server internal error!");
 				logger.error("Server internal error!");
 				e.printStackTrace();
@@ -115,7 +188,7 @@ public class BoggleClient {
 		}
 		else
 		{
-			throw new IllegalArgumentException("Provide your username (mandatory) and host name (optional)!");
+			throw new IllegalArgumentException("Provide your username (mandatory), host name (optional) and room name (optional)!");
 		}
     }
 	
@@ -124,7 +197,7 @@ public class BoggleClient {
 	 */
 	public void createAndShowGUI() {
 
-		mainFrame = new JFrame("Boggle Game: "+username);
+		mainFrame = new JFrame("Boggle Game: "+username+" @ "+roomName);
 		mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
 		mainFrame.setSize(400, 400);
@@ -188,41 +261,63 @@ public class BoggleClient {
 		contPanel.add(submitButton);
 	}
 	
-	private class GameStarter extends SwingWorker<BoggleBoard, Object> {
+	/**
+	 * Joins the next round of the room. The server returns a ticket right
+	 * away, and calls the {@link RoundListener} back once the round starts.
+	 */
+	private class GameStarter extends SwingWorker<Long, Object> {
 		
 		@Override
-		protected BoggleBoard doInBackground() throws RemoteException, PlayerException {
-			return server.startGame(username);
+		protected Long doInBackground() throws RemoteException, PlayerException, RoomException {
+			if (listenerStub == null) {
+				// the binary protocol sends the events over its own connection,
+				// only RMI needs the listener exported
+				if (server instanceof NioBoggleConnection) {
+					listenerStub = new RoundListener();
+				} else {
+					listenerStub = (BoggleListener) UnicastRemoteObject.exportObject(new RoundListener(), 0);
+				}
+			}
+			ensureRoom();
+			
+			// The round ends at the server's deadline, so find out how its
+			// clock compares to ours while waiting for the round anyway.
+			clock = ServerClock.sample(server, ServerClock.DEFAULT_SAMPLES);
+			logger.debug("Server clock: " + clock);
+
+			// Ask for the seed only; the server falls back to the whole board
+			// if our generator can't rebuild it.
+			// Remember the ticket before returning, since the round may start
+			// before done() runs.
+			ticket = server.joinGame(username, roomName, BoardGenerator.VERSION, listenerStub);
+			startHeartbeat(ticket);
+			return ticket;
+		}
+		
+		/**
+		 * Creates the room the player plays in with the default settings, if
+		 * it doesn't exist yet
+		 */
+		private void ensureRoom() throws RemoteException {
+			try {
+				server.getRoom(roomName);
+			} catch (RoomException e) {
+				try {
+					server.createRoom(roomName, RoomSettings.DEFAULT);
+				} catch (RoomException e2) {
+					// somebody else created it in the meantime
+				}
+			}
 		}
 		
 		@Override
 		protected void done()
 		{
 			try {
-				startDialog.dispose();
-				BoggleBoard sBoard = get();
-				
-				// create new boggleboard layout
-				boardPanel.removeAll();
-				boardPanel.validate();
-
-				// create new boggleboard and empty wordlist
-				boardPanel.setBoard(sBoard);
-				wordList = new WordList();
-
-				boardPanel.clearSelValues();
-
-				// clear out last game's results
-				listPanel.removeAll();
-				listPanel.validate();
-				listView = new JList<String>(new DefaultListModel<String>());
-
-				timer.addActionListener(bActionHandler);
-				timer.setTimeRemaining(1 * 60);
-				timer.startTimer();
+				get();
 			} catch (InterruptedException | ExecutionException e) {
-				// TODO Auto-generated catch block
 				e.printStackTrace();
+				startDialog.dispose();
 				JOptionPane.showMessageDialog(mainFrame,
 						"An error occured, please try again.", "Server error!",
 						JOptionPane.ERROR_MESSAGE);
@@ -232,6 +327,115 @@ public class BoggleClient {
 		
 	}
 	
+	/**
+	 * Receives the server's callbacks for the games of this client. The calls
+	 * arrive on RMI threads, so all user interface work is handed over to the
+	 * event dispatch thread.
+	 */
+	private class RoundListener implements BoggleListener {
+		
+		@Override
+		public void roundStarted(final long t, BoardSpec spec, final int roundLength) {
+			final BoggleBoard sBoard = spec.toBoard();
+			final BloomFilter filter = spec.getWordFilter();
+			final long deadline = spec.getDeadline() == 0 ? 0 : clock.toLocalTime(spec.getDeadline());
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if (t == ticket) {
+						startRound(sBoard, filter, roundLength, deadline);
+					}
+				}
+			});
+		}
+		
+		@Override
+		public void tick(long t, int secondsRemaining) {
+			// the timer keeps its own time
+			logger.debug("Server time remaining: " + secondsRemaining + " s");
+		}
+		
+		@Override
+		public void resultsReady(final long t, final GameResults results) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if (t == ticket) {
+						ticket = 0;
+						stopHeartbeat();
+						JGameResultsDialog resDialog = new JGameResultsDialog(results, server, mainFrame, true);
+						resDialog.setVisible(true);
+						bActionHandler.toggleControlboardButtons(true);
+					}
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Sends heartbeats for the game until it's over, a few per lease, so
+	 * one that gets lost doesn't cost the player the round
+	 * 
+	 * @param t - the ticket of the game
+	 */
+	private synchronized void startHeartbeat(final long t) {
+		stopHeartbeat();
+		long period = BoggleServerApp.LEASE_MILLIS / 3;
+		heartbeat = heartbeats.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					server.heartbeat(t);
+				} catch (RemoteException | PlayerException e) {
+					logger.debug("Can't send a heartbeat: " + e.getMessage());
+				}
+			}
+		}, 0, period, TimeUnit.MILLISECONDS);
+	}
+	
+	private synchronized void stopHeartbeat() {
+		if (heartbeat != null) {
+			heartbeat.cancel(false);
+			heartbeat = null;
+		}
+	}
+	
+	/**
+	 * Sets up the board and starts the timer for a new round
+	 * 
+	 * @param sBoard - the board of the round
+	 * @param filter - the words on the board, or null if the server didn't send them
+	 * @param roundLength - the length of the round in seconds
+	 * @param deadline - when the round ends by our clock, or 0 if the server didn't say
+	 */
+	private void startRound(BoggleBoard sBoard, BloomFilter filter, int roundLength, long deadline) {
+		startDialog.dispose();
+		wordFilter = filter;
+		
+		// create new boggleboard layout
+		boardPanel.removeAll();
+		boardPanel.setBoardSize(sBoard.getSize());
+		boardPanel.validate();
+
+		// create new boggleboard and empty wordlist
+		boardPanel.setBoard(sBoard);
+		wordList = new WordList();
+
+		boardPanel.clearSelValues();
+
+		// clear out last game's results
+		listPanel.removeAll();
+		listPanel.validate();
+		listView = new JList<String>(new DefaultListModel<String>());
+
+		timer.addActionListener(bActionHandler);
+		// count down to the server's deadline, so every player's time is up
+		// at once, however late the board got here
+		if (deadline != 0) {
+			timer.setDeadline(deadline);
+		} else {
+			timer.setTimeRemaining(roundLength);
+		}
+		timer.startTimer();
+	}
+	
 	/**
 	 * An inner controller class meant for handling all the BoggleBoard actions
 	 * 
@@ -278,20 +482,30 @@ public class BoggleClient {
 		 * Listener for the timer object
 		 */
 		private void timerAction() {
-			try {
-				GameResults results = server.gameOver(username, wordList);
-				JGameResultsDialog resDialog = new JGameResultsDialog(results, mainFrame, true);
-				resDialog.setVisible(true);
-			} catch (RemoteException | PlayerException e) {
-				e.printStackTrace();
-				JOptionPane.showMessageDialog(mainFrame,
-						"An error occured, please try again.", "Server error!",
-						JOptionPane.ERROR_MESSAGE);
-			}
-			finally
-			{
-				toggleControlboardButtons(true);
-			}
+			// the results arrive through the RoundListener, so keep the
+			// start button disabled until then
+			toggleControlboardButtons(false);
+
+			// after the words still being sent, and off the event thread
+			final long t = ticket;
+			final WordList words = wordList;
+			wordSender.execute(new Runnable() {
+				public void run() {
+					try {
+						server.submitWords(t, words);
+					} catch (RemoteException | PlayerException e) {
+						e.printStackTrace();
+						SwingUtilities.invokeLater(new Runnable() {
+							public void run() {
+								JOptionPane.showMessageDialog(mainFrame,
+										"An error occured, please try again.", "Server error!",
+										JOptionPane.ERROR_MESSAGE);
+								toggleControlboardButtons(true);
+							}
+						});
+					}
+				}
+			});
 		}
 
 		/**
@@ -302,6 +516,15 @@ public class BoggleClient {
 				but.setState(State.AVAILABLE);
 			}
 
+			// not a word on this board, no need to ask the server
+			if (wordFilter != null && !wordFilter.mightContain(boardPanel.getWord())) {
+				Toolkit.getDefaultToolkit().beep();
+				boardPanel.clearSelValues();
+				submitButton.setEnabled(false);
+				clearButton.setEnabled(false);
+				return;
+			}
+
 			DefaultListModel<String> model = (DefaultListModel<String>) listView.getModel();
 
 			int oldSize = wordList.size();
@@ -310,6 +533,7 @@ public class BoggleClient {
 
 			if (oldSize != newSize) {
 				model.addElement(boardPanel.getWord());
+				sendWord(ticket, boardPanel.getWord());
 			}
 
 			// add the scrollbar
@@ -323,6 +547,24 @@ public class BoggleClient {
 			clearButton.setEnabled(false);
 		}
 
+		/**
+		 * Sends a word to the server while the round is played, so it's
+		 * scored by the time the round ends. The word is in the word-list
+		 * submitted at the end anyway, so a word that can't be sent is only
+		 * logged.
+		 */
+		private void sendWord(final long t, final String word) {
+			wordSender.execute(new Runnable() {
+				public void run() {
+					try {
+						server.submitWord(t, word);
+					} catch (RemoteException | PlayerException e) {
+						logger.debug("Can't send word " + word + ": " + e.getMessage());
+					}
+				}
+			});
+		}
+
 		/**
 		 * Implementation for the clearButton button action after being pressed
 		 */
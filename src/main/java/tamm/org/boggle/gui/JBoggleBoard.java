@@ -1,11 +1,13 @@
 package tamm.org.boggle.gui;
 
+import java.awt.GridLayout;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JPanel;
 
+import tamm.org.boggle.board.BoardTopology;
 import tamm.org.boggle.board.BoggleBoard;
 import tamm.org.boggle.gui.JBoggleButton.State;
 
@@ -70,6 +72,18 @@ public class JBoggleBoard extends JPanel {
 		return boardSize;
 	}
 	
+	/**
+	 * Changes the size of the board; the buttons of the current board are
+	 * removed, and a board of the new size can be set with setBoard
+	 * @param size - the new size of the board
+	 */
+	public void setBoardSize(int size)
+	{
+		boardSize = size;
+		boardButtons.clear();
+		setLayout(new GridLayout(size, size));
+	}
+	
 	public void clearSelValues()
 	{
 		selValues.clear();
@@ -96,7 +110,7 @@ public class JBoggleBoard extends JPanel {
 		
 		for (int i = 0; i < boggleBoard.getSize(); i++) {
 			for (int j = 0; j < boggleBoard.getSize(); j++) {
-				JBoggleButton button = new JBoggleButton(boggleBoard.getCell(i,j));
+				JBoggleButton button = new JBoggleButton(boggleBoard.getCell(i,j), i * boggleBoard.getSize() + j);
 
 				button.setActionCommand("board_button_event");
 				button.addActionListener(bActionHandler);
@@ -122,9 +136,11 @@ public class JBoggleBoard extends JPanel {
 		selValues.add(button);
 		button.setState(State.SELECTED);
 
+		BoardTopology topology = boggleBoard.getTopology();
+
 		for (JBoggleButton but : boardButtons) {
 			if (!but.getState().equals(State.SELECTED)) {
-				if (button.inVicinity(but)) {
+				if (topology.isAdjacent(button.getCell(), but.getCell())) {
 					but.setState(State.AVAILABLE);
 				} else {
 					but.setState(State.UNAVAILABLE);
@@ -25,6 +25,9 @@ public class JBoggleButton extends JButton {
 	
 	private State state;
 	
+	//index of the board cell this button shows
+	private final int cell;
+	
 	/**
 	 * Enum to represent the state of the button
 	 * @author Dell
@@ -40,9 +43,11 @@ public class JBoggleButton extends JButton {
 	/**
 	 * Constructor for creating a new button with the given text value
 	 * @param text - the textual value of the button
+	 * @param cell - the index of the board cell the button shows
 	 */
-	public JBoggleButton(String text)
+	public JBoggleButton(String text, int cell)
 	{
+		this.cell = cell;
 		setText(text);
 		setState(State.AVAILABLE);
 		setFont(DEFAULT_FONT);
@@ -85,48 +90,12 @@ public class JBoggleButton extends JButton {
 	}
 	
 	/**
-	 * Returns true if the given is in the vicinity of the parameter button
-	 * @param button - the button to be checked
-	 * @return boolean
+	 * Getter for the index of the board cell this button shows
+	 * @return int cell index, in row-major order
 	 */
-	public boolean inVicinity(JBoggleButton button)
+	public int getCell()
 	{
-		if(getX()+getSize().getWidth()==button.getX() && getY()==button.getY())
-		{
-			return true;
-		}
-		else if(getX()-getSize().getWidth()==button.getX() && getY()==button.getY())
-		{
-			return true;
-		}
-		else if(getY()+getSize().getHeight()==button.getY() && getX()==button.getX())
-		{
-			return true;
-		}
-		else if(getY()-getSize().getHeight()==button.getY() && getX()==button.getX())
-		{
-			return true;
-		}
-		else if(getX()+getSize().getWidth()==button.getX() && getY()-getSize().getHeight()==button.getY())
-		{
-			return true;
-		}
-		else if(getX()-getSize().getWidth()==button.getX() && getY()-getSize().getHeight()==button.getY())
-		{
-			return true;
-		}
-		else if(getX()+getSize().getWidth()==button.getX() && getY()+getSize().getHeight()==button.getY())
-		{
-			return true;
-		}
-		else if(getX()-getSize().getWidth()==button.getX() && getY()+getSize().getHeight()==button.getY())
-		{
-			return true;
-		}
-		else
-		{
-			return false;
-		}
+		return cell;
 	}
 
 }
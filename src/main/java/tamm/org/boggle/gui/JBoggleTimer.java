@@ -21,6 +21,10 @@ import javax.swing.event.EventListenerList;
  *   timer.startTimer();
  * </pre>
  * <p>
+ * Or the timer can count down to a given time, e.g. the deadline the server
+ * set for the round, with {@link #setDeadline} instead of
+ * {@link #setTimeRemaining}.
+ * <p>
  * When the timer hits 0, it fires an action event that listeners can register
  * for.
  **/
@@ -46,8 +50,11 @@ public class JBoggleTimer extends JLabel {
 	/** The total time that the timer is specified for. **/
 	private int totalSeconds;
 
-	/** The time (in milliseconds) when the Boggle timer was started. **/
-	private long startTime;
+	/** The time (in milliseconds) when the Boggle timer runs out. **/
+	private long endTime;
+
+	/** True if {@link #endTime} is set by a deadline, rather than on start. **/
+	private boolean hasDeadline;
 
 	/**
 	 * This inner class handles events from the internal timer, to update the
@@ -57,14 +64,13 @@ public class JBoggleTimer extends JLabel {
 		public void actionPerformed(ActionEvent e) {
 			long currTime = System.currentTimeMillis();
 
-			int elapsed = (int) (currTime - startTime);
+			long remaining = endTime - currTime;
 
 			String timeString = "0:00";
-			if (elapsed < totalSeconds * 1000) {
+			if (remaining > 0) {
 				// The time is still going. Generate a time-string for the
-				// elapsed
-				// time.
-				timeString = getTimeString(totalSeconds * 1000 - elapsed);
+				// remaining time.
+				timeString = getTimeString((int) remaining);
 			} else {
 				// The time has fully elapsed. Stop the timer and fire an event.
 				timer.stop();
@@ -113,18 +119,33 @@ public class JBoggleTimer extends JLabel {
 	 **/
 	public void setTimeRemaining(int seconds) {
 		totalSeconds = seconds;
+		hasDeadline = false;
 
 		// Update the UI to show the time remaining. We pass 0 for the "elapsed
 		// time" since the clock hasn't been started yet.
 		setText(REMAINING + getTimeString(0));
 	}
 
+	/**
+	 * Set the time the timer runs out at, in milliseconds since the epoch by
+	 * this machine's clock. The time left counts from when this is called, not
+	 * from when the timer is started.
+	 **/
+	public void setDeadline(long deadline) {
+		endTime = deadline;
+		hasDeadline = true;
+		totalSeconds = (int) Math.max(0, (deadline - System.currentTimeMillis()) / 1000);
+
+		setText(REMAINING + getTimeString(totalSeconds * 1000));
+	}
+
 	/**
 	 * This method starts the timer counting down. There is no "stop timer"
 	 * method because it isn't presently needed in the current functionality.
 	 **/
 	public void startTimer() {
-		startTime = System.currentTimeMillis();
+		if (!hasDeadline)
+			endTime = System.currentTimeMillis() + totalSeconds * 1000L;
 		timer.start();
 	}
 
@@ -0,0 +1,517 @@
+package tamm.org.boggle.gui;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.server.BinaryProtocol;
+import tamm.org.boggle.server.BoardSpec;
+import tamm.org.boggle.server.BoggleListener;
+import tamm.org.boggle.server.BoggleServer;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.PlayerException;
+import tamm.org.boggle.server.RoomException;
+import tamm.org.boggle.server.RoomInfo;
+import tamm.org.boggle.server.RoomManager;
+import tamm.org.boggle.server.RoomSettings;
+import tamm.org.boggle.server.WordPage;
+
+/**
+ * A connection to a {@link tamm.org.boggle.server.NioBoggleServer}, which
+ * speaks the {@link BinaryProtocol} rather than RMI. It implements the whole
+ * {@link BoggleServer} interface, so the client can use either transport.
+ * <p>
+ * Requests are written by the calling thread, and a reader thread takes care
+ * of everything the server sends: replies complete the request they belong
+ * to, and events are passed on to the listener of their game. The blocking
+ * calls of the interface are built on the asynchronous ones.
+ *
+ * @author Urmas
+ *
+ */
+public class NioBoggleConnection implements BoggleServer {
+
+	private static Logger logger = Logger.getLogger(NioBoggleConnection.class);
+
+	private final SocketChannel channel;
+
+	// request ids
+	private final AtomicInteger requests = new AtomicInteger();
+	// the replies not received yet, by request id
+	private final Map<Integer, CompletableFuture<DataInputStream>> pending = new ConcurrentHashMap<Integer, CompletableFuture<DataInputStream>>();
+
+	// the listeners of the games joined over this connection, by ticket
+	private final Map<Long, BoggleListener> listeners = new HashMap<Long, BoggleListener>();
+	// events that arrived before the ticket of their game did
+	private final Map<Long, List<DataInputStream>> early = new HashMap<Long, List<DataInputStream>>();
+
+	// the games played through the blocking calls, by client name
+	private final Map<String, BlockingGame> blockingGames = new ConcurrentHashMap<String, BlockingGame>();
+
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private volatile IOException failure;
+
+	/**
+	 * Connects to the server at the given host and port
+	 *
+	 * @throws IOException
+	 *             if the connection fails
+	 */
+	public NioBoggleConnection(String host, int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.socket().setTcpNoDelay(true);
+
+		Thread reader = new Thread(new Reader(), "boggle-nio-reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Closes the connection
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Returns the number of bytes read from the server so far
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * Returns the number of bytes written to the server so far
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * Reads frames until the connection is closed
+	 */
+	private class Reader implements Runnable {
+		public void run() {
+			try {
+				ByteBuffer header = ByteBuffer.allocate(4);
+				while (true) {
+					header.clear();
+					readFully(header);
+					int length = header.getInt(0);
+					if (length < 1 || length > BinaryProtocol.MAX_FRAME) {
+						throw new IOException("Bad frame length " + length);
+					}
+
+					ByteBuffer frame = ByteBuffer.allocate(length);
+					readFully(frame);
+					dispatch(new DataInputStream(new ByteArrayInputStream(frame.array())));
+				}
+			} catch (IOException e) {
+				failure = e;
+				for (CompletableFuture<DataInputStream> reply : pending.values()) {
+					reply.completeExceptionally(e);
+				}
+				for (BlockingGame game : blockingGames.values()) {
+					game.board.completeExceptionally(e);
+					game.results.completeExceptionally(e);
+				}
+			}
+		}
+
+		private void readFully(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				int n = channel.read(buffer);
+				if (n < 0) {
+					throw new EOFException("Connection closed by server");
+				}
+				bytesRead.addAndGet(n);
+			}
+		}
+	}
+
+	/**
+	 * Passes a frame on to the request or the game it belongs to
+	 */
+	private void dispatch(DataInputStream frame) throws IOException {
+		byte type = frame.readByte();
+
+		if (type == BinaryProtocol.ROUND_STARTED || type == BinaryProtocol.TICK
+				|| type == BinaryProtocol.RESULTS) {
+			long ticket = BinaryProtocol.readVarLong(frame);
+			// delivered under the lock, so the events a game missed before its
+			// ticket came are never overtaken by the ones after it
+			synchronized (listeners) {
+				BoggleListener listener = listeners.get(ticket);
+				if (listener == null) {
+					// the reply with the ticket is still on its way
+					List<DataInputStream> events = early.get(ticket);
+					if (events == null) {
+						events = new ArrayList<DataInputStream>();
+						early.put(ticket, events);
+					}
+					frame.reset();
+					events.add(frame);
+				} else {
+					deliver(listener, ticket, type, frame);
+				}
+			}
+		} else {
+			CompletableFuture<DataInputStream> reply = pending.remove(BinaryProtocol.readVarInt(frame));
+			if (reply != null) {
+				frame.reset();
+				reply.complete(frame);
+			}
+		}
+	}
+
+	/**
+	 * Calls the listener for an event; the frame is positioned after the
+	 * ticket. Called with the listeners locked.
+	 */
+	private void deliver(BoggleListener listener, long ticket, byte type, DataInputStream frame) throws IOException {
+		try {
+			switch (type) {
+			case BinaryProtocol.ROUND_STARTED:
+				BoardSpec spec = BinaryProtocol.readBoardSpec(frame);
+				listener.roundStarted(ticket, spec, BinaryProtocol.readVarInt(frame));
+				break;
+			case BinaryProtocol.TICK:
+				listener.tick(ticket, BinaryProtocol.readVarInt(frame));
+				break;
+			case BinaryProtocol.RESULTS:
+				listener.resultsReady(ticket, BinaryProtocol.readResults(frame));
+				listeners.remove(ticket);
+				break;
+			default:
+				break;
+			}
+		} catch (RemoteException e) {
+			logger.warn("Listener failed", e);
+		}
+	}
+
+	/**
+	 * Registers the listener of a game, and passes it the events that arrived
+	 * before the ticket did
+	 */
+	private void addListener(long ticket, BoggleListener listener) throws IOException {
+		synchronized (listeners) {
+			listeners.put(ticket, listener);
+			List<DataInputStream> events = early.remove(ticket);
+			if (events != null) {
+				for (DataInputStream frame : events) {
+					byte type = frame.readByte();
+					BinaryProtocol.readVarLong(frame);
+					deliver(listener, ticket, type, frame);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends a request and waits for its reply
+	 *
+	 * @param request
+	 *            - the request, whose id was taken from {@link #newRequest}
+	 * @return the reply, positioned after the request id
+	 */
+	private DataInputStream call(int id, BinaryProtocol.FrameBuilder request)
+			throws RemoteException, PlayerException, RoomException {
+		CompletableFuture<DataInputStream> reply = new CompletableFuture<DataInputStream>();
+		pending.put(id, reply);
+
+		try {
+			if (failure != null) {
+				throw failure;
+			}
+
+			ByteBuffer frame = request.toBuffer();
+			synchronized (channel) {
+				while (frame.hasRemaining()) {
+					bytesWritten.addAndGet(channel.write(frame));
+				}
+			}
+
+			DataInputStream in = reply.get();
+			byte type = in.readByte();
+			BinaryProtocol.readVarInt(in);
+
+			if (type == BinaryProtocol.ERROR) {
+				byte kind = in.readByte();
+				String message = BinaryProtocol.readString(in);
+				if (kind == BinaryProtocol.PLAYER_ERROR) {
+					throw new PlayerException(message);
+				} else if (kind == BinaryProtocol.ROOM_ERROR) {
+					throw new RoomException(message);
+				}
+				throw new RemoteException(message);
+			}
+			return in;
+		} catch (IOException e) {
+			pending.remove(id);
+			throw new RemoteException("Connection failed", e);
+		} catch (InterruptedException e) {
+			pending.remove(id);
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RemoteException("Connection failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Starts a request frame of the given type, with a new request id
+	 */
+	private BinaryProtocol.FrameBuilder newRequest(byte type, int id) throws RemoteException {
+		BinaryProtocol.FrameBuilder request = new BinaryProtocol.FrameBuilder(type);
+		try {
+			BinaryProtocol.writeVarInt(request.out, id);
+		} catch (IOException e) {
+			throw new RemoteException("Can't encode request", e);
+		}
+		return request;
+	}
+
+	@Override
+	public long joinGame(String clientName, String roomName, int generatorVersion, BoggleListener listener)
+			throws PlayerException, RoomException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.JOIN, id);
+		try {
+			BinaryProtocol.writeString(request.out, clientName);
+			BinaryProtocol.writeString(request.out, roomName);
+			BinaryProtocol.writeVarInt(request.out, generatorVersion);
+
+			long ticket = BinaryProtocol.readVarLong(call(id, request));
+			addListener(ticket, listener);
+			return ticket;
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		}
+	}
+
+	@Override
+	public void submitWords(long ticket, WordList myWords) throws PlayerException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.SUBMIT, id);
+		try {
+			BinaryProtocol.writeVarLong(request.out, ticket);
+			BinaryProtocol.writeWords(request.out, myWords);
+			call(id, request);
+		} catch (IOException e) {
+			throw new RemoteException("Can't encode request", e);
+		} catch (RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public boolean submitWord(long ticket, String word) throws PlayerException, RemoteException {
+		WordList words = new WordList();
+		words.addWord(word);
+		return submitBatch(ticket, words) == 1;
+	}
+
+	@Override
+	public int submitBatch(long ticket, WordList words) throws PlayerException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.SUBMIT_BATCH, id);
+		try {
+			BinaryProtocol.writeVarLong(request.out, ticket);
+			BinaryProtocol.writeWords(request.out, words);
+			return BinaryProtocol.readVarInt(call(id, request));
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		} catch (RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public RoomInfo createRoom(String roomName, RoomSettings settings) throws RoomException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.CREATE_ROOM, id);
+		try {
+			BinaryProtocol.writeString(request.out, roomName);
+			BinaryProtocol.writeRoomSettings(request.out, settings);
+			return BinaryProtocol.readRoomInfo(call(id, request));
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		} catch (PlayerException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public RoomInfo getRoom(String roomName) throws RoomException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.GET_ROOM, id);
+		try {
+			BinaryProtocol.writeString(request.out, roomName);
+			return BinaryProtocol.readRoomInfo(call(id, request));
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		} catch (PlayerException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public List<RoomInfo> listRooms() throws RemoteException {
+		int id = requests.incrementAndGet();
+		try {
+			DataInputStream in = call(id, newRequest(BinaryProtocol.LIST_ROOMS, id));
+			int count = BinaryProtocol.readVarInt(in);
+			List<RoomInfo> rooms = new ArrayList<RoomInfo>(count);
+			for (int i = 0; i < count; i++) {
+				rooms.add(BinaryProtocol.readRoomInfo(in));
+			}
+			return rooms;
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		} catch (PlayerException | RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public long getServerTime() throws RemoteException {
+		int id = requests.incrementAndGet();
+		try {
+			return BinaryProtocol.readVarLong(call(id, newRequest(BinaryProtocol.GET_TIME, id)));
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		} catch (PlayerException | RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public void heartbeat(long ticket) throws PlayerException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.HEARTBEAT, id);
+		try {
+			BinaryProtocol.writeVarLong(request.out, ticket);
+			call(id, request);
+		} catch (IOException e) {
+			throw new RemoteException("Can't encode request", e);
+		} catch (RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public WordPage getWordPage(long resultsId, String playerName, int page) throws PlayerException, RemoteException {
+		int id = requests.incrementAndGet();
+		BinaryProtocol.FrameBuilder request = newRequest(BinaryProtocol.GET_WORD_PAGE, id);
+		try {
+			BinaryProtocol.writeVarLong(request.out, resultsId);
+			BinaryProtocol.writeString(request.out, playerName);
+			BinaryProtocol.writeVarInt(request.out, page);
+			return BinaryProtocol.readWordPage(call(id, request));
+		} catch (IOException e) {
+			throw new RemoteException("Bad reply", e);
+		} catch (RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	/**
+	 * A game played through the blocking calls; the listener completes the
+	 * futures the calls wait on
+	 */
+	private static class BlockingGame implements BoggleListener {
+		volatile long ticket;
+		final CompletableFuture<BoardSpec> board = new CompletableFuture<BoardSpec>();
+		final CompletableFuture<GameResults> results = new CompletableFuture<GameResults>();
+
+		public void roundStarted(long t, BoardSpec spec, int roundLength) {
+			board.complete(spec);
+		}
+
+		public void tick(long t, int secondsRemaining) {
+		}
+
+		public void resultsReady(long t, GameResults res) {
+			results.complete(res);
+		}
+	}
+
+	@Override
+	public BoardSpec startGame(String clientName, String roomName, int generatorVersion)
+			throws PlayerException, RoomException, RemoteException {
+		BlockingGame game = new BlockingGame();
+		if (blockingGames.putIfAbsent(clientName, game) != null) {
+			throw new PlayerException(clientName + " already used!");
+		}
+
+		try {
+			game.ticket = joinGame(clientName, roomName, generatorVersion, game);
+			return await(game.board);
+		} catch (PlayerException | RoomException | RemoteException e) {
+			blockingGames.remove(clientName, game);
+			throw e;
+		}
+	}
+
+	@Override
+	public BoardSpec startGame(String clientName, int generatorVersion) throws PlayerException, RemoteException {
+		try {
+			return startGame(clientName, RoomManager.DEFAULT_ROOM, generatorVersion);
+		} catch (RoomException e) {
+			throw new RemoteException(e.getMessage());
+		}
+	}
+
+	@Override
+	public BoggleBoard startGame(String clientName) throws PlayerException, RemoteException {
+		return startGame(clientName, BoardGenerator.VERSION).toBoard();
+	}
+
+	@Override
+	public GameResults gameOver(String clientName, WordList myWords) throws PlayerException, RemoteException {
+		BlockingGame game = blockingGames.get(clientName);
+		if (game == null) {
+			throw new PlayerException(clientName + " is unrecognized!");
+		}
+
+		try {
+			submitWords(game.ticket, myWords);
+			return await(game.results);
+		} finally {
+			blockingGames.remove(clientName, game);
+		}
+	}
+
+	private static <T> T await(CompletableFuture<T> future) throws RemoteException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new RemoteException("Connection failed", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package tamm.org.boggle.gui;
+
+import java.rmi.RemoteException;
+
+import tamm.org.boggle.server.BoggleServer;
+
+/**
+ * An estimate of how far the server's clock is off from ours, so a round's
+ * deadline, which the server sets by its own clock, can be turned into our
+ * time.
+ * <p>
+ * It's estimated like NTP does: we note our time, ask the server for its
+ * time, and note our time again. The server read its clock about halfway
+ * through the round trip, so the offset is the server's time less the
+ * midpoint of ours. The round trip bounds the error, so of several samples
+ * the one with the shortest round trip is kept.
+ * 
+ * @author Urmas
+ *
+ */
+public final class ServerClock {
+
+	/** The number of samples taken by default **/
+	public static final int DEFAULT_SAMPLES = 5;
+
+	/** A clock that assumes the server's clock is the same as ours **/
+	public static final ServerClock LOCAL = new ServerClock(0, 0);
+
+	/** The server's clock less ours, in milliseconds **/
+	private final long offset;
+
+	/** The round trip of the sample the offset is from, in milliseconds **/
+	private final long roundTrip;
+
+	/**
+	 * Constructor
+	 * @param offset - the server's clock less ours, in milliseconds
+	 * @param roundTrip - the round trip of the sample, in milliseconds
+	 */
+	public ServerClock(long offset, long roundTrip) {
+		this.offset = offset;
+		this.roundTrip = roundTrip;
+	}
+
+	/**
+	 * Estimates the clock from a single sample
+	 * @param sent - our time when the request was sent
+	 * @param serverTime - the server's time in the reply
+	 * @param received - our time when the reply was received
+	 * @return ServerClock
+	 */
+	public static ServerClock fromSample(long sent, long serverTime, long received) {
+		long roundTrip = Math.max(0, received - sent);
+		return new ServerClock(serverTime - (sent + roundTrip / 2), roundTrip);
+	}
+
+	/**
+	 * Samples the server's clock a number of times, and keeps the sample with
+	 * the shortest round trip
+	 * @param server - the server
+	 * @param samples - the number of samples, at least 1
+	 * @return ServerClock
+	 * @throws RemoteException if the server can't be reached
+	 */
+	public static ServerClock sample(BoggleServer server, int samples) throws RemoteException {
+		ServerClock best = null;
+		for (int i = 0; i < Math.max(1, samples); i++) {
+			// The round trip is timed with the monotonic clock, so it can't be
+			// thrown off by our wall clock being set meanwhile.
+			long sent = System.currentTimeMillis();
+			long start = System.nanoTime();
+			long serverTime = server.getServerTime();
+			long roundTrip = (System.nanoTime() - start) / 1000000;
+
+			ServerClock clock = fromSample(sent, serverTime, sent + roundTrip);
+			if (best == null || clock.roundTrip < best.roundTrip) {
+				best = clock;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Turns a time by the server's clock into ours
+	 * @param serverTime - milliseconds since the epoch by the server's clock
+	 * @return milliseconds since the epoch by our clock
+	 */
+	public long toLocalTime(long serverTime) {
+		return serverTime - offset;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getRoundTrip() {
+		return roundTrip;
+	}
+
+	@Override
+	public String toString() {
+		return "offset " + offset + " ms, round trip " + roundTrip + " ms";
+	}
+}
@@ -7,6 +7,8 @@ import javax.swing.*;
 
 import tamm.org.boggle.board.WordList;
 import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.Standing;
+import tamm.org.boggle.server.WordPage;
 
 
 /**
@@ -23,6 +25,14 @@ public class JClientInfoView extends JPanel {
 /** This is the client-information from the Boggle server. **/
   private ClientInfo info;
 
+  /** The name of the client, also if only its standing is known. **/
+  private String name;
+
+  /** The word lists shown, which pages of words are added to. **/
+  private DefaultListModel<String> originalModel = new DefaultListModel<String>();
+  private DefaultListModel<String> filteredModel = new DefaultListModel<String>();
+  private DefaultListModel<String> rejectedModel = new DefaultListModel<String>();
+
 
   /**
    * Construct a new client-info view that displays the specified information.
@@ -34,6 +44,43 @@ public class JClientInfoView extends JPanel {
       throw new NullPointerException();
 
     this.info = info;
+    layoutView(info.getName(), info.getScore());
+
+    addWords(originalModel, getArrayFromWordList(info.getWords()));
+    addWords(filteredModel, getArrayFromWordList(info.getFilteredWords()));
+    addWords(rejectedModel, getArrayFromWordList(info.getRejectedWords()));
+  }
+
+
+  /**
+   * Construct a new client-info view of a client whose words aren't known
+   * yet.  Its words are shown as they are added with {@link #addPage}.
+   **/
+  public JClientInfoView(Standing standing) {
+    if (standing == null)
+      throw new NullPointerException();
+
+    layoutView(standing.getName(), standing.getScore());
+  }
+
+
+  /** Adds the words of a page to the view, after those shown already. **/
+  public void addPage(WordPage page) {
+    addWords(originalModel, page.getWords().toArray(new String[0]));
+    addWords(filteredModel, page.getScoredWords().toArray(new String[0]));
+    addWords(rejectedModel, page.getRejectedWords().toArray(new String[0]));
+  }
+
+
+  private static void addWords(DefaultListModel<String> model, String[] words) {
+    for (String word : words)
+      model.addElement(word);
+  }
+
+
+  /** Lays out the labels and the (empty) word lists of the view. **/
+  private void layoutView(String name, int score) {
+    this.name = name;
 
     // Use a grid-bag layout to make the view resizeable.
     GridBagLayout gbl = new GridBagLayout();
@@ -52,48 +99,61 @@ public class JClientInfoView extends JPanel {
 
     gbc.weighty = 0.0;
 
-    lbl = new JLabel("User:  " + info.getName());
+    lbl = new JLabel("User:  " + name);
     gbl.setConstraints(lbl, gbc);
     add(lbl);
 
     gbc.gridwidth = GridBagConstraints.REMAINDER;
 
-    lbl = new JLabel("Score:  " + info.getScore());
+    lbl = new JLabel("Score:  " + score);
     gbl.setConstraints(lbl, gbc);
     add(lbl);
 
     // Word list labels:
 
-    gbc.gridwidth = GridBagConstraints.RELATIVE;
+    gbc.gridwidth = 1;
 
     lbl = new JLabel("Words submitted:");
     gbl.setConstraints(lbl, gbc);
     add(lbl);
 
-    gbc.gridwidth = GridBagConstraints.REMAINDER;
+    gbc.gridwidth = GridBagConstraints.RELATIVE;
 
     lbl = new JLabel("Words scored:");
     gbl.setConstraints(lbl, gbc);
     add(lbl);
 
+    gbc.gridwidth = GridBagConstraints.REMAINDER;
+
+    lbl = new JLabel("Not on the board:");
+    gbl.setConstraints(lbl, gbc);
+    add(lbl);
+
     // Word lists themselves:
 
     gbc.weighty = 1.0;
 
-    gbc.gridwidth = GridBagConstraints.RELATIVE;
-    JList<String> originalWords = new JList<String>(getArrayFromWordList(info.getWords()));
+    gbc.gridwidth = 1;
+    JList<String> originalWords = new JList<String>(originalModel);
     gbl.setConstraints(originalWords, gbc);
     add(new JScrollPane(originalWords));
 
-    gbc.gridwidth = GridBagConstraints.REMAINDER;
-    JList<String> filteredWords =
-      new JList<String>(getArrayFromWordList(info.getFilteredWords()));
+    gbc.gridwidth = GridBagConstraints.RELATIVE;
+    JList<String> filteredWords = new JList<String>(filteredModel);
     gbl.setConstraints(filteredWords, gbc);
     add(new JScrollPane(filteredWords));
+
+    gbc.gridwidth = GridBagConstraints.REMAINDER;
+    JList<String> rejectedWords = new JList<String>(rejectedModel);
+    gbl.setConstraints(rejectedWords, gbc);
+    add(new JScrollPane(rejectedWords));
   }
 
 
-  /** Returns the {@link ClientInfo} object that this view is displaying. **/
+  /**
+   * Returns the {@link ClientInfo} object that this view is displaying, or
+   * <tt>null</tt> if the view was built from the client's standing.
+   **/
   public ClientInfo getClientInfo() {
     return info;
   }
@@ -101,7 +161,7 @@ public class JClientInfoView extends JPanel {
 
   /** Returns the name of the client that the client-info view is for. **/
   public String getClientName() {
-    return info.getName();
+    return name;
   }
 
 
@@ -109,6 +169,9 @@ public class JClientInfoView extends JPanel {
   private static String[] getArrayFromWordList(WordList words) {
     ArrayList<String> wordArray = new ArrayList<String>();
 
+    if (words == null)
+      return new String[0];
+
     Iterator<String> iter = words.iterator();
     while (iter.hasNext())
       wordArray.add(iter.next());
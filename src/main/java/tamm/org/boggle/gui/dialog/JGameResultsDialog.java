@@ -4,14 +4,23 @@ import java.awt.*;
 import java.awt.event.*;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
+import tamm.org.boggle.server.BoggleServer;
 import tamm.org.boggle.server.ClientInfo;
 import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.Standing;
+import tamm.org.boggle.server.WordPage;
 
 /**
  * This class provides a simple dialog for displaying the game results from the
  * Boggle server. It uses the {@link JClientInfoView} class to display each
  * client's results from the round.
+ * <p>
+ * Personal results only hold the player's own words. For those, the dialog
+ * shows the standings of all players, and fetches another player's words from
+ * the server a page at a time, once that player's tab is opened.
  **/
 public class JGameResultsDialog extends JDialog {
 
@@ -27,6 +36,14 @@ public class JGameResultsDialog extends JDialog {
 	 * using the <tt>modal</tt> argument.
 	 **/
 	public JGameResultsDialog(GameResults results, JFrame parent, boolean modal) {
+		this(results, null, parent, modal);
+	}
+
+	/**
+	 * Same as {@link #JGameResultsDialog(GameResults, JFrame, boolean)}, but
+	 * fetches the words left out of personal results from the given server.
+	 **/
+	public JGameResultsDialog(GameResults results, BoggleServer server, JFrame parent, boolean modal) {
 		super(parent, "Boggle Game Results", modal);
 
 		Container content = getContentPane();
@@ -41,7 +58,12 @@ public class JGameResultsDialog extends JDialog {
 		// this
 		// round.
 
-		JTabbedPane tabResults = new JTabbedPane();
+		final JTabbedPane tabResults = new JTabbedPane();
+
+		if (!results.isComplete()) {
+			tabResults.addTab("Standings", new JScrollPane(new JList<Standing>(
+					results.getStandings().toArray(new Standing[0]))));
+		}
 
 		for (String clientName : results.getClientNames()) {
 			ClientInfo clientInfo = results.getClientResult(clientName);
@@ -49,6 +71,21 @@ public class JGameResultsDialog extends JDialog {
 			tabResults.addTab(clientName, new JClientInfoView(clientInfo));
 		}
 
+		if (!results.isComplete() && server != null) {
+			for (Standing standing : results.getStandings()) {
+				if (results.getClientResult(standing.getName()) == null)
+					tabResults.addTab(standing.getName(), new PagedView(server, results.getId(), standing));
+			}
+
+			tabResults.addChangeListener(new ChangeListener() {
+				public void stateChanged(ChangeEvent e) {
+					Component tab = tabResults.getSelectedComponent();
+					if (tab instanceof PagedView)
+						((PagedView) tab).open();
+				}
+			});
+		}
+
 		content.add(tabResults, BorderLayout.CENTER);
 
 		// Finally, a button to close everything up.
@@ -68,4 +105,82 @@ public class JGameResultsDialog extends JDialog {
 		// Center the dialog with respect to its parent, so we look nice...
 		setLocationRelativeTo(parent);
 	}
+
+	/**
+	 * The tab of a player left out of personal results. Its words are fetched
+	 * once the tab is opened, and then a page at a time, off the event
+	 * dispatch thread.
+	 **/
+	private static class PagedView extends JPanel {
+
+		private static final long serialVersionUID = 2370391513924614852L;
+
+		private final BoggleServer server;
+		private final long resultsId;
+		private final String name;
+
+		private final JClientInfoView view;
+		private final JButton more = new JButton("More words");
+
+		/** The next page to fetch. **/
+		private int nextPage;
+
+		/** True while a page is being fetched, or once there are no more. **/
+		private boolean busy;
+
+		PagedView(BoggleServer server, long resultsId, Standing standing) {
+			super(new BorderLayout());
+			this.server = server;
+			this.resultsId = resultsId;
+			this.name = standing.getName();
+
+			view = new JClientInfoView(standing);
+			add(view, BorderLayout.CENTER);
+
+			more.setEnabled(false);
+			more.addActionListener(new ActionListener() {
+				public void actionPerformed(ActionEvent e) {
+					fetch();
+				}
+			});
+			add(more, BorderLayout.SOUTH);
+		}
+
+		/** Fetches the first page, unless it's already fetched. **/
+		void open() {
+			if (nextPage == 0)
+				fetch();
+		}
+
+		private void fetch() {
+			if (busy)
+				return;
+			busy = true;
+			more.setEnabled(false);
+
+			final int page = nextPage;
+			new SwingWorker<WordPage, Void>() {
+				@Override
+				protected WordPage doInBackground() throws Exception {
+					return server.getWordPage(resultsId, name, page);
+				}
+
+				@Override
+				protected void done() {
+					try {
+						WordPage words = get();
+						view.addPage(words);
+						nextPage = page + 1;
+						busy = !words.hasMore();
+						more.setEnabled(words.hasMore());
+					} catch (Exception e) {
+						busy = false;
+						more.setEnabled(true);
+						JOptionPane.showMessageDialog(PagedView.this, "Can't fetch the words of " + name + ".",
+								"Server error!", JOptionPane.ERROR_MESSAGE);
+					}
+				}
+			}.execute();
+		}
+	}
 }
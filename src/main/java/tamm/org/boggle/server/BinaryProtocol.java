@@ -0,0 +1,503 @@
+package tamm.org.boggle.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.WordList;
+
+/**
+ * The compact binary protocol spoken by {@link NioBoggleServer} and its
+ * clients, as an alternative to RMI. It carries the same operations as the
+ * asynchronous calls of {@link BoggleServer}.
+ * <p>
+ * Every message is a frame: a 4-byte big-endian length, followed by that
+ * many bytes holding a 1-byte message type and the message body. Requests
+ * and their replies start with a request id chosen by the client; events
+ * start with the ticket of the game they belong to. Ids, tickets, counts and
+ * other small numbers are written as variable-length integers, and strings
+ * as their UTF-8 length followed by the bytes.
+ * <p>
+ * Boards are sent as the seed when the client's generator version matches,
+ * and as one letter code per cell otherwise. Word lists are sorted and front
+ * coded, i.e. every word only sends what follows the prefix it shares with
+ * the one before it. Game results send one table of all the words submitted
+ * in the round; each player's words are indexes into it, with flags saying
+ * whether the word scored or was rejected. Personal results only hold the
+ * words of one player, and the standings of the others.
+ **/
+public final class BinaryProtocol {
+
+	/** The largest frame either side accepts, in bytes. **/
+	public static final int MAX_FRAME = 1 << 20;
+
+	/** Requests, sent by clients. **/
+	public static final byte JOIN = 1;
+	public static final byte SUBMIT = 2;
+	public static final byte CREATE_ROOM = 3;
+	public static final byte GET_ROOM = 4;
+	public static final byte LIST_ROOMS = 5;
+	public static final byte SUBMIT_BATCH = 6;
+	public static final byte GET_WORD_PAGE = 7;
+	public static final byte HEARTBEAT = 8;
+	public static final byte GET_TIME = 9;
+
+	/** Replies to requests. **/
+	public static final byte OK = 16;
+	public static final byte TICKET = 17;
+	public static final byte ROOM = 18;
+	public static final byte ROOMS = 19;
+	public static final byte ERROR = 20;
+	public static final byte COUNT = 21;
+	public static final byte WORD_PAGE = 22;
+	public static final byte TIME = 23;
+
+	/** Events, sent by the server as a game progresses. **/
+	public static final byte ROUND_STARTED = 32;
+	public static final byte TICK = 33;
+	public static final byte RESULTS = 34;
+
+	/** The kinds of errors, i.e. which exception the client should throw. **/
+	public static final byte PLAYER_ERROR = 1;
+	public static final byte ROOM_ERROR = 2;
+	public static final byte SERVER_ERROR = 3;
+
+	/** Flags of the words in a result. **/
+	private static final int SCORED = 1;
+	private static final int REJECTED = 2;
+
+	private BinaryProtocol() {
+	}
+
+	/**
+	 * Builds a single frame. The body is written to {@link #out}, and
+	 * {@link #toBuffer} returns the whole frame, ready to be written to a
+	 * channel.
+	 **/
+	public static final class FrameBuilder {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+		/** The body of the frame. **/
+		public final DataOutputStream out = new DataOutputStream(bytes);
+
+		public FrameBuilder(byte type) {
+			try {
+				out.writeInt(0);
+				out.writeByte(type);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/** Returns the frame, with its length filled in. **/
+		public ByteBuffer toBuffer() {
+			ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+			frame.putInt(0, frame.remaining() - 4);
+			return frame;
+		}
+	}
+
+	/**
+	 * Returns the length of the frame at the buffer's position if the whole
+	 * frame is in the buffer, or -1 if more bytes are needed.
+	 *
+	 * @throws IOException if the frame is longer than {@link #MAX_FRAME}
+	 **/
+	public static int completeFrame(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 4)
+			return -1;
+
+		int length = buffer.getInt(buffer.position());
+		if (length < 1 || length > MAX_FRAME)
+			throw new IOException("Bad frame length " + length);
+
+		return buffer.remaining() - 4 >= length ? length : -1;
+	}
+
+	public static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	public static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	public static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	public static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	public static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(DataInput in) throws IOException {
+		int length = readVarInt(in);
+		if (length < 0 || length > MAX_FRAME)
+			throw new IOException("Bad string length " + length);
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static void writeWords(DataOutput out, WordList words) throws IOException {
+		writeSorted(out, sorted(words.getWordList()));
+	}
+
+	public static WordList readWords(DataInput in) throws IOException {
+		WordList words = new WordList();
+		for (String word : readSorted(in))
+			words.addWord(word);
+		return words;
+	}
+
+	private static List<String> sorted(Collection<String> words) {
+		List<String> list = new ArrayList<String>(words);
+		Collections.sort(list);
+		return list;
+	}
+
+	/**
+	 * Writes a sorted list of words, front coded: every word is the length of
+	 * the prefix it shares with the one before, and the rest of the word.
+	 **/
+	private static void writeSorted(DataOutput out, List<String> words) throws IOException {
+		writeVarInt(out, words.size());
+
+		String previous = "";
+		for (String word : words) {
+			int shared = 0;
+			int max = Math.min(previous.length(), word.length());
+			while (shared < max && previous.charAt(shared) == word.charAt(shared))
+				shared++;
+
+			writeVarInt(out, shared);
+			writeString(out, word.substring(shared));
+			previous = word;
+		}
+	}
+
+	private static List<String> readSorted(DataInput in) throws IOException {
+		int count = readVarInt(in);
+		List<String> words = new ArrayList<String>(Math.min(count, 1024));
+
+		String previous = "";
+		for (int i = 0; i < count; i++) {
+			int shared = readVarInt(in);
+			if (shared > previous.length())
+				throw new IOException("Bad shared prefix " + shared);
+
+			previous = previous.substring(0, shared) + readString(in);
+			words.add(previous);
+		}
+		return words;
+	}
+
+	/**
+	 * Writes a board spec: its generator version, size and seed, the letter
+	 * code of every cell unless the spec is seed-only, the word filter if it
+	 * has one, and the round's deadline, or 0.
+	 **/
+	public static void writeBoardSpec(DataOutput out, BoardSpec spec) throws IOException {
+		writeVarInt(out, spec.getGeneratorVersion());
+		out.writeByte(spec.getSize());
+		out.writeBoolean(spec.isSeedOnly());
+
+		if (spec.isSeedOnly()) {
+			out.writeLong(spec.getSeed());
+		} else {
+			BoggleBoard board = spec.toBoard();
+			for (int cell = 0; cell < board.getCellCount(); cell++)
+				out.writeByte(board.getCode(cell));
+		}
+
+		BloomFilter filter = spec.getWordFilter();
+		out.writeBoolean(filter != null);
+		if (filter != null) {
+			writeVarInt(out, filter.getBitCount());
+			out.writeByte(filter.getHashCount());
+			out.write(filter.toByteArray());
+		}
+		writeVarLong(out, spec.getDeadline());
+	}
+
+	public static BoardSpec readBoardSpec(DataInput in) throws IOException {
+		int generatorVersion = readVarInt(in);
+		int size = in.readUnsignedByte();
+
+		BoardSpec spec;
+		if (in.readBoolean()) {
+			spec = BoardSpec.seedOnly(generatorVersion, size, in.readLong());
+		} else {
+			List<String> letters = BoggleBoard.getLetterValues();
+			String[][] values = new String[size][size];
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					int code = in.readUnsignedByte();
+					if (code >= letters.size())
+						throw new IOException("Bad letter code " + code);
+					values[i][j] = letters.get(code);
+				}
+			}
+			spec = BoardSpec.fullBoard(new BoggleBoard(values));
+		}
+
+		if (in.readBoolean()) {
+			int bitCount = readVarInt(in);
+			int hashCount = in.readUnsignedByte();
+			if (bitCount < 1 || bitCount > MAX_FRAME)
+				throw new IOException("Bad filter size " + bitCount);
+
+			byte[] bits = new byte[(bitCount + 7) / 8];
+			in.readFully(bits);
+			try {
+				spec = spec.withWordFilter(new BloomFilter(bits, bitCount, hashCount));
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+
+		long deadline = readVarLong(in);
+		if (deadline != 0)
+			spec = spec.withDeadline(deadline);
+		return spec;
+	}
+
+	public static void writeRoomInfo(DataOutput out, RoomInfo info) throws IOException {
+		RoomSettings settings = info.getSettings();
+		writeString(out, info.getName());
+		writeRoomSettings(out, settings);
+		writeVarInt(out, info.getWaitingCount());
+		writeVarLong(out, info.getRoundsStarted());
+	}
+
+	public static RoomInfo readRoomInfo(DataInput in) throws IOException {
+		String name = readString(in);
+		RoomSettings settings = readRoomSettings(in);
+		int waiting = readVarInt(in);
+		long rounds = readVarLong(in);
+		return new RoomInfo(name, settings, waiting, rounds);
+	}
+
+	public static void writeRoomSettings(DataOutput out, RoomSettings settings) throws IOException {
+		writeVarInt(out, settings.getMinPlayers());
+		writeVarLong(out, settings.getStartTimeout());
+		out.writeByte(settings.getBoardSize());
+		writeVarInt(out, settings.getRoundLength());
+		out.writeBoolean(settings.isPersonalResults());
+	}
+
+	/**
+	 * @throws IOException if the settings are out of range
+	 **/
+	public static RoomSettings readRoomSettings(DataInput in) throws IOException {
+		int minPlayers = readVarInt(in);
+		long startTimeout = readVarLong(in);
+		int boardSize = in.readUnsignedByte();
+		int roundLength = readVarInt(in);
+		boolean personalResults = in.readBoolean();
+
+		try {
+			return new RoomSettings(minPlayers, startTimeout, boardSize, roundLength, personalResults);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the results of a round: their id, the table of all words
+	 * submitted in the round, for every player the name, the score, and the
+	 * submitted words, each as its index in the table with flags saying
+	 * whether it scored or was rejected, and last the name, score and word
+	 * count of the players left out of personal results. Frozen results are
+	 * written as the bytes they were encoded to.
+	 **/
+	public static void writeResults(DataOutput out, GameResults results) throws IOException {
+		byte[] encoded = results.getEncoded();
+		if (encoded != null) {
+			out.write(encoded);
+			return;
+		}
+
+		writeVarLong(out, results.getId());
+		Collection<ClientInfo> infos = results.getClientResults().values();
+
+		Set<String> all = new HashSet<String>();
+		for (ClientInfo info : infos) {
+			if (info.getWords() != null)
+				all.addAll(info.getWords().getWordList());
+		}
+
+		List<String> table = sorted(all);
+		Map<String, Integer> index = new HashMap<String, Integer>(table.size() * 2);
+		for (int i = 0; i < table.size(); i++)
+			index.put(table.get(i), i);
+		writeSorted(out, table);
+
+		writeVarInt(out, infos.size());
+		for (ClientInfo info : infos) {
+			writeString(out, info.getName());
+			writeVarInt(out, info.getScore());
+
+			WordList words = info.getWords();
+			WordList scored = info.getFilteredWords();
+			WordList rejected = info.getRejectedWords();
+
+			writeVarInt(out, words == null ? 0 : words.size());
+			if (words == null)
+				continue;
+
+			for (String word : words.getWordList()) {
+				int flags = 0;
+				if (scored != null && scored.containsWord(word))
+					flags |= SCORED;
+				if (rejected != null && rejected.containsWord(word))
+					flags |= REJECTED;
+
+				writeVarInt(out, index.get(word) << 2 | flags);
+			}
+		}
+
+		List<Standing> others = results.getOthers();
+		writeVarInt(out, others.size());
+		for (Standing standing : others) {
+			writeString(out, standing.getName());
+			writeVarInt(out, standing.getScore());
+			writeVarInt(out, standing.getWordCount());
+		}
+	}
+
+	public static GameResults readResults(DataInput in) throws IOException {
+		long id = readVarLong(in);
+		List<String> table = readSorted(in);
+
+		int count = readVarInt(in);
+		List<ClientInfo> infos = new ArrayList<ClientInfo>(Math.min(count, 1024));
+
+		for (int i = 0; i < count; i++) {
+			ClientInfo info = new ClientInfo(readString(in));
+			int score = readVarInt(in);
+
+			WordList words = new WordList();
+			WordList scored = new WordList();
+			WordList rejected = new WordList();
+
+			int wordCount = readVarInt(in);
+			for (int j = 0; j < wordCount; j++) {
+				int entry = readVarInt(in);
+				int flags = entry & 3;
+				int at = entry >>> 2;
+				if (at >= table.size())
+					throw new IOException("Bad word index " + at);
+				String word = table.get(at);
+
+				words.addWord(word);
+				if ((flags & SCORED) != 0)
+					scored.addWord(word);
+				if ((flags & REJECTED) != 0)
+					rejected.addWord(word);
+			}
+
+			info.setPlaying();
+			info.setWords(words);
+			info.setFilteredWords(scored);
+			info.setRejectedWords(rejected);
+			info.setScore(score);
+			infos.add(info);
+		}
+
+		int otherCount = readVarInt(in);
+		List<Standing> others = new ArrayList<Standing>(Math.min(otherCount, 1024));
+		for (int i = 0; i < otherCount; i++)
+			others.add(new Standing(readString(in), readVarInt(in), readVarInt(in)));
+
+		GameResults results = new GameResults();
+		for (ClientInfo info : infos)
+			results.addClientResult(info);
+		results.setDecoded(id, others);
+		return results;
+	}
+
+	/**
+	 * Writes a page of a player's words: the name, the page number and count,
+	 * the words, and the flags of each word as in results.
+	 **/
+	public static void writeWordPage(DataOutput out, WordPage page) throws IOException {
+		writeString(out, page.getPlayerName());
+		writeVarInt(out, page.getPage());
+		writeVarInt(out, page.getPageCount());
+		writeSorted(out, page.getWords());
+
+		Set<String> scored = new HashSet<String>(page.getScoredWords());
+		Set<String> rejected = new HashSet<String>(page.getRejectedWords());
+		for (String word : page.getWords()) {
+			int flags = 0;
+			if (scored.contains(word))
+				flags |= SCORED;
+			if (rejected.contains(word))
+				flags |= REJECTED;
+			out.writeByte(flags);
+		}
+	}
+
+	public static WordPage readWordPage(DataInput in) throws IOException {
+		String name = readString(in);
+		int page = readVarInt(in);
+		int pageCount = readVarInt(in);
+		List<String> words = readSorted(in);
+
+		List<String> scored = new ArrayList<String>();
+		List<String> rejected = new ArrayList<String>();
+		for (String word : words) {
+			int flags = in.readUnsignedByte();
+			if ((flags & SCORED) != 0)
+				scored.add(word);
+			if ((flags & REJECTED) != 0)
+				rejected.add(word);
+		}
+		return new WordPage(name, page, pageCount, words, scored, rejected);
+	}
+}
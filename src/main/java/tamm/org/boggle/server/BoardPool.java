@@ -0,0 +1,228 @@
+package tamm.org.boggle.server;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.BoggleSolver;
+
+/**
+ * This class keeps a bounded queue of boards that are ready to be played. A
+ * background thread keeps generating candidate boards, solves them, and only
+ * queues the ones that meet the {@link BoardQuality} targets, so starting a
+ * round just takes the next board off the queue.
+ * <p>
+ * Taking a board never waits for one that meets the targets: if the queue is
+ * empty, the round gets the best board the producer turned down since, or a
+ * single fresh board, and is counted as starved.
+ * <p>
+ * The pool counts the boards it generates and rejects, which together with
+ * the queue depth shows whether the generator keeps up with the rounds.
+ **/
+public class BoardPool {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(BoardPool.class);
+
+	/** The number of candidate boards the producer generates at once. **/
+	private static final int BATCH_SIZE = 64;
+
+	private final int boardSize;
+	private final BoardQuality quality;
+	private final BlockingQueue<SolvedBoard> ready;
+
+	/**
+	 * The board with the most words the producer turned down since a take
+	 * last found the queue empty, or null.
+	 **/
+	private final AtomicReference<SolvedBoard> bestRejected = new AtomicReference<SolvedBoard>();
+
+	private final AtomicLong generated = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong taken = new AtomicLong();
+	private final AtomicLong takenEmpty = new AtomicLong();
+
+	/** The time the producer was started, in milliseconds. **/
+	private volatile long startTime;
+
+	private Thread producer;
+
+	/**
+	 * Constructs a new pool of boards of the given size. The pool stays empty
+	 * until {@link #start} is called.
+	 **/
+	public BoardPool(int boardSize, int capacity, BoardQuality quality) {
+		if (quality == null)
+			throw new NullPointerException();
+
+		this.boardSize = boardSize;
+		this.quality = quality;
+		this.ready = new ArrayBlockingQueue<SolvedBoard>(capacity);
+	}
+
+	/**
+	 * Starts the background thread that fills the queue.
+	 **/
+	public synchronized void start() {
+		if (producer != null)
+			throw new IllegalStateException("Pool already started");
+
+		startTime = System.currentTimeMillis();
+		producer = new Thread(new Producer(), "board-pool-" + boardSize);
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	/**
+	 * Stops the background thread. Boards already in the queue can still be
+	 * taken.
+	 **/
+	public synchronized void stop() {
+		if (producer != null) {
+			producer.interrupt();
+			producer = null;
+		}
+	}
+
+	/**
+	 * Returns the next ready board. If the producer hasn't kept up and the
+	 * queue is empty, the best board it turned down is returned instead, or
+	 * if there is none, a single board generated on the calling thread.
+	 **/
+	public SolvedBoard take() {
+		taken.incrementAndGet();
+
+		SolvedBoard board = ready.poll();
+		if (board != null)
+			return board;
+
+		takenEmpty.incrementAndGet();
+
+		board = bestRejected.getAndSet(null);
+		if (board != null) {
+			logger.warn("Board pool is empty, using a board below the targets.");
+			return board;
+		}
+
+		logger.warn("Board pool is empty, generating a board inline.");
+		return solve(new BoggleBoard(boardSize));
+	}
+
+	/**
+	 * Keeps the candidate for {@link #take} if it has more words than the
+	 * best board turned down so far.
+	 **/
+	private void keepIfBest(SolvedBoard candidate) {
+		SolvedBoard best;
+		do {
+			best = bestRejected.get();
+			if (best != null && best.getWordCount() >= candidate.getWordCount())
+				return;
+		} while (!bestRejected.compareAndSet(best, candidate));
+	}
+
+	/**
+	 * Generates and solves a single candidate board, counting it as generated.
+	 **/
+	private SolvedBoard solve(BoggleBoard board) {
+		generated.incrementAndGet();
+		BoggleSolver solver = new BoggleSolver(DictionaryService.getInstance().getDictionary().getLexicon());
+		return new SolvedBoard(board, solver.solve(board));
+	}
+
+	/**
+	 * The background task that generates boards until it is interrupted.
+	 * Candidates are generated in batches into a single buffer, and only the
+	 * ones that pass the letter check are turned into boards and solved.
+	 **/
+	private class Producer implements Runnable {
+		public void run() {
+			logger.info("Generating " + boardSize + "x" + boardSize + " boards with " + quality);
+
+			int cells = boardSize * boardSize;
+			SplittableRandom seeds = new SplittableRandom();
+			long[] batch = new long[BATCH_SIZE];
+			byte[] buffer = new byte[BATCH_SIZE * cells];
+
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					for (int i = 0; i < batch.length; i++)
+						batch[i] = seeds.nextLong();
+					BoardGenerator.CLASSIC.fillBatch(boardSize, batch, buffer);
+
+					for (int i = 0; i < batch.length; i++) {
+						if (!quality.acceptsLetters(buffer, i * cells, cells)) {
+							generated.incrementAndGet();
+							rejected.incrementAndGet();
+							continue;
+						}
+
+						SolvedBoard candidate = solve(new BoggleBoard(boardSize, batch[i]));
+						if (quality.accepts(candidate))
+							ready.put(candidate);
+						else {
+							rejected.incrementAndGet();
+							keepIfBest(candidate);
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				// Stopped by stop().
+			}
+		}
+	}
+
+	/** Returns the size of the boards in this pool. **/
+	public int getBoardSize() {
+		return boardSize;
+	}
+
+	/** Returns the number of boards ready to be taken. **/
+	public int getQueueDepth() {
+		return ready.size();
+	}
+
+	/** Returns the number of candidate boards generated so far. **/
+	public long getGenerated() {
+		return generated.get();
+	}
+
+	/** Returns the number of candidate boards that missed the targets. **/
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/** Returns the share of candidate boards that missed the targets. **/
+	public double getRejectionRate() {
+		long total = generated.get();
+		return total == 0 ? 0 : (double) rejected.get() / total;
+	}
+
+	/** Returns the number of boards taken, and how many found the queue empty. **/
+	public long getTaken() {
+		return taken.get();
+	}
+
+	public long getTakenWhileEmpty() {
+		return takenEmpty.get();
+	}
+
+	/** Returns the number of candidate boards generated per second. **/
+	public double getThroughput() {
+		long elapsed = System.currentTimeMillis() - startTime;
+		return startTime == 0 || elapsed <= 0 ? 0 : generated.get() * 1000.0 / elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BoardPool[%dx%d depth=%d generated=%d rejected=%.1f%% throughput=%.0f/s empty takes=%d]",
+				boardSize, boardSize, getQueueDepth(), getGenerated(), getRejectionRate() * 100,
+				getThroughput(), getTakenWhileEmpty());
+	}
+}
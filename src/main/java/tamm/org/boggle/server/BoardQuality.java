@@ -0,0 +1,111 @@
+package tamm.org.boggle.server;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.Lexicon;
+
+/**
+ * The targets a generated board has to meet before it is used for a round.
+ * Boards with too few words are no fun to play, and neither are boards full
+ * of hard letters.
+ **/
+public class BoardQuality {
+
+	/** The targets used by the server unless it's told otherwise. **/
+	public static final BoardQuality DEFAULT = new BoardQuality(30, 30, 0.125);
+
+	private static final int QU = Lexicon.letterCode('q');
+	private static final int X = Lexicon.letterCode('x');
+	private static final int Z = Lexicon.letterCode('z');
+
+	/** The minimum number of words on the board. **/
+	private final int minWords;
+
+	/** The minimum sum of the scores of all words on the board. **/
+	private final int minScore;
+
+	/** The maximum share of cells holding one of the letters Qu, X and Z. **/
+	private final double maxRareShare;
+
+	/**
+	 * Constructs a new set of targets.
+	 *
+	 * @throws IllegalArgumentException if maxRareShare is not between 0 and 1
+	 **/
+	public BoardQuality(int minWords, int minScore, double maxRareShare) {
+		if (maxRareShare < 0 || maxRareShare > 1)
+			throw new IllegalArgumentException("maxRareShare must be between 0 and 1");
+
+		this.minWords = minWords;
+		this.minScore = minScore;
+		this.maxRareShare = maxRareShare;
+	}
+
+	/**
+	 * Returns these targets, which are meant for boards of the default size,
+	 * adjusted for boards of another size. The word and score targets grow
+	 * and shrink with the number of cells.
+	 **/
+	public BoardQuality scaledTo(int boardSize) {
+		if (boardSize == BoggleBoard.DEFAULT_SIZE)
+			return this;
+
+		double factor = (double) (boardSize * boardSize) / (BoggleBoard.DEFAULT_SIZE * BoggleBoard.DEFAULT_SIZE);
+		return new BoardQuality((int) (minWords * factor), (int) (minScore * factor), maxRareShare);
+	}
+
+	/**
+	 * Returns true if the board has few enough hard letters. This is cheap,
+	 * so it is checked before the board is solved.
+	 **/
+	public boolean acceptsLetters(BoggleBoard board) {
+		int rare = 0;
+		for (int cell = 0; cell < board.getCellCount(); cell++) {
+			if (isRare(board.getCode(cell)))
+				rare++;
+		}
+
+		return rare <= maxRareShare * board.getCellCount();
+	}
+
+	/**
+	 * Same as {@link #acceptsLetters(BoggleBoard)}, for a board held as
+	 * <tt>cells</tt> letter codes in a buffer, starting at <tt>offset</tt>.
+	 **/
+	public boolean acceptsLetters(byte[] buffer, int offset, int cells) {
+		int rare = 0;
+		for (int i = offset; i < offset + cells; i++) {
+			if (isRare(buffer[i]))
+				rare++;
+		}
+
+		return rare <= maxRareShare * cells;
+	}
+
+	private static boolean isRare(int code) {
+		return code == QU || code == X || code == Z;
+	}
+
+	/** Returns true if the solved board meets all targets. **/
+	public boolean accepts(SolvedBoard solved) {
+		return solved.getWordCount() >= minWords
+				&& solved.getTotalScore() >= minScore
+				&& acceptsLetters(solved.getBoard());
+	}
+
+	public int getMinWords() {
+		return minWords;
+	}
+
+	public int getMinScore() {
+		return minScore;
+	}
+
+	public double getMaxRareShare() {
+		return maxRareShare;
+	}
+
+	@Override
+	public String toString() {
+		return "minWords=" + minWords + ", minScore=" + minScore + ", maxRareShare=" + maxRareShare;
+	}
+}
@@ -0,0 +1,147 @@
+package tamm.org.boggle.server;
+
+import java.io.Serializable;
+
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoggleBoard;
+
+/**
+ * This class describes the Boggle board of a round, as sent to a client when
+ * the round starts. If the board was generated from a seed by a
+ * {@link BoardGenerator} of the same version as the client's, only the
+ * generator version, seed and size are sent, and the client rebuilds the
+ * board itself. Otherwise the whole board is included.
+ * <p>
+ * A spec may also carry a {@link BloomFilter} of all words on the board, so
+ * the client can tell right away that a word isn't one of them, and the
+ * deadline of the round by the server's clock, so all clients end the round
+ * at the same time however late they got the board.
+ **/
+public class BoardSpec implements Serializable {
+
+	private static final long serialVersionUID = 2260147311263519032L;
+
+	private final int generatorVersion;
+	private final long seed;
+	private final int size;
+
+	/** The board itself, or null if the board is to be rebuilt from the seed. **/
+	private final BoggleBoard board;
+
+	/** The words on the board, or null if they aren't sent. **/
+	private final BloomFilter wordFilter;
+
+	/**
+	 * When the round ends, in milliseconds since the epoch by the server's
+	 * clock, or 0 if it isn't sent.
+	 **/
+	private final long deadline;
+
+	private BoardSpec(int generatorVersion, long seed, int size, BoggleBoard board, BloomFilter wordFilter,
+			long deadline) {
+		this.generatorVersion = generatorVersion;
+		this.seed = seed;
+		this.size = size;
+		this.board = board;
+		this.wordFilter = wordFilter;
+		this.deadline = deadline;
+	}
+
+	private BoardSpec(int generatorVersion, long seed, int size, BoggleBoard board) {
+		this(generatorVersion, seed, size, board, null, 0);
+	}
+
+	/**
+	 * Returns a spec that only holds the seed of the board.
+	 *
+	 * @throws IllegalArgumentException if the board wasn't generated from a seed
+	 **/
+	public static BoardSpec seedOnly(BoggleBoard board) {
+		if (!board.hasSeed())
+			throw new IllegalArgumentException("Board has no seed");
+
+		return new BoardSpec(board.getGeneratorVersion(), board.getSeed(), board.getSize(), null);
+	}
+
+	/**
+	 * Returns a seed-only spec for a board that was generated from the seed,
+	 * e.g. as read from a {@link BinaryProtocol} message.
+	 **/
+	public static BoardSpec seedOnly(int generatorVersion, int size, long seed) {
+		return new BoardSpec(generatorVersion, seed, size, null);
+	}
+
+	/** Returns a spec that holds the whole board. **/
+	public static BoardSpec fullBoard(BoggleBoard board) {
+		return new BoardSpec(board.getGeneratorVersion(), board.getSeed(), board.getSize(), board);
+	}
+
+	/**
+	 * Returns true if a client with the given generator version can rebuild
+	 * the board from its seed.
+	 **/
+	public static boolean canSendSeed(BoggleBoard board, int clientGeneratorVersion) {
+		return board.hasSeed() && board.getGeneratorVersion() == clientGeneratorVersion;
+	}
+
+	/** Returns a copy of this spec that carries the given word filter. **/
+	public BoardSpec withWordFilter(BloomFilter filter) {
+		return new BoardSpec(generatorVersion, seed, size, board, filter, deadline);
+	}
+
+	/** Returns a copy of this spec that carries the given deadline. **/
+	public BoardSpec withDeadline(long serverDeadline) {
+		return new BoardSpec(generatorVersion, seed, size, board, wordFilter, serverDeadline);
+	}
+
+	/**
+	 * Returns when the round ends, in milliseconds since the epoch by the
+	 * server's clock, or 0 if the spec doesn't say.
+	 **/
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Returns the filter of all words on the board, or null if the spec
+	 * doesn't carry one.
+	 **/
+	public BloomFilter getWordFilter() {
+		return wordFilter;
+	}
+
+	/** Returns true if this spec only holds the seed of the board. **/
+	public boolean isSeedOnly() {
+		return board == null;
+	}
+
+	public int getGeneratorVersion() {
+		return generatorVersion;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the board, rebuilding it from the seed if necessary.
+	 *
+	 * @throws IllegalStateException if the board has to be rebuilt, but this
+	 *         process has a different generator version
+	 **/
+	public BoggleBoard toBoard() {
+		if (board != null)
+			return board;
+
+		if (generatorVersion != BoardGenerator.VERSION)
+			throw new IllegalStateException("Board was generated by version " + generatorVersion
+					+ ", but this is version " + BoardGenerator.VERSION);
+
+		return new BoggleBoard(size, seed);
+	}
+}
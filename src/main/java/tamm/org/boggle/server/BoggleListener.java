@@ -0,0 +1,46 @@
+package tamm.org.boggle.server;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * This interface is implemented by Boggle clients that play through the
+ * asynchronous calls of {@link BoggleServer}.  The client exports its
+ * listener as a remote object and passes it to
+ * {@link BoggleServer#joinGame}; the server then calls it back as the round
+ * progresses, rather than keeping the client's own calls open.
+ * <p>
+ * Every callback carries the ticket that <tt>joinGame</tt> returned, so a
+ * client can tell its games apart.
+ **/
+public interface BoggleListener extends Remote {
+
+  /**
+   * Called when the round that the client joined starts.
+   *
+   * @param ticket the client's ticket
+   * @param board the board of the round
+   * @param roundLength how long the round lasts, in seconds
+   **/
+  public void roundStarted(long ticket, BoardSpec board, int roundLength)
+    throws RemoteException;
+
+  /**
+   * Called about once a second while the round is being played.
+   *
+   * @param ticket the client's ticket
+   * @param secondsRemaining the time left in the round, by the server's clock
+   **/
+  public void tick(long ticket, int secondsRemaining)
+    throws RemoteException;
+
+  /**
+   * Called once all players of the round have submitted their word-lists,
+   * and the results are computed.
+   *
+   * @param ticket the client's ticket
+   * @param results the results of the round
+   **/
+  public void resultsReady(long ticket, GameResults results)
+    throws RemoteException;
+}
@@ -2,6 +2,7 @@ package tamm.org.boggle.server;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 import tamm.org.boggle.board.BoggleBoard;
 import tamm.org.boggle.board.WordList;
@@ -9,7 +10,9 @@ import tamm.org.boggle.board.WordList;
 /**
  * This interface is implemented by Boggle servers to allow clients to play
  * rounds of the game.  The interaction is very simple, since Boggle is also
- * a pretty simple game.
+ * a pretty simple game.  A server hosts any number of named rooms, each of
+ * which plays its own rounds; clients that don't name a room play in
+ * {@link RoomManager#DEFAULT_ROOM}.
  **/
 public interface BoggleServer extends Remote {
 
@@ -24,6 +27,143 @@ public interface BoggleServer extends Remote {
   public BoggleBoard startGame(String clientName)
     throws PlayerException, RemoteException;
 
+  /**
+   * Same as {@link #startGame(String)}, but returns a {@link BoardSpec} rather
+   * than the board itself.  If the client's generator version matches the
+   * one that generated the board, the spec only holds the board's seed, and
+   * the client rebuilds the board with {@link BoardSpec#toBoard}.  Otherwise
+   * the spec falls back to holding the whole board.
+   *
+   * @param generatorVersion the client's
+   *        {@link tamm.org.boggle.board.BoardGenerator#VERSION}
+   * @throws PlayerException if the specified client-name is already
+   *         being used on the server.
+   **/
+  public BoardSpec startGame(String clientName, int generatorVersion)
+    throws PlayerException, RemoteException;
+
+  /**
+   * Same as {@link #startGame(String, int)}, but joins the next round of the
+   * named room rather than of the default room.
+   *
+   * @throws PlayerException if the specified client-name is already
+   *         being used on the server.
+   * @throws RoomException if there is no room with the specified name.
+   **/
+  public BoardSpec startGame(String clientName, String roomName, int generatorVersion)
+    throws PlayerException, RoomException, RemoteException;
+
+  /**
+   * The asynchronous version of {@link #startGame(String, String, int)}.  The
+   * client is added to the next round of the named room, and a ticket is
+   * returned right away.  When the round starts, the board is passed to the
+   * listener's {@link BoggleListener#roundStarted} method.
+   *
+   * @param listener the client's exported listener
+   * @return the ticket that identifies this game in later calls
+   * @throws PlayerException if the specified client-name is already
+   *         being used on the server.
+   * @throws RoomException if there is no room with the specified name.
+   **/
+  public long joinGame(String clientName, String roomName, int generatorVersion,
+    BoggleListener listener) throws PlayerException, RoomException, RemoteException;
+
+  /**
+   * The asynchronous version of {@link #gameOver}.  The word-list is recorded
+   * and the call returns right away; the results of the round are passed to
+   * the listener's {@link BoggleListener#resultsReady} method once all
+   * players have submitted.  In a room with
+   * {@link RoomSettings#isPersonalResults personal results}, those are the
+   * client's personal results.
+   *
+   * @param ticket the ticket returned by {@link #joinGame}
+   * @throws PlayerException if the ticket is not recognized by the server, or
+   *         if its round hasn't started yet.
+   **/
+  public void submitWords(long ticket, WordList myWords)
+    throws PlayerException, RemoteException;
+
+  /**
+   * Sends a single word of a game joined with {@link #joinGame} while its
+   * round is played.  The server checks the word right away, and keeps
+   * count of it, so the results are ready soon after the last word-list is
+   * submitted with {@link #submitWords}.  Words sent this way count even if
+   * they are left out of that word-list.
+   *
+   * @param ticket the ticket returned by {@link #joinGame}
+   * @return true if the word is in the dictionary and on the board
+   * @throws PlayerException if the ticket is not recognized by the server, if
+   *         its round hasn't started yet, or if its word-list was already
+   *         submitted.
+   **/
+  public boolean submitWord(long ticket, String word)
+    throws PlayerException, RemoteException;
+
+  /**
+   * Same as {@link #submitWord} for several words at once.
+   *
+   * @return how many of the words are in the dictionary and on the board
+   **/
+  public int submitBatch(long ticket, WordList words)
+    throws PlayerException, RemoteException;
+
+  /**
+   * Returns the time by the server's clock, in milliseconds since the epoch.
+   * Clients sample it to tell how far their own clock is off, and so when
+   * the {@link BoardSpec#getDeadline deadline} of a round is by their clock.
+   **/
+  public long getServerTime()
+    throws RemoteException;
+
+  /**
+   * Renews the lease of a game joined with {@link #joinGame}.  A client that
+   * sends heartbeats is expected to keep sending them, at least every
+   * {@link BoggleServerApp#LEASE_MILLIS}; once it misses them, the round goes
+   * on without it.  Rounds end at their deadline either way.
+   *
+   * @param ticket the ticket returned by {@link #joinGame}
+   * @throws PlayerException if the ticket is not recognized by the server.
+   **/
+  public void heartbeat(long ticket)
+    throws PlayerException, RemoteException;
+
+  /**
+   * Returns a page of the words a player submitted in a round, for clients
+   * that got {@link GameResults#isComplete personal} results, which leave
+   * out the other players' words.  The server keeps a round's results for a
+   * minute after they are handed out.
+   *
+   * @param resultsId the {@link GameResults#getId id} of the results
+   * @param playerName the name of a player of the round
+   * @param page the number of the page, from 0
+   * @throws PlayerException if the server no longer has the results, or if
+   *         the player didn't play the round.
+   **/
+  public WordPage getWordPage(long resultsId, String playerName, int page)
+    throws PlayerException, RemoteException;
+
+  /**
+   * Creates a new game room, which plays its rounds by the specified settings.
+   *
+   * @throws RoomException if a room with the specified name already exists.
+   **/
+  public RoomInfo createRoom(String roomName, RoomSettings settings)
+    throws RoomException, RemoteException;
+
+  /**
+   * Returns the current state of the named room, including its settings.
+   *
+   * @throws RoomException if there is no room with the specified name.
+   **/
+  public RoomInfo getRoom(String roomName)
+    throws RoomException, RemoteException;
+
+  /**
+   * Returns the current state of all rooms on the server.
+   **/
+  public List<RoomInfo> listRooms()
+    throws RemoteException;
+
   /**
    * This method is called by Boggle clients when their time is up and
    * the clients are submitting their word-lists.  The results of the round
@@ -0,0 +1,710 @@
+package tamm.org.boggle.server;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.WordList;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Logger;
+
+/**
+ * This is a very simplistic implementation of a Boggle server that can handle
+ * multiple requests from Boggle clients wanting to play a round of Boggle.
+ * Clients interact with the Boggle server by making RMI calls to the
+ * {@link BoggleServer} remote interface. Clients call
+ * {@link BoggleServer#startGame} on the server, and are blocked until the
+ * server receives enough requests to start a game. Then the Boggle board to use
+ * is returned to the clients, and they begin playing.
+ * <p>
+ * Once clients have completed the elapsed time, they call back to the server
+ * via the {@link BoggleServer#gameOver} method, reporting their word-lists.
+ * Again, the clients are blocked until all playing clients have reported their
+ * word-lists. Then, the server computes each client's score, and reports all
+ * game results back to each client via the return-value of this method call.
+ * <p>
+ * Clients can also play without keeping calls open: {@link #joinGame} and
+ * {@link #submitWords} return right away, and the server calls the client's
+ * {@link BoggleListener} back when the round starts, as time passes, and when
+ * the results are ready.
+ * <p>
+ * The server hosts any number of named {@link Room}s, each with its own lobby
+ * and settings. Each round is a separate {@link Round}, and a room's lobby
+ * keeps taking clients while rounds are being played, so the next round can
+ * start before the previous ones are over.
+ * <p>
+ * A round ends at its deadline plus a short grace period, even if some of
+ * its clients never submit, so a client that drops out mid-game holds up the
+ * others only until then. A client playing through {@link #joinGame} may also
+ * hold a lease, which it renews with {@link #heartbeat}; once its lease runs
+ * out, the round goes on without it right away. Words that are not on the
+ * Boggle board are caught while scoring, and reported back as the client's
+ * rejected words.
+ **/
+public class BoggleServerApp implements BoggleServer {
+
+	/**
+	 * The logger instance
+	 */
+	private static Logger logger = Logger.getLogger(BoggleServerApp.class); 
+	/**
+	 * This map of usernames to client-information contains the directory of all
+	 * clients that are currently talking to the Boggle server. Clients are
+	 * added to this map when they try to join a round via {@link #startGame},
+	 * and they are removed from this map when they complete (or leave) a round
+	 * via {@link #gameOver}. This map is also used to ensure that multiple
+	 * users don't have the same username. It is a concurrent map, so clients
+	 * of different rooms don't wait on each other to register.
+	 **/
+	private ConcurrentMap<String, ClientInfo> clients;
+
+	/**
+	 * The rooms of the registered clients that play through
+	 * {@link #startGame}, so {@link #gameOver} knows what results they get.
+	 **/
+	private final ConcurrentMap<ClientInfo, Room> blockingRooms = new ConcurrentHashMap<ClientInfo, Room>();
+
+	/**
+	 * The game rooms hosted by this server. Clients are added to a room's
+	 * lobby when they call {@link #startGame}, and the room starts a round
+	 * once enough of them are waiting.
+	 **/
+	private RoomManager rooms;
+
+	/** The room that clients play in if they don't name one. **/
+	private Room defaultRoom;
+
+	/** Issues the tickets of asynchronous games. **/
+	private final AtomicLong tickets = new AtomicLong();
+
+	/**
+	 * The games of clients that play through {@link #joinGame}, by ticket.
+	 * Games are removed once their results are passed to the client.
+	 **/
+	private ConcurrentMap<Long, AsyncGame> games;
+
+	/**
+	 * How long a round's results are kept for {@link #getWordPage} after
+	 * they are first handed out, in seconds.
+	 **/
+	static final int RESULTS_KEPT = 60;
+
+	/**
+	 * The results of the recent rounds, by id, so clients that got personal
+	 * results can fetch the other players' words. Each round's results are
+	 * dropped {@link #RESULTS_KEPT} seconds after they are first handed out.
+	 **/
+	private final ConcurrentMap<Long, GameResults> recentResults = new ConcurrentHashMap<Long, GameResults>();
+
+	/**
+	 * How long a client's lease lasts after its last heartbeat, in
+	 * milliseconds.
+	 **/
+	public static final long LEASE_MILLIS = 10 * 1000;
+
+	/**
+	 * Makes the calls to client listeners, so a slow or unreachable client
+	 * doesn't hold up a round or the rooms' scheduler.
+	 **/
+	private ExecutorService callbacks;
+
+	/**
+	 * The state of a game played through {@link #joinGame}. Nothing waits on
+	 * it; each step runs as an action when the client's round starts, on each
+	 * tick of the clock, and when the round's results are ready.
+	 **/
+	private class AsyncGame {
+
+		private final long ticket;
+		private final ClientInfo info;
+		private final Room room;
+		private final BoggleListener listener;
+		private final int generatorVersion;
+
+		/** Set once the word-list is submitted, so it's only accepted once. **/
+		private final AtomicBoolean submitted = new AtomicBoolean();
+
+		/**
+		 * When the client's lease runs out, or 0 if the client has never sent
+		 * a heartbeat, and so holds no lease.
+		 **/
+		private volatile long leaseExpiry;
+
+		/** The time the round ends, in milliseconds. **/
+		private volatile long endTime;
+
+		/** The task that sends the ticks, while the round is played. **/
+		private volatile ScheduledFuture<?> ticker;
+
+		AsyncGame(long ticket, ClientInfo info, Room room, BoggleListener listener, int generatorVersion) {
+			this.ticket = ticket;
+			this.info = info;
+			this.room = room;
+			this.listener = listener;
+			this.generatorVersion = generatorVersion;
+		}
+
+		/**
+		 * Sends the board to the client, and starts the ticks. The results
+		 * are sent once the round is over, whether or not the client has
+		 * submitted.
+		 **/
+		void started(Round round) {
+			int roundLength = room.getSettings().getRoundLength();
+			endTime = round.getDeadline() != 0 ? round.getDeadline()
+					: System.currentTimeMillis() + roundLength * 1000L;
+			round.whenOver().thenAcceptAsync(this::finished, callbacks);
+
+			logger.info("Client \"" + info.getName() + "\" is playing round " + round.getId()
+					+ " in room \"" + room.getName() + "\" (ticket " + ticket + ").");
+
+			try {
+				listener.roundStarted(ticket, round.getBoardSpec(generatorVersion), roundLength);
+				ServerMetrics.getInstance().getRoundStart().recordSince(round.getStartNanos());
+			} catch (RemoteException e) {
+				logger.warn("Can't tell client \"" + info.getName() + "\" the round started.", e);
+			}
+
+			ticker = rooms.getScheduler().scheduleAtFixedRate(new Runnable() {
+				public void run() {
+					callbacks.execute(new Runnable() {
+						public void run() {
+							tick();
+						}
+					});
+				}
+			}, 1, 1, TimeUnit.SECONDS);
+		}
+
+		/**
+		 * Sends the time remaining to the client, until it runs out. A client
+		 * whose lease has run out is left out of the rest of the round.
+		 **/
+		void tick() {
+			long now = System.currentTimeMillis();
+			long remaining = endTime - now;
+			int seconds = (int) Math.max(0, (remaining + 999) / 1000);
+
+			long lease = leaseExpiry;
+			if (lease != 0 && lease < now && !submitted.get()) {
+				logger.info("Client \"" + info.getName() + "\" missed its heartbeats (ticket " + ticket + ").");
+				leave();
+				return;
+			}
+
+			if (seconds == 0 || submitted.get())
+				stopTicking();
+
+			if (submitted.get())
+				return;
+
+			try {
+				listener.tick(ticket, seconds);
+			} catch (RemoteException e) {
+				logger.debug("Can't send a tick to client \"" + info.getName() + "\".", e);
+			}
+		}
+
+		/** Extends the client's lease. **/
+		void renewLease() {
+			leaseExpiry = System.currentTimeMillis() + LEASE_MILLIS;
+		}
+
+		/**
+		 * Takes the client out of its round, which goes on without it. Its
+		 * word-list is no longer accepted.
+		 **/
+		void leave() {
+			submitted.set(true);
+			stopTicking();
+			Round round = info.getRound();
+			if (round != null)
+				round.abandon(info);
+		}
+
+		void stopTicking() {
+			ScheduledFuture<?> t = ticker;
+			if (t != null)
+				t.cancel(false);
+		}
+
+		/**
+		 * Sends the results to the client, personal ones if the room says so,
+		 * and forgets about the game.
+		 **/
+		void finished(GameResults results) {
+			games.remove(ticket, this);
+			unregister(info);
+			keepResults(results);
+
+			if (room.getSettings().isPersonalResults())
+				results = results.personalFor(info.getName());
+
+			// Measured up to the hand-over, as the listener may block for as
+			// long as the client takes to take the results.
+			ServerMetrics.getInstance().getResultsFanOut().recordSince(info.getRound().getOverNanos());
+			try {
+				listener.resultsReady(ticket, results);
+			} catch (RemoteException e) {
+				logger.warn("Can't send the results to client \"" + info.getName() + "\".", e);
+			}
+		}
+	}
+
+	/**
+	 * Constructs a new Boggle server instance, and sets up the default room
+	 * used to govern the progress of each round of the game.
+	 **/
+	public BoggleServerApp() {
+		// Collections used to coordinate what players are playing or waiting to
+		// play.
+		clients = new ConcurrentHashMap<String, ClientInfo>();
+		games = new ConcurrentHashMap<Long, AsyncGame>();
+		callbacks = ServerExecutors.newBlockingExecutor("boggle-callback");
+
+		// Load the shared dictionary up front, so the first round doesn't pay
+		// for reading the word file while its players wait for results.
+		DictionaryService.getInstance().getDictionary();
+
+		rooms = new RoomManager(BoardQuality.DEFAULT);
+		try {
+			defaultRoom = rooms.createRoom(RoomManager.DEFAULT_ROOM, RoomSettings.DEFAULT);
+		} catch (RoomException e) {
+			// Can't happen, the manager is empty.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * This function is called by Boggle clients via RMI when they want to play
+	 * a round of Boggle. Clients must register their own unique client-name
+	 * that identifies them to the Boggle server.
+	 * <p>
+	 * This method blocks until the Boggle server decides that there are enough
+	 * players for the current round. Then the method returns the
+	 * <tt>BoggleBoard</tt> that clients should use for the round.
+	 *
+	 * @throws PlayerException
+	 *             if the calling client specifies a username that is already
+	 *             used.
+	 **/
+	public BoggleBoard startGame(String clientName) throws PlayerException {
+		return joinRound(clientName, defaultRoom).getBoard();
+	}
+
+	/**
+	 * Same as {@link #startGame(String)}, but returns only the seed of the
+	 * board if the client can rebuild the board from it.
+	 *
+	 * @throws PlayerException
+	 *             if the calling client specifies a username that is already
+	 *             used.
+	 **/
+	public BoardSpec startGame(String clientName, int generatorVersion) throws PlayerException {
+		return joinRound(clientName, defaultRoom).getBoardSpec(generatorVersion);
+	}
+
+	/**
+	 * Same as {@link #startGame(String, int)}, but joins the next round of the
+	 * named room.
+	 *
+	 * @throws PlayerException
+	 *             if the calling client specifies a username that is already
+	 *             used.
+	 * @throws RoomException
+	 *             if there is no room with the specified name.
+	 **/
+	public BoardSpec startGame(String clientName, String roomName, int generatorVersion)
+			throws PlayerException, RoomException {
+		return joinRound(clientName, rooms.getRoom(roomName)).getBoardSpec(generatorVersion);
+	}
+
+	/**
+	 * Creates a new game room.
+	 *
+	 * @throws RoomException
+	 *             if a room with the specified name already exists.
+	 **/
+	public RoomInfo createRoom(String roomName, RoomSettings settings) throws RoomException {
+		return rooms.createRoom(roomName, settings).getInfo();
+	}
+
+	/**
+	 * Returns the current state of the named room.
+	 *
+	 * @throws RoomException
+	 *             if there is no room with the specified name.
+	 **/
+	public RoomInfo getRoom(String roomName) throws RoomException {
+		return rooms.getRoom(roomName).getInfo();
+	}
+
+	/** Returns the current state of all rooms. **/
+	public List<RoomInfo> listRooms() {
+		return rooms.listRooms();
+	}
+
+	/**
+	 * Registers the client, and blocks until the client is part of a round of
+	 * the room. Then the round is returned.
+	 **/
+	private Round joinRound(String clientName, Room room) throws PlayerException {
+		/*System.out.println("Client \"" + clientName
+				+ "\" wants to start a game.");*/
+		logger.info("Client \"" + clientName
+				+ "\" wants to start a game.");
+
+		ClientInfo myInfo = register(clientName);
+		blockingRooms.put(myInfo, room);
+
+		// Join the room's lobby, then wait until the server marks our token
+		// as "playing."
+		room.join(myInfo);
+
+		boolean interrupted = false;
+		while (myInfo.isWaiting()) {
+			try {
+				myInfo.awaitPlaying();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		// Once we get here, we are ready to start playing.
+
+		/*System.out.println("Client \"" + clientName
+				+ "\" is playing this round.");*/
+		Round round = myInfo.getRound();
+		ServerMetrics.getInstance().getRoundStart().recordSince(round.getStartNanos());
+		logger.info("Client \"" + clientName
+				+ "\" is playing round " + round.getId() + " in room \""
+				+ room.getName() + "\".");
+
+		// Free the name a while after the round is over, also if the client
+		// never calls gameOver. Until then, a client whose gameOver comes
+		// after the round's end still gets the results.
+		round.whenOver().thenRun(() -> rooms.getScheduler().schedule(new Runnable() {
+			public void run() {
+				unregister(myInfo);
+			}
+		}, RESULTS_KEPT, TimeUnit.SECONDS));
+		return round;
+	}
+
+	/**
+	 * Adds a new client to the {@link #clients} directory.
+	 *
+	 * @throws PlayerException
+	 *             if the client-name is already used.
+	 **/
+	private ClientInfo register(String clientName) throws PlayerException {
+		ClientInfo myInfo = new ClientInfo(clientName);
+
+		if (clients.putIfAbsent(clientName, myInfo) != null)
+			throw new PlayerException(clientName + " already used!");
+
+		ServerMetrics.getInstance().playerRegistered();
+		return myInfo;
+	}
+
+	/**
+	 * Removes a client from the {@link #clients} directory, unless another
+	 * client has taken its name since.
+	 **/
+	private void unregister(ClientInfo info) {
+		blockingRooms.remove(info);
+		if (clients.remove(info.getName(), info))
+			ServerMetrics.getInstance().playerLeft();
+	}
+
+	/**
+	 * This function is called by Boggle clients via RMI when they want to play
+	 * a round of Boggle without keeping the call open. The client is added to
+	 * the room's lobby, and a ticket is returned right away. The round's board
+	 * is passed to the client's listener when the round starts.
+	 *
+	 * @throws PlayerException
+	 *             if the calling client specifies a username that is already
+	 *             used.
+	 * @throws RoomException
+	 *             if there is no room with the specified name.
+	 **/
+	public long joinGame(String clientName, String roomName, int generatorVersion, BoggleListener listener)
+			throws PlayerException, RoomException {
+		if (listener == null)
+			throw new NullPointerException();
+
+		Room room = rooms.getRoom(roomName);
+
+		logger.info("Client \"" + clientName
+				+ "\" wants to start a game.");
+
+		ClientInfo myInfo = register(clientName);
+		final AsyncGame game = new AsyncGame(tickets.incrementAndGet(), myInfo, room, listener, generatorVersion);
+		games.put(game.ticket, game);
+
+		myInfo.whenPlaying().thenAcceptAsync(game::started, callbacks);
+		room.join(myInfo);
+
+		return game.ticket;
+	}
+
+	/**
+	 * This function is called by Boggle clients via RMI when they have
+	 * completed a round of Boggle that they joined with {@link #joinGame}.
+	 * The word-list is recorded and the call returns right away; the results
+	 * are passed to the client's listener once all players of the round have
+	 * submitted.
+	 *
+	 * @throws PlayerException
+	 *             if the ticket is unrecognized, its round hasn't started, or
+	 *             its word-list was already submitted.
+	 **/
+	public void submitWords(long ticket, WordList myWords) throws PlayerException {
+		final AsyncGame game = playingGame(ticket);
+		ClientInfo myInfo = game.info;
+		Round round = myInfo.getRound();
+
+		if (!game.submitted.compareAndSet(false, true))
+			throw new PlayerException("Ticket " + ticket + " already submitted its words!");
+
+		logger.info("Client \"" + myInfo.getName()
+				+ "\" has submitted a word-list of " + myWords.size()
+				+ " words.");
+
+		game.stopTicking();
+		myInfo.setWords(myWords);
+		round.submitAsync(myInfo, DictionaryService.getInstance().getDictionary());
+	}
+
+	/**
+	 * Returns the time by the server's clock, which is the clock the rounds'
+	 * deadlines are set by.
+	 **/
+	public long getServerTime() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Renews the lease of the client of a game joined with {@link #joinGame}.
+	 * A client holds a lease once it sends its first heartbeat; if it then
+	 * misses its heartbeats for {@link #LEASE_MILLIS}, its round goes on
+	 * without it. Sending words renews the lease as well.
+	 *
+	 * @throws PlayerException
+	 *             if the ticket is unrecognized.
+	 **/
+	public void heartbeat(long ticket) throws PlayerException {
+		AsyncGame game = games.get(ticket);
+		if (game == null)
+			throw new PlayerException("Ticket " + ticket + " is unrecognized!");
+		game.renewLease();
+	}
+
+	/**
+	 * Takes the client of a game out of its round right away, e.g. because
+	 * its connection was lost. Unknown tickets are ignored.
+	 **/
+	void leave(long ticket) {
+		AsyncGame game = games.get(ticket);
+		if (game != null && game.info.getRound() != null && !game.submitted.get()) {
+			logger.info("Client \"" + game.info.getName() + "\" is gone (ticket " + ticket + ").");
+			game.leave();
+		}
+	}
+
+	/**
+	 * This function is called by Boggle clients via RMI as their player finds
+	 * a word, in a round joined with {@link #joinGame}. The word is checked
+	 * and counted right away.
+	 *
+	 * @throws PlayerException
+	 *             if the ticket is unrecognized, its round hasn't started, or
+	 *             its word-list was already submitted.
+	 **/
+	public boolean submitWord(long ticket, String word) throws PlayerException {
+		// Through a word-list, so the word is cleaned up the same way as the
+		// words of the word-list submitted at the end.
+		WordList words = new WordList();
+		words.addWord(word);
+		return submitBatch(ticket, words) == 1;
+	}
+
+	/**
+	 * Same as {@link #submitWord} for several words at once.
+	 **/
+	public int submitBatch(long ticket, WordList words) throws PlayerException {
+		AsyncGame game = playingGame(ticket);
+		if (game.submitted.get())
+			throw new PlayerException("Ticket " + ticket + " already submitted its words!");
+		if (game.leaseExpiry != 0)
+			game.renewLease();
+
+		try {
+			return game.info.getRound().addWords(game.info, words.getWordList(),
+					DictionaryService.getInstance().getDictionary());
+		} catch (IllegalStateException e) {
+			// The word-list was submitted meanwhile.
+			throw new PlayerException("Ticket " + ticket + " already submitted its words!");
+		}
+	}
+
+	/**
+	 * Returns the game of the ticket, if its round has started.
+	 *
+	 * @throws PlayerException
+	 *             if the ticket is unrecognized, or its round hasn't started.
+	 **/
+	private AsyncGame playingGame(long ticket) throws PlayerException {
+		AsyncGame game = games.get(ticket);
+		if (game == null)
+			throw new PlayerException("Ticket " + ticket + " is unrecognized!");
+
+		if (game.info.getRound() == null)
+			throw new PlayerException("The round of ticket " + ticket + " hasn't started!");
+		return game;
+	}
+
+	/**
+	 * This function is called by Boggle clients via RMI when they have
+	 * completed the current round of Boggle. Clients must submit the same
+	 * username that they specified initially, and they must also submit their
+	 * word-list to the server.
+	 * <p>
+	 * This method blocks until <em>all</em> playing clients have submitted
+	 * their word-lists to the Boggle server. The server then computes the
+	 * overall game results, and returns these results back to each client.
+	 *
+	 * @throws PlayerException
+	 *             if the calling client specifies a username that is already
+	 *             used.
+	 **/
+	public GameResults gameOver(String clientName, WordList myWords)
+			throws PlayerException {
+
+		// Make sure the client is actually registered.
+
+		ClientInfo myInfo = clients.get(clientName);
+		if (myInfo == null || myInfo.getRound() == null)
+			throw new PlayerException(clientName + " is unrecognized!");
+
+		/*System.out.println("Client \"" + clientName
+				+ "\" has submitted a word-list of " + myWords.size()
+				+ " words.");*/
+		logger.info("Client \"" + clientName
+				+ "\" has submitted a word-list of " + myWords.size()
+				+ " words.");
+
+		myInfo.setWords(myWords);
+		Room room = blockingRooms.get(myInfo);
+
+		// Wait for all players of the round to report in, and for the results
+		// to be processed.
+		GameResults gameResults = myInfo.getRound().submit(myInfo,
+				DictionaryService.getInstance().getDictionary());
+
+		ServerMetrics.getInstance().getResultsFanOut().recordSince(myInfo.getRound().getOverNanos());
+
+		// Finally, remove this client's info from the clients list.
+		unregister(myInfo);
+		keepResults(gameResults);
+
+		// Clients of rooms with personal results get only their own words.
+		if (room != null && room.getSettings().isPersonalResults())
+			gameResults = gameResults.personalFor(clientName);
+
+		return gameResults;
+	}
+
+	/** Keeps the results of a round for {@link #getWordPage}, for a while. **/
+	private void keepResults(GameResults results) {
+		final long id = results.getId();
+		if (recentResults.putIfAbsent(id, results) == null) {
+			rooms.getScheduler().schedule(new Runnable() {
+				public void run() {
+					recentResults.remove(id);
+				}
+			}, RESULTS_KEPT, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Returns a page of a player's words from the results of a recent round.
+	 **/
+	public WordPage getWordPage(long resultsId, String playerName, int page) throws PlayerException {
+		GameResults results = recentResults.get(resultsId);
+		if (results == null)
+			throw new PlayerException("The results " + resultsId + " are no longer kept!");
+		if (page < 0)
+			throw new PlayerException("Bad page " + page + "!");
+
+		WordPage words = results.getWordPage(playerName, page);
+		if (words == null)
+			throw new PlayerException(playerName + " isn't in the results " + resultsId + "!");
+		return words;
+	}
+
+	/** Stops the rooms, their board pools, and the callbacks to the clients. **/
+	public void shutdown() {
+		rooms.shutdown();
+		callbacks.shutdownNow();
+	}
+
+	/**
+	 * This method creates an instance of the Boggle server application, and
+	 * then exposes it via an RMI registry that it starts, and via the binary
+	 * protocol and HTTP servers.
+	 * @throws RemoteException 
+	 **/
+	public static void main(String[] args) {
+		try {
+			BasicConfigurator.configure();
+			
+			Registry registry = LocateRegistry.createRegistry(1099);
+			
+			BoggleServerApp server = new BoggleServerApp();
+			
+			BoggleServer serverStub = (BoggleServer)UnicastRemoteObject.exportObject(server, 0);
+			
+			registry.rebind("BoggleServer", serverStub);
+			
+			// Players may also connect over the binary protocol, or HTTP.
+			new NioBoggleServer(server, NioBoggleServer.DEFAULT_PORT).start();
+			new HttpBoggleServer(server, HttpBoggleServer.DEFAULT_PORT).start();
+			
+			// The metrics can be watched through JMX, and are dumped to the
+			// log every so often.
+			ServerMetrics metrics = ServerMetrics.getInstance();
+			metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+			long dumpInterval = ServerMetrics.getDumpInterval();
+			if (dumpInterval > 0)
+				metrics.startDumping(server.rooms.getScheduler(), dumpInterval);
+			
+			//System.out.println("Server ready and running!");
+			logger.info("Server ready and running!");
+		} catch (IOException | JMException e) {
+			//System.err.println("Server internal error!");
+			logger.error("Server internal error!");
+			e.printStackTrace();
+		}
+		
+		
+	}
+}
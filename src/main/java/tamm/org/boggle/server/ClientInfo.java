@@ -1,6 +1,9 @@
 package tamm.org.boggle.server;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 
 import tamm.org.boggle.board.WordList;
 
@@ -40,7 +43,21 @@ public class ClientInfo implements Serializable{
 
 
   /** The current state of the client, as maintained by the Boggle server. **/
-  private State state;
+  private volatile State state;
+
+
+  /**
+   * Completed with the client's round when the client becomes a player of it.
+   * Only the server uses this, so it isn't sent along with the game results.
+   **/
+  private final transient CompletableFuture<Round> started = new CompletableFuture<Round>();
+
+
+  /**
+   * The round the client plays in, once it has started.  Only the server uses
+   * this, so it isn't sent along with the game results.
+   **/
+  private transient volatile Round round;
 
 
   /**
@@ -57,6 +74,13 @@ public class ClientInfo implements Serializable{
   private WordList filteredWords;
 
 
+  /**
+   * The list of words that the client submitted, but that can't be traced on
+   * the round's Boggle board.  These words never score.
+   **/
+  private WordList rejectedWords;
+
+
   /**
    * The score for this client, computed from the {@link #filteredWords} set of
    * words, which only contains the valid words that only this client found.
@@ -64,6 +88,10 @@ public class ClientInfo implements Serializable{
   private int score;
 
 
+  /** True if this is a {@link #snapshot}, which can't be changed. **/
+  private final boolean frozen;
+
+
   /**
    * Constructs a new client-information object for the specified client name.
    * All other values are initialized to reasonable defaults.
@@ -72,14 +100,56 @@ public class ClientInfo implements Serializable{
     if (clientName == null)
       throw new NullPointerException();
 
+    frozen = false;
     setName(clientName);
     state = State.WAITING;
     words = null;
     filteredWords = null;
+    rejectedWords = null;
     score = 0;
   }
 
 
+  /** Constructs a snapshot of the specified client's results. **/
+  private ClientInfo(ClientInfo source) {
+    name = source.name;
+    state = State.FINISHED;
+    words = unmodifiable(source.words);
+    filteredWords = unmodifiable(source.filteredWords);
+    rejectedWords = unmodifiable(source.rejectedWords);
+    score = source.score;
+    frozen = true;
+  }
+
+
+  private static WordList unmodifiable(WordList words) {
+    return words == null ? null : words.unmodifiableCopy();
+  }
+
+
+  /**
+   * Returns a copy of this client's results that can't be changed, so any
+   * number of threads can read it without locking.  The copy's word-lists
+   * can't be changed either.
+   **/
+  public ClientInfo snapshot() {
+    return frozen ? this : new ClientInfo(this);
+  }
+
+
+  /** Returns true if this is a {@link #snapshot}. **/
+  public boolean isFrozen() {
+    return frozen;
+  }
+
+
+  /** Throws an IllegalStateException if this is a snapshot. **/
+  private void checkNotFrozen() {
+    if (frozen)
+      throw new IllegalStateException(name + "'s results are frozen");
+  }
+
+
   /** Returns the client's current state. **/
   public State getState() {
     return state;
@@ -96,13 +166,66 @@ public class ClientInfo implements Serializable{
   public void setState(State newState) {
     if (newState == null)
       throw new NullPointerException();
+    checkNotFrozen();
 
     state = newState;
   }
 
 
+  /**
+   * Moves the client to the PLAYING state, and releases any thread blocked in
+   * {@link #awaitPlaying}.
+   **/
   public void setPlaying() {
     setState(State.PLAYING);
+    started.complete(round);
+  }
+
+
+  /**
+   * Makes the client a player of the specified round, and moves it to the
+   * PLAYING state.
+   *
+   * @throws NullPointerException if round is null
+   **/
+  public void setPlaying(Round round) {
+    if (round == null)
+      throw new NullPointerException();
+
+    this.round = round;
+    setPlaying();
+  }
+
+
+  /**
+   * Returns the round the client plays in, or null if it isn't playing in
+   * one yet.
+   **/
+  public Round getRound() {
+    return round;
+  }
+
+
+  /**
+   * Blocks until the client has been made a player of a round with
+   * {@link #setPlaying}.
+   **/
+  public void awaitPlaying() throws InterruptedException {
+    try {
+      started.get();
+    } catch (ExecutionException e) {
+      // Never completed exceptionally.
+      throw new IllegalStateException(e);
+    }
+  }
+
+
+  /**
+   * Returns a stage that completes with the client's round once the client
+   * has been made a player of it, without blocking.
+   **/
+  public CompletionStage<Round> whenPlaying() {
+    return started;
   }
 
 
@@ -121,6 +244,7 @@ public class ClientInfo implements Serializable{
   public void setWords(WordList words) {
     if (words == null)
       throw new NullPointerException();
+    checkNotFrozen();
 
     if (state != State.PLAYING)
       throw new IllegalStateException();
@@ -131,6 +255,25 @@ public class ClientInfo implements Serializable{
   }
 
 
+  /**
+   * Replaces the word-list of a client that has already submitted one, e.g.
+   * with a copy that also holds the words it sent during the round.
+   *
+   * @throws NullPointerException if words is null
+   * @throws IllegalStateException if the client isn't in the FINISHED state
+   **/
+  void replaceWords(WordList words) {
+    if (words == null)
+      throw new NullPointerException();
+    checkNotFrozen();
+
+    if (state != State.FINISHED)
+      throw new IllegalStateException();
+
+    this.words = words;
+  }
+
+
   /** Returns the set of words that this client submitted to the server. **/
   public WordList getWords() {
     return words;
@@ -148,6 +291,7 @@ public class ClientInfo implements Serializable{
   public void setFilteredWords(WordList filteredWords) {
     if (filteredWords == null)
       throw new NullPointerException();
+    checkNotFrozen();
 
     if (state != State.FINISHED)
       throw new IllegalStateException();
@@ -165,6 +309,33 @@ public class ClientInfo implements Serializable{
   }
 
 
+  /**
+   * This method allows the caller to store the list of submitted words that
+   * can't be traced on the Boggle board.
+   *
+   * @throws NullPointerException if rejectedWords is null
+   * @throws IllegalStateException if the client isn't in the FINISHED state
+   **/
+  public void setRejectedWords(WordList rejectedWords) {
+    if (rejectedWords == null)
+      throw new NullPointerException();
+    checkNotFrozen();
+
+    if (state != State.FINISHED)
+      throw new IllegalStateException();
+
+    this.rejectedWords = rejectedWords;
+  }
+
+
+  /**
+   * Returns the set of submitted words that are not on the Boggle board.
+   **/
+  public WordList getRejectedWords() {
+    return rejectedWords;
+  }
+
+
   /** Returns this client's score. **/
   public int getScore() {
     return score;
@@ -173,6 +344,7 @@ public class ClientInfo implements Serializable{
 
   /** Sets this client's score to the specified value. **/
   public void setScore(int val) {
+    checkNotFrozen();
     score = val;
   }
 
@@ -183,6 +355,7 @@ public String getName() {
 
 
 public void setName(String name) {
+	checkNotFrozen();
 	this.name = name;
 }
 }
@@ -2,46 +2,157 @@ package tamm.org.boggle.server;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.URISyntaxException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import tamm.org.boggle.board.Lexicon;
+
 /**
- * This class represents a dictionary of English words 
+ * This class represents a dictionary of English words
  * SOURCE: http://svnweb.freebsd.org/csrg/share/dict/words?revision=61569&view=co
- * 
+ * <p>
+ * A dictionary is immutable once constructed, so a single instance can be
+ * shared by any number of threads. Use {@link DictionaryService} to obtain the
+ * process-wide instance instead of constructing a new one for every round.
+ * <p>
+ * The words are kept in a {@link Lexicon}, which also answers prefix queries
+ * for solvers and path validators. Only words made of the letters a-z are
+ * kept, since nothing else can be spelled on a Boggle board.
+ *
  * @author Urmas
  *
  */
 public class Dictionary {
 
-	private final Set<String> words = new HashSet<String>();
-	private final String fileName = "dictionary_en.txt";
+	/** The name of the bundled word file on the classpath **/
+	public static final String DEFAULT_FILE_NAME = "dictionary_en.txt";
+
+	private final Lexicon lexicon;
 
 	/**
-	 * Constructor that reads in the words from a file, specified by the fileName
+	 * Constructor that reads in the words from the bundled word file. If the
+	 * file cannot be read the dictionary is empty; use {@link #fromResource}
+	 * to find out about the failure instead.
 	 */
 	public Dictionary() {
-		try (BufferedReader reader = new BufferedReader(new FileReader(new File(getClass().getClassLoader().getResource(fileName).toURI())))) {
-			String line = null;
+		Lexicon read;
 
-			while ((line = reader.readLine()) != null) {
-				words.add(line.toLowerCase());
-			}
-		} catch (IOException | URISyntaxException e) {
+		try {
+			read = readResource();
+		} catch (IOException e) {
 			System.err.println("Problem creating dictionary!");
 			e.printStackTrace();
+			read = Lexicon.build(Collections.<String>emptyList());
+		}
+
+		lexicon = read;
+	}
+
+	/**
+	 * Constructor that reads in the words from the given file
+	 * @param file - the word file, one word per line
+	 * @throws IOException if the file cannot be read
+	 */
+	public Dictionary(File file) throws IOException {
+		List<String> loaded = new ArrayList<String>();
+
+		try (InputStream in = new FileInputStream(file)) {
+			readWords(in, loaded);
+		}
+
+		lexicon = Lexicon.build(loaded);
+	}
+
+	private Dictionary(Lexicon lexicon) {
+		this.lexicon = lexicon;
+	}
+
+	/**
+	 * Reads in the words from the bundled word file
+	 * @return Dictionary
+	 * @throws IOException if the file is missing or cannot be read
+	 */
+	public static Dictionary fromResource() throws IOException {
+		return new Dictionary(readResource());
+	}
+
+	private static Lexicon readResource() throws IOException {
+		List<String> loaded = new ArrayList<String>();
+
+		try (InputStream in = Dictionary.class.getClassLoader().getResourceAsStream(DEFAULT_FILE_NAME)) {
+			if (in == null) {
+				throw new IOException(DEFAULT_FILE_NAME + " not found on the classpath");
+			}
+			readWords(in, loaded);
 		}
+
+		return Lexicon.build(loaded);
+	}
+
+	/**
+	 * Reads one word per line from the stream into the given list
+	 */
+	private static void readWords(InputStream in, List<String> target) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line = null;
+
+		while ((line = reader.readLine()) != null) {
+			target.add(line);
+		}
+	}
+
+	/**
+	 * Check if the given word is in the dictionary, ignoring case
+	 * @param word - the word to be checked
+	 * @return boolean
+	 */
+	public boolean contains(CharSequence word) {
+		return lexicon.contains(word);
+	}
+
+	/**
+	 * Check if at least one word in the dictionary starts with the given prefix
+	 * @param prefix - the prefix to be checked
+	 * @return boolean
+	 */
+	public boolean isPrefix(CharSequence prefix) {
+		return lexicon.isPrefix(prefix);
+	}
+
+	/**
+	 * Returns the number of words in the dictionary
+	 * @return int
+	 */
+	public int size() {
+		return lexicon.size();
+	}
+
+	/**
+	 * Returns the prefix index holding the words, for node-by-node walks
+	 * @return Lexicon
+	 */
+	public Lexicon getLexicon() {
+		return lexicon;
 	}
 
 	/**
-	 * Returns the set of words that make up the dictionary
+	 * Returns the set of words that make up the dictionary. The set is built
+	 * on every call.
 	 * @return
+	 * @deprecated use {@link #contains} for lookups, or walk
+	 *             {@link #getLexicon} to go through the words
 	 */
+	@Deprecated
 	public Set<String> getWords() {
-		return words;
+		return Collections.unmodifiableSet(new HashSet<String>(lexicon.words()));
 	}
 
 }
@@ -0,0 +1,91 @@
+package tamm.org.boggle.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class holds the process-wide {@link Dictionary} instance. The dictionary
+ * is loaded once, normally when the {@link BoggleServerApp} starts, and is then
+ * shared read-only by every round and every thread.
+ * <p>
+ * A new version of the dictionary can be installed with {@link #reload}. The
+ * new dictionary is built completely before it replaces the old one, so
+ * readers never see a half-loaded word set. Scoring that is already in
+ * progress keeps using the instance it obtained from {@link #getDictionary}.
+ *
+ * @author Urmas
+ *
+ */
+public final class DictionaryService {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(DictionaryService.class);
+
+	/** The single instance of the service **/
+	private static final DictionaryService INSTANCE = new DictionaryService();
+
+	/** The dictionary currently in use, or null if none is loaded yet **/
+	private final AtomicReference<Dictionary> current = new AtomicReference<Dictionary>();
+
+	private DictionaryService() {
+	}
+
+	/**
+	 * Returns the process-wide dictionary service
+	 * @return DictionaryService
+	 */
+	public static DictionaryService getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the current dictionary, loading the bundled word file first if
+	 * no dictionary has been loaded yet. Callers should fetch the dictionary
+	 * once per unit of work and keep using that reference.
+	 * @return Dictionary
+	 */
+	public Dictionary getDictionary() {
+		Dictionary dict = current.get();
+
+		if (dict == null) {
+			synchronized (this) {
+				dict = current.get();
+				if (dict == null) {
+					dict = load(new Dictionary());
+				}
+			}
+		}
+
+		return dict;
+	}
+
+	/**
+	 * Re-reads the bundled word file and swaps it in as the current dictionary.
+	 * If the file cannot be read the current dictionary stays in place.
+	 * @return Dictionary - the newly installed dictionary
+	 * @throws IOException if the file cannot be read
+	 */
+	public Dictionary reload() throws IOException {
+		return load(Dictionary.fromResource());
+	}
+
+	/**
+	 * Reads the given word file and swaps it in as the current dictionary. If
+	 * the file cannot be read the current dictionary stays in place.
+	 * @param file - the word file, one word per line
+	 * @return Dictionary - the newly installed dictionary
+	 * @throws IOException if the file cannot be read
+	 */
+	public Dictionary reload(File file) throws IOException {
+		return load(new Dictionary(file));
+	}
+
+	private Dictionary load(Dictionary dict) {
+		current.set(dict);
+		logger.info("Dictionary loaded with " + dict.size() + " words.");
+		return dict;
+	}
+}
@@ -1,13 +1,42 @@
 package tamm.org.boggle.server;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.PathValidator;
 import tamm.org.boggle.board.WordList;
 
 /**
  * This class is used as a wrapper for all of the game-results of a single round
  * of Boggle.
+ * <p>
+ * A round {@link #freeze freezes} its results once they are computed, which
+ * encodes them once with {@link BinaryProtocol#writeResults}. From then on,
+ * sending the results to another player copies those bytes rather than
+ * encoding the results again: Java serialization, and so RMI, writes the
+ * encoded form in place of the object graph, and the binary protocol writes
+ * the bytes as they are.
+ * <p>
+ * Frozen results are an immutable snapshot: each client's information is
+ * replaced by a {@link ClientInfo#snapshot snapshot}, and the methods that
+ * would change the results throw an IllegalStateException. So any number of
+ * threads can read the results of a round without locking while the next
+ * round is played, and each round has results of its own.
+ * <p>
+ * Results can also be {@link #personalFor personal} to one player: they hold
+ * that player's information in full, and only the {@link Standing} of every
+ * other player. A player that wants to see another player's words fetches
+ * them a page at a time with {@link BoggleServer#getWordPage}, by the
+ * results' {@link #getId id}.
  **/
 public class GameResults implements Serializable{
 
@@ -21,7 +50,31 @@ public class GameResults implements Serializable{
 	 * information is associated with the client's unique name, as specified in
 	 * the call to {@link BoggleServer#startGame}.
 	 **/
-	private HashMap<String, ClientInfo> clientResults;
+	private volatile HashMap<String, ClientInfo> clientResults;
+
+	/**
+	 * The standings of the players whose information is left out of personal
+	 * results; empty in complete results.
+	 **/
+	private List<Standing> others = new ArrayList<Standing>();
+
+	/**
+	 * Identifies frozen results on the server that computed them, or 0 before
+	 * they are frozen.
+	 **/
+	private long id;
+
+	/** Issues the ids of frozen results. **/
+	private static final AtomicLong ids = new AtomicLong();
+
+	/** The standings of all players once frozen, best first. **/
+	private transient volatile List<Standing> standings;
+
+	/** The encoded results once frozen, or null before. **/
+	private transient volatile byte[] encoded;
+
+	/** True once the results are frozen. **/
+	private transient volatile boolean frozen;
 
 	/** Construct a new empty game-results object. **/
 	public GameResults() {
@@ -33,16 +86,29 @@ public class GameResults implements Serializable{
 	 * the next round of play.
 	 **/
 	public void clear() {
+		checkNotFrozen();
 		clientResults.clear();
 	}
 
 	/**
 	 * This method is used to store all results from players that participated
 	 * in the most recent round. It also computes the set of valid words that
-	 * each player actually found, and computes each player's score.
+	 * each player actually found, and computes each player's score. Words that
+	 * can't be traced on the board are stored as the player's rejected words.
+	 **/
+	public void computeResults(List<ClientInfo> playerResults, BoggleBoard board) {
+		computeResults(playerResults, DictionaryService.getInstance().getDictionary(), board);
+	}
+
+	/**
+	 * Same as {@link #computeResults(List, BoggleBoard)}, but checks the words
+	 * against the given dictionary. The dictionary is only read, never
+	 * rebuilt, so the cost of this method does not depend on the dictionary's
+	 * size.
 	 **/
-	public void computeResults(List<ClientInfo> playerResults) {
-		// TODO!
+	public void computeResults(List<ClientInfo> playerResults, Dictionary dict, BoggleBoard board) {
+		checkNotFrozen();
+		long start = System.nanoTime();
 
 		// For each client, construct a word-list containing the words that only
 		// that client found. Store this filtered word-list on that client's
@@ -61,35 +127,69 @@ public class GameResults implements Serializable{
 		// 7 5
 		// 8+ 11
 		//
-		// You can use the setScore(...) method to store the client's score.
+		// Rather than comparing every pair of clients, the first pass counts
+		// how many clients submitted each valid word, and the second pass keeps
+		// the words with a count of one. Both passes are linear in the total
+		// number of submitted words.
+		
+		// One validator for the whole round, so words that several players
+		// submitted are only traced once.
+		PathValidator validator = new PathValidator(board);
 		
-		Dictionary dict = new Dictionary();
+		Map<String, int[]> finders = new HashMap<String, int[]>();
+		List<List<String>> validWords = new ArrayList<List<String>>(playerResults.size());
 		
 		for(ClientInfo res: playerResults)
 		{
-			WordList filteredWords = new WordList();
+			List<String> valid = new ArrayList<String>();
+			WordList rejectedWords = new WordList();
 			
 			for(String str: res.getWords().getWordList())
 			{
-				if(dict.getWords().contains(str)){
-					filteredWords.addWord(str);
+				if(!validator.isTraceable(str)){
+					rejectedWords.addWord(str);
+				}
+				else if(dict.contains(str)){
+					valid.add(str);
+					
+					int[] count = finders.get(str);
+					if(count == null){
+						finders.put(str, new int[] { 1 });
+					}
+					else{
+						count[0]++;
+					}
 				}
 			}
 			
-			//add only real words, present in the dictionary
-			res.setFilteredWords(filteredWords);
-			
+			validWords.add(valid);
+			res.setRejectedWords(rejectedWords);
+		}
+		
+		for(int i = 0; i < playerResults.size(); i++)
+		{
+			ClientInfo res = playerResults.get(i);
+			WordList filteredWords = new WordList();
 			int score = 0;
-			for (String str: res.getFilteredWords().getWordList()) {
-				score += computeScore(str);
+			
+			//add only real words on the board that no other client found
+			for(String str: validWords.get(i))
+			{
+				if(finders.get(str)[0] == 1){
+					filteredWords.addWord(str);
+					score += computeScore(str);
+				}
 			}
 			
+			res.setFilteredWords(filteredWords);
 			res.setScore(score);
 			clientResults.put(res.getName(), res);
 		}
+		ServerMetrics.getInstance().getScoring().recordSince(start);
 	}
 	
-	private int computeScore(String str)
+	/** Returns the points the given word is worth. **/
+	static int computeScore(String str)
 	{
 		int score = 0;
 		switch (str.length()) {
@@ -120,6 +220,220 @@ public class GameResults implements Serializable{
 		return score;
 	}
 
+	/**
+	 * Adds the result of a single client, whose words, filtered words and
+	 * score are already set. Used by a {@link Round} that scored its words as
+	 * they came in, and to rebuild results that were sent as a
+	 * {@link BinaryProtocol} message.
+	 **/
+	void addClientResult(ClientInfo info) {
+		checkNotFrozen();
+		clientResults.put(info.getName(), info);
+	}
+
+	/**
+	 * Makes the results an immutable snapshot and encodes them, so they are
+	 * sent as the same bytes to every player. Called once the results are
+	 * complete; freezing frozen results does nothing.
+	 **/
+	void freeze() {
+		freeze(null);
+	}
+
+	/**
+	 * Freezes the results, which were decoded from the given bytes, or
+	 * encodes them if the bytes are null.
+	 **/
+	private synchronized void freeze(byte[] bytes) {
+		if (frozen)
+			return;
+
+		if (id == 0)
+			id = ids.incrementAndGet();
+		others = Collections.unmodifiableList(new ArrayList<Standing>(others));
+
+		HashMap<String, ClientInfo> snapshot = new HashMap<String, ClientInfo>(clientResults.size() * 2);
+		for (ClientInfo info : clientResults.values()) {
+			snapshot.put(info.getName(), info.snapshot());
+		}
+		clientResults = snapshot;
+		standings = computeStandings();
+
+		if (bytes == null) {
+			try {
+				long start = System.nanoTime();
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				BinaryProtocol.writeResults(new DataOutputStream(out), this);
+				bytes = out.toByteArray();
+				ServerMetrics.getInstance().getEncoding().recordSince(start);
+			} catch (IOException e) {
+				// Can't happen, writing to memory.
+				throw new IllegalStateException(e);
+			}
+		}
+		encoded = bytes;
+		// Written last, so a thread that sees the flag sees the snapshot.
+		frozen = true;
+	}
+
+	/** Returns true once the results are an immutable snapshot. **/
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Returns the results as the given player gets them in a room with
+	 * {@link RoomSettings#isPersonalResults personal results}: the player's
+	 * own information, and the standings of all players. The results must be
+	 * frozen, and so are the personal ones.
+	 **/
+	public GameResults personalFor(String clientName) {
+		if (!frozen)
+			throw new IllegalStateException("Only frozen results can be made personal");
+
+		GameResults personal = new GameResults();
+		personal.id = id;
+
+		ClientInfo mine = clientResults.get(clientName);
+		if (mine != null)
+			personal.clientResults.put(clientName, mine);
+		for (Standing standing : standings) {
+			if (!standing.getName().equals(clientName))
+				personal.others.add(standing);
+		}
+
+		personal.freeze();
+		return personal;
+	}
+
+	/**
+	 * Sets the id, and the standings of the left out players, of results that
+	 * are being decoded.
+	 **/
+	void setDecoded(long decodedId, List<Standing> decodedOthers) {
+		checkNotFrozen();
+		id = decodedId;
+		others.addAll(decodedOthers);
+	}
+
+	/** Returns the standings of the players left out of personal results. **/
+	List<Standing> getOthers() {
+		return others;
+	}
+
+	private List<Standing> computeStandings() {
+		List<Standing> all = new ArrayList<Standing>(others);
+		for (ClientInfo info : clientResults.values())
+			all.add(Standing.of(info));
+
+		Collections.sort(all, new Comparator<Standing>() {
+			public int compare(Standing a, Standing b) {
+				if (a.getScore() != b.getScore())
+					return a.getScore() > b.getScore() ? -1 : 1;
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return Collections.unmodifiableList(all);
+	}
+
+	/**
+	 * Returns the id of the results, by which the server that computed them
+	 * finds them, or 0 if they aren't frozen.
+	 **/
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns true if the results hold the information of every player, and
+	 * false if they are personal results.
+	 **/
+	public boolean isComplete() {
+		return others.isEmpty();
+	}
+
+	/**
+	 * Returns the standings of all players of the round, those with the
+	 * highest score first.
+	 **/
+	public List<Standing> getStandings() {
+		List<Standing> s = standings;
+		return s != null ? s : computeStandings();
+	}
+
+	/**
+	 * Returns a page of the words the specified client submitted, or
+	 * <tt>null</tt> if the name is unrecognized. A page past the last one
+	 * holds no words.
+	 **/
+	public WordPage getWordPage(String clientName, int page) {
+		ClientInfo info = clientResults.get(clientName);
+		if (info == null)
+			return null;
+		if (page < 0)
+			throw new IllegalArgumentException("Bad page " + page);
+
+		List<String> words = new ArrayList<String>();
+		if (info.getWords() != null)
+			words.addAll(info.getWords().getWordList());
+		Collections.sort(words);
+
+		int pageCount = Math.max(1, (words.size() + WordPage.PAGE_SIZE - 1) / WordPage.PAGE_SIZE);
+		int from = (int) Math.min(words.size(), (long) page * WordPage.PAGE_SIZE);
+		List<String> onPage = words.subList(from, Math.min(words.size(), from + WordPage.PAGE_SIZE));
+
+		List<String> scored = new ArrayList<String>();
+		List<String> rejected = new ArrayList<String>();
+		for (String word : onPage) {
+			if (info.getFilteredWords() != null && info.getFilteredWords().containsWord(word))
+				scored.add(word);
+			if (info.getRejectedWords() != null && info.getRejectedWords().containsWord(word))
+				rejected.add(word);
+		}
+		return new WordPage(clientName, page, pageCount, onPage, scored, rejected);
+	}
+
+	/** Throws an IllegalStateException if the results are frozen. **/
+	private void checkNotFrozen() {
+		if (frozen)
+			throw new IllegalStateException("The results of a round can't be changed");
+	}
+
+	/** Returns the encoded results if they are frozen, or null. **/
+	byte[] getEncoded() {
+		return encoded;
+	}
+
+	/** Serializes frozen results as their encoded bytes. **/
+	private Object writeReplace() {
+		byte[] e = encoded;
+		return e == null ? this : new Encoded(e);
+	}
+
+	/** The serialized form of frozen results. **/
+	private static class Encoded implements Serializable {
+
+		private static final long serialVersionUID = 4133275213006391254L;
+
+		private final byte[] bytes;
+
+		Encoded(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			try {
+				GameResults results = BinaryProtocol.readResults(new DataInputStream(new ByteArrayInputStream(bytes)));
+				results.freeze(bytes);
+				return results;
+			} catch (IOException e) {
+				InvalidObjectException invalid = new InvalidObjectException("Bad encoded results");
+				invalid.initCause(e);
+				throw invalid;
+			}
+		}
+	}
+
 	/**
 	 * Returns an unmodifiable version of the {@link #clientResults} map, which
 	 * contains all of the game results for the current round of Boggle.
@@ -0,0 +1,160 @@
+package tamm.org.boggle.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values, e.g. times or sizes, that any number of
+ * threads record into without taking a lock.
+ * <p>
+ * Like an HDR histogram, it has a fixed set of buckets that grow
+ * exponentially: each power of two is split into {@link #SUB_BUCKETS} equal
+ * buckets, so a value is known to within an eighth of itself, at any
+ * magnitude. Recording a value is a few atomic adds. The statistics are read
+ * without stopping the writers, so they may be off by the values recorded
+ * while they are read.
+ **/
+public class Histogram implements HistogramMBean {
+
+	/** The number of buckets each power of two is split into. **/
+	static final int SUB_BUCKETS = 8;
+
+	/** log2 of {@link #SUB_BUCKETS} **/
+	private static final int SUB_BITS = 3;
+
+	/** Enough buckets for any long. **/
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+	private final String name;
+	private final String unit;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Constructs a new, empty histogram.
+	 *
+	 * @param name the name of the histogram
+	 * @param unit the unit of the values, for the dump
+	 **/
+	public Histogram(String name, String unit) {
+		this.name = name;
+		this.unit = unit;
+	}
+
+	/** Records a value. Negative values are recorded as 0. **/
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+
+		buckets.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Records the time since the given {@link System#nanoTime}, in
+	 * microseconds.
+	 **/
+	public void recordSince(long startNanos) {
+		record((System.nanoTime() - startNanos) / 1000);
+	}
+
+	/** Returns the bucket of a value. **/
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/** Returns the smallest value of a bucket. **/
+	static long lowestOf(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	public String getDescription() {
+		return name + " (" + unit + ")";
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMedian() {
+		return getPercentile(50);
+	}
+
+	public long get90thPercentile() {
+		return getPercentile(90);
+	}
+
+	public long get99thPercentile() {
+		return getPercentile(99);
+	}
+
+	/**
+	 * Returns the value that the given percentage of the recorded values are
+	 * at most, to within the width of its bucket, or 0 if nothing was
+	 * recorded.
+	 *
+	 * @param percent between 0 and 100
+	 **/
+	public long getPercentile(double percent) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(total * percent / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// The highest value of the bucket, but never above the max.
+				long next = i + 1 < BUCKETS ? lowestOf(i + 1) : 0;
+				return next > 0 ? Math.min(next - 1, getMax()) : getMax();
+			}
+		}
+		return getMax();
+	}
+
+	/** Returns a line with the histogram's statistics, for the dump. **/
+	@Override
+	public String toString() {
+		return String.format("%s (%s): count %d, mean %.1f, p50 %d, p90 %d, p99 %d, max %d", name, unit,
+				getCount(), getMean(), getMedian(), get90thPercentile(), get99thPercentile(), getMax());
+	}
+}
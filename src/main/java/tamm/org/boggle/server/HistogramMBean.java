@@ -0,0 +1,23 @@
+package tamm.org.boggle.server;
+
+/**
+ * The management interface of a {@link Histogram}, as it is shown through
+ * JMX.
+ **/
+public interface HistogramMBean {
+
+	/** Returns what is measured, and in what unit. **/
+	String getDescription();
+
+	long getCount();
+
+	double getMean();
+
+	long getMax();
+
+	long getMedian();
+
+	long get90thPercentile();
+
+	long get99thPercentile();
+}
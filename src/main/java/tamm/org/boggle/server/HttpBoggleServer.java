@@ -0,0 +1,608 @@
+package tamm.org.boggle.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.WordList;
+
+/**
+ * A third transport for a {@link BoggleServerApp}, next to RMI and the binary
+ * protocol: an HTTP server that speaks JSON, for clients and load tools that
+ * aren't written in Java. It plays through the asynchronous calls of the
+ * Boggle server, so its players share rooms and rounds with everyone else.
+ * <p>
+ * The endpoints are
+ * <ul>
+ * <li><tt>POST /join?name=&amp;room=</tt> joins a room, and returns the
+ * ticket of the game</li>
+ * <li><tt>GET /board?ticket=&amp;wait=</tt> returns the board once the round
+ * has started, with a {@link BloomFilter} of its words</li>
+ * <li><tt>POST /words?ticket=</tt> sends the words in the body, one per
+ * line, while the round is played, and returns how many are valid</li>
+ * <li><tt>POST /heartbeat?ticket=</tt> renews the lease of the game, see
+ * {@link BoggleServerApp#heartbeat}</li>
+ * <li><tt>POST /submit?ticket=</tt> submits the words in the body, one per
+ * line</li>
+ * <li><tt>GET /results?ticket=&amp;wait=</tt> returns the results once the
+ * round is over; personal results also hold the standings of all players</li>
+ * <li><tt>GET /wordPage?results=&amp;name=&amp;page=</tt> returns a page of
+ * the words of a player left out of personal results</li>
+ * <li><tt>GET /rooms</tt> lists the rooms</li>
+ * <li><tt>GET /time</tt> returns the time by the server's clock, which the
+ * board's <tt>deadline</tt> is set by</li>
+ * </ul>
+ * <tt>/board</tt> and <tt>/results</tt> long-poll: they answer as soon as
+ * there is something to answer, or after waiting at most <tt>wait</tt>
+ * seconds. A waiting request holds no thread; it's answered by whichever
+ * thread completes the game's board or results, or by the timer.
+ * <p>
+ * Handlers run on a {@link ServerExecutors#newBlockingExecutor}, and write
+ * their responses through a {@link JsonWriter} as they go. The players of a
+ * round's complete results are the same for everyone, so they are encoded
+ * as UTF-8 JSON once, and the bytes are copied into the response of every
+ * player; personal results are written straight to each response.
+ **/
+public class HttpBoggleServer {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(HttpBoggleServer.class);
+
+	/** The port the server listens on unless it's told otherwise. **/
+	public static final int DEFAULT_PORT = 8099;
+
+	/** The longest a request may ask to wait for, in seconds. **/
+	public static final int MAX_WAIT = 60;
+
+	/** How long the results of a game are kept for clients to fetch, in seconds. **/
+	private static final int RESULTS_KEPT = 60;
+
+	private final BoggleServerApp app;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/** Times out long polls, and forgets old games. **/
+	private final ScheduledExecutorService timer;
+
+	/** The games joined over HTTP, by ticket. **/
+	private final Map<Long, HttpGame> games = new ConcurrentHashMap<Long, HttpGame>();
+
+	/**
+	 * The players of each round's complete results as UTF-8 JSON, written
+	 * once per round. Weak, so the JSON goes with the results.
+	 **/
+	private final Map<GameResults, byte[]> resultsJson = Collections
+			.synchronizedMap(new WeakHashMap<GameResults, byte[]>());
+
+	/**
+	 * A game joined over HTTP. It is the game's listener, and keeps what it
+	 * hears until the client asks for it.
+	 **/
+	private class HttpGame implements BoggleListener {
+
+		private final CompletableFuture<BoardSpec> board = new CompletableFuture<BoardSpec>();
+		private final CompletableFuture<GameResults> results = new CompletableFuture<GameResults>();
+		private volatile int roundLength;
+		private volatile int secondsRemaining;
+
+		public void roundStarted(long ticket, BoardSpec spec, int length) {
+			roundLength = length;
+			secondsRemaining = length;
+			board.complete(spec);
+		}
+
+		public void tick(long ticket, int seconds) {
+			secondsRemaining = seconds;
+		}
+
+		public void resultsReady(final long ticket, GameResults res) {
+			results.complete(res);
+			timer.schedule(new Runnable() {
+				public void run() {
+					games.remove(ticket);
+				}
+			}, RESULTS_KEPT, TimeUnit.SECONDS);
+		}
+	}
+
+	/** The answer to a request that can't be served. **/
+	private static class HttpError extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		HttpError(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Constructs a new server for the given Boggle server, and binds it to the
+	 * given port. Port 0 picks a free port.
+	 **/
+	public HttpBoggleServer(BoggleServerApp app, int port) throws IOException {
+		if (app == null)
+			throw new NullPointerException();
+
+		this.app = app;
+		executor = ServerExecutors.newBlockingExecutor("boggle-http");
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "boggle-http-timer");
+			t.setDaemon(true);
+			return t;
+		});
+
+		server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.setExecutor(executor);
+		server.createContext("/join", handler(this::join));
+		server.createContext("/board", handler(this::board));
+		server.createContext("/words", handler(this::words));
+		server.createContext("/heartbeat", handler(this::heartbeat));
+		server.createContext("/submit", handler(this::submit));
+		server.createContext("/results", handler(this::results));
+		server.createContext("/wordPage", handler(this::wordPage));
+		server.createContext("/rooms", handler(this::rooms));
+		server.createContext("/time", handler(this::time));
+	}
+
+	/** Returns the port the server listens on. **/
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public void start() {
+		server.start();
+		logger.info("HTTP server listening on port " + getPort());
+	}
+
+	/** Stops the server; waiting requests are dropped. **/
+	public void stop() {
+		server.stop(0);
+		timer.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	/** The handling of one endpoint. **/
+	private interface Endpoint {
+		void handle(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError;
+	}
+
+	/** Wraps an endpoint, and turns its errors into responses. **/
+	private HttpHandler handler(final Endpoint endpoint) {
+		return exchange -> {
+			try {
+				endpoint.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+			} catch (HttpError e) {
+				sendError(exchange, e.status, e.getMessage());
+			} catch (RuntimeException e) {
+				logger.warn("Request failed.", e);
+				sendError(exchange, 500, String.valueOf(e.getMessage()));
+			}
+		};
+	}
+
+	private void join(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "POST");
+		String name = require(params, "name");
+		String room = params.containsKey("room") ? params.get("room") : RoomManager.DEFAULT_ROOM;
+
+		HttpGame game = new HttpGame();
+		long ticket;
+		try {
+			ticket = app.joinGame(name, room, BoardGenerator.VERSION, game);
+		} catch (PlayerException e) {
+			throw new HttpError(409, e.getMessage());
+		} catch (RoomException e) {
+			throw new HttpError(404, e.getMessage());
+		}
+		games.put(ticket, game);
+
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginObject().name("ticket").value(ticket).endObject();
+		endJson(exchange, json);
+	}
+
+	private void board(final HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "GET");
+		final long ticket = ticket(params);
+		final HttpGame game = game(ticket);
+
+		longPoll(exchange, game.board, waitMillis(params), () -> {
+			JsonWriter json = beginJson(exchange, 200);
+			json.beginObject().name("ticket").value(ticket);
+
+			BoardSpec spec = game.board.getNow(null);
+			json.name("started").value(spec != null);
+			if (spec != null) {
+				json.name("size").value(spec.getSize());
+				json.name("roundLength").value(game.roundLength);
+				json.name("secondsRemaining").value(game.secondsRemaining);
+				if (spec.getDeadline() != 0)
+					json.name("deadline").value(spec.getDeadline());
+				json.name("board").beginArray();
+				for (String[] row : spec.toBoard().getFieldValues()) {
+					json.beginArray();
+					for (String letter : row)
+						json.value(letter);
+					json.endArray();
+				}
+				json.endArray();
+
+				BloomFilter filter = spec.getWordFilter();
+				if (filter != null) {
+					json.name("wordFilter").beginObject();
+					json.name("bitCount").value(filter.getBitCount());
+					json.name("hashCount").value(filter.getHashCount());
+					json.name("bits").value(Base64.getEncoder().encodeToString(filter.toByteArray()));
+					json.endObject();
+				}
+			}
+
+			json.endObject();
+			endJson(exchange, json);
+		});
+	}
+
+	private void words(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "POST");
+		long ticket = ticket(params);
+		game(ticket);
+
+		WordList words = readWords(exchange);
+		int valid;
+		try {
+			valid = app.submitBatch(ticket, words);
+		} catch (PlayerException e) {
+			throw new HttpError(409, e.getMessage());
+		}
+
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginObject().name("ticket").value(ticket).name("words").value(words.size());
+		json.name("valid").value(valid).endObject();
+		endJson(exchange, json);
+	}
+
+	private void heartbeat(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "POST");
+		long ticket = ticket(params);
+		game(ticket);
+
+		try {
+			app.heartbeat(ticket);
+		} catch (PlayerException e) {
+			throw new HttpError(404, e.getMessage());
+		}
+
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginObject().name("ticket").value(ticket).endObject();
+		endJson(exchange, json);
+	}
+
+	private void submit(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "POST");
+		long ticket = ticket(params);
+		game(ticket);
+
+		WordList words = readWords(exchange);
+		try {
+			app.submitWords(ticket, words);
+		} catch (PlayerException e) {
+			throw new HttpError(409, e.getMessage());
+		}
+
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginObject().name("ticket").value(ticket).name("words").value(words.size()).endObject();
+		endJson(exchange, json);
+	}
+
+	private void results(final HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "GET");
+		final long ticket = ticket(params);
+		final HttpGame game = game(ticket);
+
+		longPoll(exchange, game.results, waitMillis(params), () -> {
+			JsonWriter json = beginJson(exchange, 200);
+			json.beginObject().name("ticket").value(ticket);
+
+			GameResults results = game.results.getNow(null);
+			json.name("ready").value(results != null);
+			if (results != null) {
+				json.name("resultsId").value(results.getId());
+				json.name("players");
+				if (results.isComplete())
+					json.rawValue(playersJson(results), exchange.getResponseBody());
+				else
+					writePlayers(json, results);
+				if (!results.isComplete()) {
+					json.name("standings").beginArray();
+					for (Standing standing : results.getStandings()) {
+						json.beginObject();
+						json.name("name").value(standing.getName());
+						json.name("score").value(standing.getScore());
+						json.name("wordCount").value(standing.getWordCount());
+						json.endObject();
+					}
+					json.endArray();
+				}
+			}
+
+			json.endObject();
+			endJson(exchange, json);
+		});
+	}
+
+	/**
+	 * Returns the players of complete results as a JSON array in UTF-8. They
+	 * are the same for every player of the round, so they're only written
+	 * once.
+	 **/
+	private byte[] playersJson(GameResults results) throws IOException {
+		byte[] players = resultsJson.get(results);
+		if (players != null)
+			return players;
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonWriter json = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writePlayers(json, results);
+		json.flush();
+
+		// Several players may get here at once; they all write the same.
+		players = out.toByteArray();
+		resultsJson.put(results, players);
+		return players;
+	}
+
+	/** Writes the players of the results as a JSON array. **/
+	private static void writePlayers(JsonWriter json, GameResults results) throws IOException {
+		json.beginArray();
+		for (ClientInfo info : results.getClientResults().values()) {
+			json.beginObject();
+			json.name("name").value(info.getName());
+			json.name("score").value(info.getScore());
+			writeWords(json.name("words"), info.getWords());
+			writeWords(json.name("scored"), info.getFilteredWords());
+			writeWords(json.name("rejected"), info.getRejectedWords());
+			json.endObject();
+		}
+		json.endArray();
+	}
+
+	private void wordPage(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "GET");
+		long resultsId = number(params, "results");
+		String name = require(params, "name");
+		int page = params.containsKey("page") ? (int) number(params, "page") : 0;
+
+		WordPage words;
+		try {
+			words = app.getWordPage(resultsId, name, page);
+		} catch (PlayerException e) {
+			throw new HttpError(404, e.getMessage());
+		}
+
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginObject();
+		json.name("name").value(words.getPlayerName());
+		json.name("page").value(words.getPage());
+		json.name("pageCount").value(words.getPageCount());
+		writeWords(json.name("words"), words.getWords());
+		writeWords(json.name("scored"), words.getScoredWords());
+		writeWords(json.name("rejected"), words.getRejectedWords());
+		json.endObject();
+		endJson(exchange, json);
+	}
+
+	private void rooms(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "GET");
+		List<RoomInfo> rooms = app.listRooms();
+
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginArray();
+		for (RoomInfo info : rooms) {
+			RoomSettings settings = info.getSettings();
+			json.beginObject();
+			json.name("name").value(info.getName());
+			json.name("waiting").value(info.getWaitingCount());
+			json.name("roundsStarted").value(info.getRoundsStarted());
+			json.name("minPlayers").value(settings.getMinPlayers());
+			json.name("boardSize").value(settings.getBoardSize());
+			json.name("roundLength").value(settings.getRoundLength());
+			json.name("personalResults").value(settings.isPersonalResults());
+			json.endObject();
+		}
+		json.endArray();
+		endJson(exchange, json);
+	}
+
+	private void time(HttpExchange exchange, Map<String, String> params) throws IOException, HttpError {
+		requireMethod(exchange, "GET");
+		JsonWriter json = beginJson(exchange, 200);
+		json.beginObject().name("serverTime").value(app.getServerTime()).endObject();
+		endJson(exchange, json);
+	}
+
+	/** Reads the words in the request body, one per line. **/
+	private static WordList readWords(HttpExchange exchange) throws IOException {
+		WordList words = new WordList();
+		BufferedReader body = new BufferedReader(
+				new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+		String line;
+		while ((line = body.readLine()) != null) {
+			line = line.trim();
+			if (!line.isEmpty())
+				words.addWord(line);
+		}
+		return words;
+	}
+
+	private static void writeWords(JsonWriter json, WordList words) throws IOException {
+		writeWords(json, words == null ? Collections.<String>emptySet() : words.getWordList());
+	}
+
+	private static void writeWords(JsonWriter json, Collection<String> words) throws IOException {
+		json.beginArray();
+		for (String word : words)
+			json.value(word);
+		json.endArray();
+	}
+
+	/** Writes a response from the current state of a game. **/
+	private interface Response {
+		void send() throws IOException;
+	}
+
+	/**
+	 * Sends the response once the event has happened, or once the wait is
+	 * over. Returns right away; the response is sent by the thread that
+	 * completes the event, or by the timer.
+	 **/
+	private void longPoll(final HttpExchange exchange, CompletableFuture<?> event, long waitMillis,
+			final Response response) throws IOException {
+		if (event.isDone() || waitMillis <= 0) {
+			response.send();
+			return;
+		}
+
+		final AtomicBoolean sent = new AtomicBoolean();
+		final Runnable once = () -> {
+			if (!sent.compareAndSet(false, true))
+				return;
+			try {
+				response.send();
+			} catch (IOException e) {
+				logger.debug("Can't send a response: " + e.getMessage());
+			} catch (RuntimeException e) {
+				logger.warn("Request failed.", e);
+				try {
+					sendError(exchange, 500, String.valueOf(e.getMessage()));
+				} catch (IOException | RuntimeException e2) {
+					// The response was already under way.
+					logger.debug("Can't send the error: " + e2.getMessage());
+				}
+			} finally {
+				exchange.close();
+			}
+		};
+
+		final ScheduledFuture<?> timeout = timer.schedule(() -> executor.execute(once), waitMillis,
+				TimeUnit.MILLISECONDS);
+		event.whenCompleteAsync((value, failure) -> {
+			timeout.cancel(false);
+			once.run();
+		}, executor);
+	}
+
+	private static JsonWriter beginJson(HttpExchange exchange, int status) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		// 0 sends the body in chunks, as it's written
+		exchange.sendResponseHeaders(status, 0);
+		return new JsonWriter(new BufferedWriter(
+				new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+	}
+
+	private static void endJson(HttpExchange exchange, JsonWriter json) throws IOException {
+		json.flush();
+		exchange.close();
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		JsonWriter json = beginJson(exchange, status);
+		json.beginObject().name("error").value(message).endObject();
+		endJson(exchange, json);
+	}
+
+	private static void requireMethod(HttpExchange exchange, String method) throws HttpError {
+		if (!method.equals(exchange.getRequestMethod()))
+			throw new HttpError(405, "Use " + method);
+	}
+
+	private static String require(Map<String, String> params, String name) throws HttpError {
+		String value = params.get(name);
+		if (value == null || value.isEmpty())
+			throw new HttpError(400, "Missing parameter " + name);
+		return value;
+	}
+
+	private static long ticket(Map<String, String> params) throws HttpError {
+		return number(params, "ticket");
+	}
+
+	private static long number(Map<String, String> params, String name) throws HttpError {
+		try {
+			return Long.parseLong(require(params, name));
+		} catch (NumberFormatException e) {
+			throw new HttpError(400, "Bad " + name);
+		}
+	}
+
+	private static long waitMillis(Map<String, String> params) throws HttpError {
+		if (!params.containsKey("wait"))
+			return 0;
+
+		try {
+			int seconds = Integer.parseInt(params.get("wait"));
+			return TimeUnit.SECONDS.toMillis(Math.max(0, Math.min(seconds, MAX_WAIT)));
+		} catch (NumberFormatException e) {
+			throw new HttpError(400, "Bad wait");
+		}
+	}
+
+	private HttpGame game(long ticket) throws HttpError {
+		HttpGame game = games.get(ticket);
+		if (game == null)
+			throw new HttpError(404, "Unknown ticket " + ticket);
+		return game;
+	}
+
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> params = new HashMap<String, String>();
+		if (query == null)
+			return params;
+
+		try {
+			for (String pair : query.split("&")) {
+				int eq = pair.indexOf('=');
+				if (eq < 0)
+					params.put(URLDecoder.decode(pair, "UTF-8"), "");
+				else
+					params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+							URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+			}
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always there.
+			throw new IllegalStateException(e);
+		}
+		return params;
+	}
+}
@@ -0,0 +1,153 @@
+package tamm.org.boggle.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Writes JSON straight to a {@link Writer} as it goes, so a board or a set of
+ * results is never built up as a string first. Objects and arrays are opened
+ * and closed explicitly; the writer puts in the commas and colons.
+ * <p>
+ * The writer checks nesting only as far as it needs to: closing more than
+ * was opened fails, anything else is up to the caller.
+ **/
+public class JsonWriter {
+
+	private final Writer out;
+
+	/** Per open object or array: true once it has its first element. **/
+	private final Deque<Boolean> scopes = new ArrayDeque<Boolean>();
+
+	/** True right after a name, when the value needs no comma. **/
+	private boolean afterName;
+
+	public JsonWriter(Writer out) {
+		this.out = out;
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		separate();
+		out.write('{');
+		scopes.push(false);
+		return this;
+	}
+
+	public JsonWriter endObject() throws IOException {
+		close();
+		out.write('}');
+		return this;
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		separate();
+		out.write('[');
+		scopes.push(false);
+		return this;
+	}
+
+	public JsonWriter endArray() throws IOException {
+		close();
+		out.write(']');
+		return this;
+	}
+
+	/** Writes the name of the next member of an object. **/
+	public JsonWriter name(String name) throws IOException {
+		separate();
+		string(name);
+		out.write(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(String value) throws IOException {
+		separate();
+		if (value == null)
+			out.write("null");
+		else
+			string(value);
+		return this;
+	}
+
+	public JsonWriter value(long value) throws IOException {
+		separate();
+		out.write(Long.toString(value));
+		return this;
+	}
+
+	public JsonWriter value(boolean value) throws IOException {
+		separate();
+		out.write(value ? "true" : "false");
+		return this;
+	}
+
+	/**
+	 * Writes a value that is already JSON in UTF-8, e.g. written by another
+	 * writer before, as it is. The bytes go straight to the stream that this
+	 * writer's {@link Writer} writes to, after what is written so far.
+	 **/
+	public JsonWriter rawValue(byte[] utf8, OutputStream stream) throws IOException {
+		separate();
+		out.flush();
+		stream.write(utf8);
+		return this;
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/** Writes the comma before an element, unless it's the first one. **/
+	private void separate() throws IOException {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+
+		if (!scopes.isEmpty()) {
+			if (scopes.pop())
+				out.write(',');
+			scopes.push(true);
+		}
+	}
+
+	private void close() {
+		if (scopes.isEmpty())
+			throw new IllegalStateException("Nothing to close");
+		scopes.pop();
+	}
+
+	private void string(String s) throws IOException {
+		out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				out.write("\\\"");
+				break;
+			case '\\':
+				out.write("\\\\");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			case '\t':
+				out.write("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.write(String.format("\\u%04x", (int) c));
+				} else {
+					out.write(c);
+				}
+			}
+		}
+		out.write('"');
+	}
+}
@@ -0,0 +1,225 @@
+package tamm.org.boggle.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class collects the clients that want to play the next round of Boggle,
+ * and decides when that round starts: once at least a minimum number of
+ * clients are waiting, and no other client has joined for a while.
+ * <p>
+ * Nothing polls. Every join moves the start deadline, and the start itself is
+ * a task on a scheduled executor that runs exactly when the deadline passes.
+ * When it runs, the waiting clients are handed to the round starter as the
+ * players of the new round. The lobby's lock is only held for the few
+ * instructions it takes to update the waiting list and the deadline, and
+ * never while the round starter runs.
+ * <p>
+ * The lobby can be closed while a round is in progress, in which case clients
+ * keep joining but no round starts until it is opened again.
+ **/
+public class Lobby {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(Lobby.class);
+
+	/** The minimum number of players needed to start a round. **/
+	private final int minPlayers;
+
+	/**
+	 * How long to wait after the last client joins before starting the round,
+	 * in milliseconds.
+	 **/
+	private final long startTimeout;
+
+	private final ScheduledExecutorService scheduler;
+
+	/** Receives the players of every round the lobby starts. **/
+	private final Consumer<List<ClientInfo>> roundStarter;
+
+	/** Guards all of the fields below. **/
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** The clients waiting for the next round, in the order they joined. **/
+	private List<ClientInfo> waiting = new ArrayList<ClientInfo>();
+
+	/** When each of the {@link #waiting} clients joined, by System.nanoTime. **/
+	private List<Long> joinTimes = new ArrayList<Long>();
+
+	/** Whether a round may be started at all. **/
+	private boolean open = true;
+
+	/** The time the pending start is due, in milliseconds. **/
+	private long deadline;
+
+	/** The pending start task, or null if there is none. **/
+	private ScheduledFuture<?> pendingStart;
+
+	/** Counts reschedules, so a start task can tell if it was replaced. **/
+	private long generation;
+
+	/** Round-start lag statistics, in milliseconds. **/
+	private long rounds;
+	private long totalLag;
+	private long maxLag;
+
+	/**
+	 * Constructs a new lobby.
+	 *
+	 * @param minPlayers the minimum number of players in a round
+	 * @param startTimeout how long to wait after the last join, in milliseconds
+	 * @param scheduler runs the round starts
+	 * @param roundStarter is called with the players of each new round
+	 **/
+	public Lobby(int minPlayers, long startTimeout, ScheduledExecutorService scheduler,
+			Consumer<List<ClientInfo>> roundStarter) {
+		if (scheduler == null || roundStarter == null)
+			throw new NullPointerException();
+
+		this.minPlayers = minPlayers;
+		this.startTimeout = startTimeout;
+		this.scheduler = scheduler;
+		this.roundStarter = roundStarter;
+	}
+
+	/**
+	 * Adds a client to the waiting list and pushes the start of the next round
+	 * back to {@link #startTimeout} from now.
+	 **/
+	public void join(ClientInfo client) {
+		lock.lock();
+		try {
+			waiting.add(client);
+			joinTimes.add(System.nanoTime());
+			reschedule();
+		} finally {
+			lock.unlock();
+		}
+		ServerMetrics.getInstance().playersWaiting(1);
+	}
+
+	/**
+	 * Opens or closes the lobby. When it is opened, the start timeout begins
+	 * again for the clients that are already waiting.
+	 **/
+	public void setOpen(boolean open) {
+		lock.lock();
+		try {
+			this.open = open;
+			reschedule();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of clients waiting for the next round. **/
+	public int getWaitingCount() {
+		lock.lock();
+		try {
+			return waiting.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels the pending start, and schedules a new one if a round could
+	 * start. Must be called with the lock held.
+	 **/
+	private void reschedule() {
+		if (pendingStart != null) {
+			pendingStart.cancel(false);
+			pendingStart = null;
+		}
+
+		final long scheduled = ++generation;
+
+		if (open && waiting.size() >= minPlayers) {
+			deadline = System.currentTimeMillis() + startTimeout;
+			pendingStart = scheduler.schedule(new Runnable() {
+				public void run() {
+					start(scheduled);
+				}
+			}, startTimeout, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Runs when a start deadline passes. The start may have been cancelled or
+	 * replaced just as it began to run, so it only goes ahead if it is still
+	 * the pending one.
+	 **/
+	private void start(long scheduled) {
+		List<ClientInfo> players;
+		List<Long> joined;
+		long lag;
+
+		lock.lock();
+		try {
+			if (scheduled != generation || !open || waiting.size() < minPlayers)
+				return;
+
+			pendingStart = null;
+			players = waiting;
+			waiting = new ArrayList<ClientInfo>();
+			joined = joinTimes;
+			joinTimes = new ArrayList<Long>();
+
+			lag = System.currentTimeMillis() - deadline;
+			rounds++;
+			totalLag += lag;
+			maxLag = Math.max(maxLag, lag);
+		} finally {
+			lock.unlock();
+		}
+
+		ServerMetrics metrics = ServerMetrics.getInstance();
+		metrics.playersWaiting(-players.size());
+		for (long joinTime : joined)
+			metrics.getLobbyWait().recordSince(joinTime);
+
+		logger.info("Starting a round of " + players.size() + " players, " + lag
+				+ " ms after the join deadline.");
+		roundStarter.accept(players);
+	}
+
+	/** Returns the number of rounds this lobby has started. **/
+	public long getRoundsStarted() {
+		lock.lock();
+		try {
+			return rounds;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the average time between a round's join deadline and its actual
+	 * start, in milliseconds.
+	 **/
+	public double getAverageStartLag() {
+		lock.lock();
+		try {
+			return rounds == 0 ? 0 : (double) totalLag / rounds;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the longest start lag seen, in milliseconds. **/
+	public long getMaxStartLag() {
+		lock.lock();
+		try {
+			return maxLag;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
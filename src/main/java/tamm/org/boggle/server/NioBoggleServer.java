@@ -0,0 +1,441 @@
+package tamm.org.boggle.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import tamm.org.boggle.board.WordList;
+
+/**
+ * A second transport for a {@link BoggleServerApp}, next to RMI: a TCP server
+ * that speaks the {@link BinaryProtocol}. It serves the asynchronous calls of
+ * the Boggle server, so players on either transport share the same rooms and
+ * play in the same rounds.
+ * <p>
+ * A single selector thread accepts connections, reads requests and writes
+ * replies. Quick requests are handled right on that thread. Submitted words
+ * are checked against the dictionary and the board, and the last word-list
+ * of a round has the round scored, so those requests are handed off to
+ * another thread, in the order they arrived on the connection, rather than
+ * holding up every other connection. Their replies, like the events of a
+ * game, are sent from whichever thread they are ready on: their frames are
+ * queued on the connection, and the selector thread writes them out.
+ **/
+public class NioBoggleServer implements Runnable {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(NioBoggleServer.class);
+
+	/** The port the server listens on unless it's told otherwise. **/
+	public static final int DEFAULT_PORT = 4099;
+
+	/** The initial size of a connection's read buffer. **/
+	private static final int READ_BUFFER_SIZE = 4096;
+
+	private final BoggleServerApp app;
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+
+	/** Handles the requests that take too long for the selector thread. **/
+	private final ExecutorService submissions = ServerExecutors.newBlockingExecutor("boggle-nio-submit");
+
+	/** Connections with frames queued since the selector last looked. **/
+	private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<Connection>();
+
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	private Thread thread;
+
+	/**
+	 * Constructs a new server for the given Boggle server, and binds it to the
+	 * given port. Port 0 picks a free port.
+	 **/
+	public NioBoggleServer(BoggleServerApp app, int port) throws IOException {
+		if (app == null)
+			throw new NullPointerException();
+
+		this.app = app;
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/** Returns the port the server listens on. **/
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/** Starts the selector thread. **/
+	public synchronized void start() {
+		if (thread != null)
+			throw new IllegalStateException("Server already started");
+
+		thread = new Thread(this, "boggle-nio");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("Binary protocol server listening on port " + getPort());
+	}
+
+	/** Stops the selector thread, and closes all connections. **/
+	public synchronized void stop() {
+		try {
+			selector.close();
+			serverChannel.close();
+			submissions.shutdownNow();
+		} catch (IOException e) {
+			logger.warn("Error while stopping the binary protocol server.", e);
+		}
+	}
+
+	/** Returns the number of bytes read from all connections so far. **/
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/** Returns the number of bytes written to all connections so far. **/
+	public long getBytesWritten() {
+		return bytesWritten.get();
+	}
+
+	/**
+	 * The selector loop.
+	 **/
+	public void run() {
+		try {
+			while (selector.isOpen()) {
+				selector.select();
+
+				Connection pending;
+				while ((pending = pendingWrites.poll()) != null)
+					pending.enableWrites();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+
+					try {
+						if (!key.isValid())
+							continue;
+						if (key.isAcceptable())
+							accept();
+						if (key.isValid() && key.isReadable())
+							((Connection) key.attachment()).read();
+						if (key.isValid() && key.isWritable())
+							((Connection) key.attachment()).write();
+					} catch (IOException e) {
+						logger.debug("Closing connection: " + e.getMessage());
+						if (key.attachment() != null)
+							((Connection) key.attachment()).close();
+					}
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			// Stopped by stop().
+		} catch (IOException e) {
+			logger.error("Binary protocol server failed.", e);
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null)
+			return;
+
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+
+	/** A request that is handed off from the selector thread. **/
+	private interface Request {
+		BinaryProtocol.FrameBuilder run() throws IOException, PlayerException;
+	}
+
+	/**
+	 * A single client connection. It is also the listener of all games joined
+	 * over it, so their events are sent back over the same connection. When
+	 * the connection is lost, its games' rounds go on without them.
+	 **/
+	private class Connection implements BoggleListener {
+
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		private final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<ByteBuffer>();
+
+		/** The tickets of the games joined over this connection. **/
+		private final Set<Long> tickets = new HashSet<Long>();
+
+		/**
+		 * The last of the connection's requests handed off to
+		 * {@link #submissions}, so the next one runs after it.
+		 **/
+		private CompletableFuture<Void> lastHandedOff = CompletableFuture.completedFuture(null);
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/** Reads what is available, and handles every complete frame. **/
+		void read() throws IOException {
+			int n = channel.read(in);
+			if (n < 0)
+				throw new IOException("Connection closed by client");
+			bytesRead.addAndGet(n);
+
+			in.flip();
+			int length;
+			while ((length = BinaryProtocol.completeFrame(in)) >= 0) {
+				in.getInt();
+				byte[] frame = new byte[length];
+				in.get(frame);
+				handle(new DataInputStream(new ByteArrayInputStream(frame)));
+			}
+			in.compact();
+
+			// Make room for a frame larger than the buffer.
+			if (!in.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.min(in.capacity() * 2, BinaryProtocol.MAX_FRAME + 4));
+				in.flip();
+				larger.put(in);
+				in = larger;
+			}
+		}
+
+		/** Handles a single request, and queues its reply. **/
+		private void handle(DataInputStream frame) throws IOException {
+			byte type = frame.readByte();
+			int request = BinaryProtocol.readVarInt(frame);
+			BinaryProtocol.FrameBuilder reply;
+
+			try {
+				switch (type) {
+				case BinaryProtocol.JOIN: {
+					String name = BinaryProtocol.readString(frame);
+					String room = BinaryProtocol.readString(frame);
+					int version = BinaryProtocol.readVarInt(frame);
+					long ticket = app.joinGame(name, room, version, this);
+					tickets.add(ticket);
+					reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.TICKET);
+					BinaryProtocol.writeVarInt(reply.out, request);
+					BinaryProtocol.writeVarLong(reply.out, ticket);
+					break;
+				}
+				case BinaryProtocol.SUBMIT: {
+					final long ticket = BinaryProtocol.readVarLong(frame);
+					final WordList words = BinaryProtocol.readWords(frame);
+					handOff(request, () -> {
+						app.submitWords(ticket, words);
+						BinaryProtocol.FrameBuilder ok = new BinaryProtocol.FrameBuilder(BinaryProtocol.OK);
+						BinaryProtocol.writeVarInt(ok.out, request);
+						return ok;
+					});
+					return;
+				}
+				case BinaryProtocol.SUBMIT_BATCH: {
+					final long ticket = BinaryProtocol.readVarLong(frame);
+					final WordList words = BinaryProtocol.readWords(frame);
+					handOff(request, () -> {
+						int valid = app.submitBatch(ticket, words);
+						BinaryProtocol.FrameBuilder count = new BinaryProtocol.FrameBuilder(BinaryProtocol.COUNT);
+						BinaryProtocol.writeVarInt(count.out, request);
+						BinaryProtocol.writeVarInt(count.out, valid);
+						return count;
+					});
+					return;
+				}
+				case BinaryProtocol.CREATE_ROOM: {
+					String name = BinaryProtocol.readString(frame);
+					RoomInfo info = app.createRoom(name, BinaryProtocol.readRoomSettings(frame));
+					reply = roomReply(request, info);
+					break;
+				}
+				case BinaryProtocol.GET_ROOM:
+					reply = roomReply(request, app.getRoom(BinaryProtocol.readString(frame)));
+					break;
+				case BinaryProtocol.LIST_ROOMS: {
+					List<RoomInfo> rooms = app.listRooms();
+					reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.ROOMS);
+					BinaryProtocol.writeVarInt(reply.out, request);
+					BinaryProtocol.writeVarInt(reply.out, rooms.size());
+					for (RoomInfo info : rooms)
+						BinaryProtocol.writeRoomInfo(reply.out, info);
+					break;
+				}
+				case BinaryProtocol.GET_TIME:
+					reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.TIME);
+					BinaryProtocol.writeVarInt(reply.out, request);
+					BinaryProtocol.writeVarLong(reply.out, app.getServerTime());
+					break;
+				case BinaryProtocol.HEARTBEAT:
+					app.heartbeat(BinaryProtocol.readVarLong(frame));
+					reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.OK);
+					BinaryProtocol.writeVarInt(reply.out, request);
+					break;
+				case BinaryProtocol.GET_WORD_PAGE: {
+					long results = BinaryProtocol.readVarLong(frame);
+					String player = BinaryProtocol.readString(frame);
+					int page = BinaryProtocol.readVarInt(frame);
+					WordPage words = app.getWordPage(results, player, page);
+					reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.WORD_PAGE);
+					BinaryProtocol.writeVarInt(reply.out, request);
+					BinaryProtocol.writeWordPage(reply.out, words);
+					break;
+				}
+				default:
+					throw new IOException("Unknown request type " + type);
+				}
+			} catch (PlayerException | RoomException | RuntimeException e) {
+				reply = failureReply(request, e);
+			}
+
+			send(reply.toBuffer());
+		}
+
+		/**
+		 * Runs a request on another thread, after the connection's earlier
+		 * handed-off requests, and queues its reply.
+		 **/
+		private void handOff(final int request, final Request task) {
+			lastHandedOff = lastHandedOff.thenRunAsync(() -> {
+				try {
+					BinaryProtocol.FrameBuilder reply;
+					try {
+						reply = task.run();
+					} catch (PlayerException | RuntimeException e) {
+						reply = failureReply(request, e);
+					}
+					send(reply.toBuffer());
+				} catch (IOException e) {
+					logger.warn("Can't encode the reply to request " + request + ".", e);
+				}
+			}, submissions);
+		}
+
+		private BinaryProtocol.FrameBuilder roomReply(int request, RoomInfo info) throws IOException {
+			BinaryProtocol.FrameBuilder reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.ROOM);
+			BinaryProtocol.writeVarInt(reply.out, request);
+			BinaryProtocol.writeRoomInfo(reply.out, info);
+			return reply;
+		}
+
+		/** Returns the error reply for a request that failed with the given exception. **/
+		private BinaryProtocol.FrameBuilder failureReply(int request, Exception e) throws IOException {
+			if (e instanceof PlayerException)
+				return errorReply(request, BinaryProtocol.PLAYER_ERROR, e.getMessage());
+			if (e instanceof RoomException)
+				return errorReply(request, BinaryProtocol.ROOM_ERROR, e.getMessage());
+
+			logger.warn("Request failed.", e);
+			return errorReply(request, BinaryProtocol.SERVER_ERROR, String.valueOf(e.getMessage()));
+		}
+
+		private BinaryProtocol.FrameBuilder errorReply(int request, byte kind, String message)
+				throws IOException {
+			BinaryProtocol.FrameBuilder reply = new BinaryProtocol.FrameBuilder(BinaryProtocol.ERROR);
+			BinaryProtocol.writeVarInt(reply.out, request);
+			reply.out.writeByte(kind);
+			BinaryProtocol.writeString(reply.out, message == null ? "" : message);
+			return reply;
+		}
+
+		/**
+		 * Queues a frame, and has the selector thread write it out. May be
+		 * called from any thread.
+		 **/
+		void send(ByteBuffer frame) {
+			out.add(frame);
+			pendingWrites.add(this);
+			selector.wakeup();
+		}
+
+		/** Called on the selector thread when frames are queued. **/
+		void enableWrites() {
+			if (key.isValid())
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+
+		/** Writes queued frames until they are all out, or the socket is full. **/
+		void write() throws IOException {
+			ByteBuffer frame;
+			while ((frame = out.peek()) != null) {
+				bytesWritten.addAndGet(channel.write(frame));
+				if (frame.hasRemaining())
+					return;
+				out.poll();
+			}
+
+			key.interestOps(SelectionKey.OP_READ);
+		}
+
+		void close() {
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Nothing more to do.
+			}
+
+			for (long ticket : tickets)
+				app.leave(ticket);
+			tickets.clear();
+		}
+
+		public void roundStarted(long ticket, BoardSpec board, int roundLength) {
+			try {
+				BinaryProtocol.FrameBuilder event = new BinaryProtocol.FrameBuilder(BinaryProtocol.ROUND_STARTED);
+				BinaryProtocol.writeVarLong(event.out, ticket);
+				BinaryProtocol.writeBoardSpec(event.out, board);
+				BinaryProtocol.writeVarInt(event.out, roundLength);
+				send(event.toBuffer());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public void tick(long ticket, int secondsRemaining) {
+			try {
+				BinaryProtocol.FrameBuilder event = new BinaryProtocol.FrameBuilder(BinaryProtocol.TICK);
+				BinaryProtocol.writeVarLong(event.out, ticket);
+				BinaryProtocol.writeVarInt(event.out, secondsRemaining);
+				send(event.toBuffer());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public void resultsReady(long ticket, GameResults results) {
+			try {
+				BinaryProtocol.FrameBuilder event = new BinaryProtocol.FrameBuilder(BinaryProtocol.RESULTS);
+				BinaryProtocol.writeVarLong(event.out, ticket);
+				BinaryProtocol.writeResults(event.out, results);
+				send(event.toBuffer());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package tamm.org.boggle.server;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A named game room. Each room has its own {@link Lobby}, and plays its own
+ * rounds by its own {@link RoomSettings}, independently of all other rooms.
+ * <p>
+ * A room has no thread of its own. Its lobby's round starts, and the ends of
+ * its rounds, run on the scheduler shared by all rooms, and its boards come from the
+ * {@link BoardPool} shared by all rooms with the same board size.
+ **/
+public class Room {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(Room.class);
+
+	private final String name;
+	private final RoomSettings settings;
+	private final BoardPool boardPool;
+	private final Lobby lobby;
+
+	/** Ends the rounds at their deadlines. **/
+	private final ScheduledExecutorService scheduler;
+
+	/** Numbers the rounds of this room, for the log. **/
+	private final AtomicLong roundCount = new AtomicLong();
+
+	/**
+	 * Constructs a new room.
+	 *
+	 * @param name the name of the room
+	 * @param settings the rules of the room
+	 * @param scheduler runs the room's round starts
+	 * @param boardPool supplies boards of the room's board size
+	 **/
+	public Room(String name, RoomSettings settings, ScheduledExecutorService scheduler, BoardPool boardPool) {
+		if (name == null || settings == null || boardPool == null)
+			throw new NullPointerException();
+
+		if (boardPool.getBoardSize() != settings.getBoardSize())
+			throw new IllegalArgumentException("Board pool has the wrong board size");
+
+		this.name = name;
+		this.settings = settings;
+		this.boardPool = boardPool;
+		this.scheduler = scheduler;
+		lobby = new Lobby(settings.getMinPlayers(), settings.getStartTimeout(), scheduler, new GameRunner());
+	}
+
+	/**
+	 * This starts each round of the room. The {@link #lobby} calls it with the
+	 * clients that will play the round, once enough of them have joined.
+	 **/
+	private class GameRunner implements Consumer<List<ClientInfo>> {
+
+		/**
+		 * This is the method run when a round starts. A new board is taken
+		 * for the round, and the players are switched over to playing it,
+		 * which releases their {@link BoggleServer#startGame} calls. Once
+		 * players complete their round, they submit their results via
+		 * {@link BoggleServer#gameOver}, and the last of them computes the
+		 * score for each player, or the round ends at its deadline, so a
+		 * player that is gone doesn't hold up the others. Meanwhile the lobby
+		 * keeps collecting players for the next round.
+		 **/
+		public void accept(List<ClientInfo> players) {
+			// Take a new Boggle board for the round.
+			SolvedBoard solved = boardPool.take();
+			Round round = new Round(roundCount.incrementAndGet(), solved, players);
+
+			logger.info("=== " + name + ": ROUND " + round.getId() + " STARTING ===");
+			logger.info("The board (seed " + round.getBoard().getSeed() + ") has "
+					+ solved.getWordCount() + " words. " + boardPool);
+
+			// The round's clock starts before the players hear of the round,
+			// so they are all told the same deadline.
+			round.startClock(settings.getRoundLength() * 1000L, scheduler);
+			ServerMetrics.getInstance().roundStarted();
+
+			// Switch the players over to playing the round, which wakes up
+			// their waiting threads.
+			for (ClientInfo c : players)
+				c.setPlaying(round);
+		}
+	}
+
+	/**
+	 * Adds the client to the room's lobby. The client's round is set once the
+	 * round starts; use {@link ClientInfo#awaitPlaying} to wait for it.
+	 **/
+	public void join(ClientInfo client) {
+		lobby.join(client);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public RoomSettings getSettings() {
+		return settings;
+	}
+
+	/** Returns the number of clients waiting for the room's next round. **/
+	public int getWaitingCount() {
+		return lobby.getWaitingCount();
+	}
+
+	/** Returns the number of rounds the room has started. **/
+	public long getRoundsStarted() {
+		return roundCount.get();
+	}
+
+	/** Returns the room's lobby, e.g. for its start-lag statistics. **/
+	public Lobby getLobby() {
+		return lobby;
+	}
+
+	/** Returns a snapshot of the room to send to clients. **/
+	public RoomInfo getInfo() {
+		return new RoomInfo(name, settings, getWaitingCount(), getRoundsStarted());
+	}
+}
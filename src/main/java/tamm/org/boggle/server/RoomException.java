@@ -0,0 +1,27 @@
+package tamm.org.boggle.server;
+
+/**
+ * This exception class is used to indicate error conditions when clients
+ * create or join game rooms, e.g. a room name that is already taken, or a
+ * room that doesn't exist.
+ **/
+public class RoomException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public RoomException() {
+		super();
+	}
+
+	public RoomException(String message) {
+		super(message);
+	}
+
+	public RoomException(Throwable cause) {
+		super(cause);
+	}
+
+	public RoomException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
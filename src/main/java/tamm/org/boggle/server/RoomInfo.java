@@ -0,0 +1,49 @@
+package tamm.org.boggle.server;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of a game room, as listed to clients: its name, its settings,
+ * and how busy it is.
+ **/
+public class RoomInfo implements Serializable {
+
+	private static final long serialVersionUID = 4406311520923784195L;
+
+	private final String name;
+	private final RoomSettings settings;
+
+	/** The number of clients waiting for the room's next round. **/
+	private final int waitingCount;
+
+	/** The number of rounds the room has started. **/
+	private final long roundsStarted;
+
+	public RoomInfo(String name, RoomSettings settings, int waitingCount, long roundsStarted) {
+		this.name = name;
+		this.settings = settings;
+		this.waitingCount = waitingCount;
+		this.roundsStarted = roundsStarted;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public RoomSettings getSettings() {
+		return settings;
+	}
+
+	public int getWaitingCount() {
+		return waitingCount;
+	}
+
+	public long getRoundsStarted() {
+		return roundsStarted;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + settings + ", " + waitingCount + " waiting)";
+	}
+}
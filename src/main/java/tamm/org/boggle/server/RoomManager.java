@@ -0,0 +1,168 @@
+package tamm.org.boggle.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class keeps the directory of game rooms on a server. Rooms are looked
+ * up in a concurrent map, so clients of different rooms never wait for each
+ * other.
+ * <p>
+ * All rooms share a single scheduler with a small, fixed number of threads,
+ * since a room only needs a thread for the moment it starts a round. All
+ * rooms with the same board size also share a {@link BoardPool}, which is
+ * started when the first such room is created. Its targets are the
+ * manager's {@link BoardQuality}, {@link BoardQuality#scaledTo scaled} to the
+ * board size.
+ **/
+public class RoomManager {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(RoomManager.class);
+
+	/** The name of the room that clients join if they don't pick one. **/
+	public static final String DEFAULT_ROOM = "lobby";
+
+	/**
+	 * The number of ready boards each {@link BoardPool} keeps queued up.
+	 **/
+	private static final int BOARD_POOL_CAPACITY = 16;
+
+	private final ConcurrentMap<String, Room> rooms = new ConcurrentHashMap<String, Room>();
+
+	/** Board pools per board size. **/
+	private final ConcurrentMap<Integer, BoardPool> boardPools = new ConcurrentHashMap<Integer, BoardPool>();
+
+	/** Runs the round starts of all rooms. **/
+	private final ScheduledExecutorService scheduler;
+
+	private final BoardQuality quality;
+
+	/**
+	 * Constructs a new room manager, with a scheduler thread per processor.
+	 *
+	 * @param quality the targets for boards of the default size
+	 **/
+	public RoomManager(BoardQuality quality) {
+		this(quality, Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "boggle-rooms-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				}));
+	}
+
+	/**
+	 * Constructs a new room manager that runs round starts on the given
+	 * scheduler.
+	 **/
+	public RoomManager(BoardQuality quality, ScheduledExecutorService scheduler) {
+		if (quality == null || scheduler == null)
+			throw new NullPointerException();
+
+		this.quality = quality;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Creates a new room.
+	 *
+	 * @throws RoomException if a room with the name already exists
+	 **/
+	public Room createRoom(String name, RoomSettings settings) throws RoomException {
+		if (name == null || settings == null)
+			throw new NullPointerException();
+
+		if (name.trim().isEmpty())
+			throw new RoomException("Room name is empty!");
+
+		if (rooms.containsKey(name))
+			throw new RoomException(name + " already exists!");
+
+		Room room = new Room(name, settings, scheduler, getBoardPool(settings.getBoardSize()));
+		if (rooms.putIfAbsent(name, room) != null)
+			throw new RoomException(name + " already exists!");
+
+		ServerMetrics.getInstance().roomCreated();
+		logger.info("Created room \"" + name + "\": " + settings);
+		return room;
+	}
+
+	/**
+	 * Returns the room with the given name.
+	 *
+	 * @throws RoomException if there is no such room
+	 **/
+	public Room getRoom(String name) throws RoomException {
+		Room room = rooms.get(name);
+		if (room == null)
+			throw new RoomException(name + " doesn't exist!");
+
+		return room;
+	}
+
+	/** Returns snapshots of all rooms, in no particular order. **/
+	public List<RoomInfo> listRooms() {
+		List<RoomInfo> infos = new ArrayList<RoomInfo>(rooms.size());
+		for (Room room : rooms.values())
+			infos.add(room.getInfo());
+
+		return infos;
+	}
+
+	/** Returns the number of rooms. **/
+	public int getRoomCount() {
+		return rooms.size();
+	}
+
+	/**
+	 * Returns the board pool for the given board size, starting it if this is
+	 * the first room of that size.
+	 **/
+	private BoardPool getBoardPool(int boardSize) {
+		BoardPool pool = boardPools.get(boardSize);
+
+		if (pool == null) {
+			synchronized (boardPools) {
+				pool = boardPools.get(boardSize);
+				if (pool == null) {
+					pool = new BoardPool(boardSize, BOARD_POOL_CAPACITY, quality.scaledTo(boardSize));
+					pool.start();
+					boardPools.put(boardSize, pool);
+					ServerMetrics.getInstance().boardPoolStarted(pool);
+				}
+			}
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Returns the scheduler shared by all rooms. Tasks run on it must not
+	 * block, or they hold up the round starts.
+	 **/
+	public ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	/** Stops the board pools and the scheduler. **/
+	public void shutdown() {
+		scheduler.shutdownNow();
+		for (BoardPool pool : boardPools.values()) {
+			pool.stop();
+			ServerMetrics.getInstance().boardPoolStopped(pool);
+		}
+	}
+}
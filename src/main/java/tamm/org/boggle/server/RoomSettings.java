@@ -0,0 +1,107 @@
+package tamm.org.boggle.server;
+
+import java.io.Serializable;
+
+import tamm.org.boggle.board.BoggleBoard;
+
+/**
+ * This class holds the rules of a game room: how many players a round needs,
+ * how long the lobby waits for more players, the size of the board, how long
+ * a round lasts and whether players get personal results. Settings are
+ * immutable, and are sent to clients along with the room's {@link RoomInfo}.
+ **/
+public class RoomSettings implements Serializable {
+
+	private static final long serialVersionUID = -6213349071586541267L;
+
+	/** The smallest and largest board sizes a room can play on. **/
+	public static final int MIN_BOARD_SIZE = 3;
+	public static final int MAX_BOARD_SIZE = 8;
+
+	/**
+	 * The settings of the default room: rounds of at least 2 players on the
+	 * default board, starting 5 seconds after the last player joins, and
+	 * lasting one minute.
+	 **/
+	public static final RoomSettings DEFAULT = new RoomSettings(2, 5 * 1000, BoggleBoard.DEFAULT_SIZE, 60);
+
+	/** The minimum number of players we must have to play a round. **/
+	private final int minPlayers;
+
+	/**
+	 * How long to wait after the last player joins before starting the round,
+	 * in milliseconds.
+	 **/
+	private final long startTimeout;
+
+	private final int boardSize;
+
+	/** How long a round lasts, in seconds. **/
+	private final int roundLength;
+
+	/**
+	 * True if each player gets {@link GameResults#personalFor personal}
+	 * results, which leave out the other players' words. Meant for rooms of
+	 * many players, where everyone's words would make the results large.
+	 **/
+	private final boolean personalResults;
+
+	/**
+	 * Constructs new room settings, whose players get the complete results.
+	 *
+	 * @throws IllegalArgumentException if any of the values is out of range
+	 **/
+	public RoomSettings(int minPlayers, long startTimeout, int boardSize, int roundLength) {
+		this(minPlayers, startTimeout, boardSize, roundLength, false);
+	}
+
+	/**
+	 * Constructs new room settings.
+	 *
+	 * @throws IllegalArgumentException if any of the values is out of range
+	 **/
+	public RoomSettings(int minPlayers, long startTimeout, int boardSize, int roundLength,
+			boolean personalResults) {
+		if (minPlayers < 1)
+			throw new IllegalArgumentException("A round needs at least one player");
+		if (startTimeout < 0)
+			throw new IllegalArgumentException("Negative start timeout");
+		if (boardSize < MIN_BOARD_SIZE || boardSize > MAX_BOARD_SIZE)
+			throw new IllegalArgumentException("Board size must be between " + MIN_BOARD_SIZE + " and "
+					+ MAX_BOARD_SIZE);
+		if (roundLength < 1)
+			throw new IllegalArgumentException("A round must last at least a second");
+
+		this.minPlayers = minPlayers;
+		this.startTimeout = startTimeout;
+		this.boardSize = boardSize;
+		this.roundLength = roundLength;
+		this.personalResults = personalResults;
+	}
+
+	public int getMinPlayers() {
+		return minPlayers;
+	}
+
+	public long getStartTimeout() {
+		return startTimeout;
+	}
+
+	public int getBoardSize() {
+		return boardSize;
+	}
+
+	public int getRoundLength() {
+		return roundLength;
+	}
+
+	public boolean isPersonalResults() {
+		return personalResults;
+	}
+
+	@Override
+	public String toString() {
+		return "min " + minPlayers + " players, " + boardSize + "x" + boardSize + " board, " + roundLength
+				+ " s rounds" + (personalResults ? ", personal results" : "");
+	}
+}
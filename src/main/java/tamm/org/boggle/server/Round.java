@@ -0,0 +1,568 @@
+package tamm.org.boggle.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.PathValidator;
+import tamm.org.boggle.board.WordList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This object holds everything that belongs to a single round of Boggle: its
+ * board, its players, the word-lists they have submitted so far, and finally
+ * the round's results. Each round has its own instance, so a new round can
+ * start while earlier ones are still being played or scored.
+ * <p>
+ * Players submit their word-lists through {@link #submit}, which blocks until
+ * all players of the round have done so, or through {@link #submitAsync},
+ * which returns a future of the results right away. The last player to submit
+ * computes the results for everyone.
+ * <p>
+ * Players may also send their words one at a time while the round is played,
+ * through {@link #addWord} and {@link #addWords}. Each word is checked
+ * against the dictionary and the board as it arrives, and the round keeps
+ * count of how many players found each word and what every player scores for
+ * the words only they found. So when the last word-list comes in, only the
+ * words that weren't sent before are checked, and the results are put
+ * together from the counts.
+ * <p>
+ * The round doesn't wait for its slowest player. Once its clock is
+ * {@link #startClock started}, the round ends at its deadline plus
+ * {@link #GRACE_MILLIS}, whether or not every word-list is in, and so does a
+ * player that is known to be gone, through {@link #abandon}. A player that
+ * didn't submit a word-list is scored by the words it sent during the round,
+ * if any.
+ * <p>
+ * Waiting players park on the future rather than an object monitor, so a
+ * player waiting on a virtual thread doesn't hold on to its carrier thread.
+ **/
+public class Round {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(Round.class);
+
+	/**
+	 * How long after its deadline a round waits for the word-lists that are
+	 * still on their way, in milliseconds.
+	 **/
+	public static final long GRACE_MILLIS = 3 * 1000;
+
+	/** Numbers the rounds, for the log. **/
+	private final long id;
+
+	/** The Boggle board being used for this round. **/
+	private final BoggleBoard board;
+
+	/**
+	 * These describe the {@link #board} to clients that ask for a
+	 * {@link BoardSpec}. They are created once, and again with the deadline
+	 * when the clock starts, so all clients of the round are sent the same
+	 * objects.
+	 **/
+	private volatile BoardSpec seedSpec;
+	private volatile BoardSpec fullSpec;
+
+	/** The players of this round. **/
+	private final List<ClientInfo> players;
+
+	/** Completed with the results of the round once they are computed. **/
+	private final CompletableFuture<GameResults> results = new CompletableFuture<GameResults>();
+
+	/** Checks that words can be traced on the {@link #board}. **/
+	private final PathValidator validator;
+
+	/** Guards the counts and the maps below. **/
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * The number of players that are done, by submitting their word-lists or
+	 * by being closed out.
+	 **/
+	private int doneCount;
+
+	/** Set once the results are being put together. **/
+	private boolean over;
+
+	/** When the round ends by the server's clock, or 0 before it starts. **/
+	private volatile long deadline;
+
+	/**
+	 * When the clock started and when the results were released, by
+	 * System.nanoTime, for the {@link ServerMetrics}.
+	 **/
+	private volatile long startNanos;
+	private volatile long overNanos;
+
+	/** The words of each player so far, by name. **/
+	private final Map<String, PlayerWords> playerWords = new HashMap<String, PlayerWords>();
+
+	/** How many players have found each valid word so far. **/
+	private final Map<String, int[]> finders = new HashMap<String, int[]>();
+
+	/** The player that found a valid word, while nobody else has. **/
+	private final Map<String, PlayerWords> soleFinders = new HashMap<String, PlayerWords>();
+
+	/** The words a single player has sent so far. **/
+	private static class PlayerWords {
+
+		/** Every word sent, in order. **/
+		final Set<String> words = new LinkedHashSet<String>();
+
+		/** The words that are in the dictionary and on the board. **/
+		final Set<String> valid = new LinkedHashSet<String>();
+
+		/** The words that can't be traced on the board. **/
+		final WordList rejected = new WordList();
+
+		/** The score of the valid words nobody else has found so far. **/
+		int score;
+
+		/** Set once the player's word-list is submitted, or the player is closed out. **/
+		boolean done;
+
+		/** Set if the player was closed out without a word-list. **/
+		boolean closedOut;
+	}
+
+	/**
+	 * Constructs a new round.
+	 *
+	 * @param id numbers the round, for the log
+	 * @param board the board to play on
+	 * @param players the players of the round
+	 **/
+	public Round(long id, BoggleBoard board, List<ClientInfo> players) {
+		this(id, board, null, players);
+	}
+
+	/**
+	 * Constructs a new round on a solved board. The board is sent to the
+	 * players together with a {@link BloomFilter} of its words.
+	 *
+	 * @param id numbers the round, for the log
+	 * @param solved the board to play on, with its words
+	 * @param players the players of the round
+	 **/
+	public Round(long id, SolvedBoard solved, List<ClientInfo> players) {
+		this(id, solved.getBoard(), BloomFilter.of(solved.getWords().keySet()), players);
+	}
+
+	private Round(long id, BoggleBoard board, BloomFilter wordFilter, List<ClientInfo> players) {
+		if (board == null || players == null)
+			throw new NullPointerException();
+
+		this.id = id;
+		this.board = board;
+		this.players = Collections.unmodifiableList(new ArrayList<ClientInfo>(players));
+
+		BoardSpec full = BoardSpec.fullBoard(board);
+		BoardSpec seed = board.hasSeed() ? BoardSpec.seedOnly(board) : full;
+		fullSpec = wordFilter == null ? full : full.withWordFilter(wordFilter);
+		seedSpec = wordFilter == null ? seed : seed.withWordFilter(wordFilter);
+		validator = new PathValidator(board);
+
+		for (ClientInfo player : this.players)
+			playerWords.put(player.getName(), new PlayerWords());
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Starts the round's clock. The round lasts the given time, and then ends
+	 * once the grace period is over, for every player that hasn't submitted
+	 * by then. The board specs sent from now on carry the deadline. Called
+	 * before the players are told the round started.
+	 *
+	 * @param lengthMillis how long the round lasts
+	 * @param scheduler runs the end of the round
+	 **/
+	public void startClock(long lengthMillis, ScheduledExecutorService scheduler) {
+		startNanos = System.nanoTime();
+		deadline = System.currentTimeMillis() + lengthMillis;
+		seedSpec = seedSpec.withDeadline(deadline);
+		fullSpec = fullSpec.withDeadline(deadline);
+		scheduler.schedule(new Runnable() {
+			public void run() {
+				expire();
+			}
+		}, lengthMillis + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns when the round ends by the server's clock, in milliseconds since
+	 * the epoch, or 0 if its clock hasn't started.
+	 **/
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/** Returns when the round's clock started, by System.nanoTime. **/
+	long getStartNanos() {
+		return startNanos;
+	}
+
+	/** Returns when the round's results were released, by System.nanoTime. **/
+	long getOverNanos() {
+		return overNanos;
+	}
+
+	/**
+	 * Returns a stage that completes with the results of the round, once they
+	 * are computed.
+	 **/
+	public CompletionStage<GameResults> whenOver() {
+		return results;
+	}
+
+	public BoggleBoard getBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the spec of the board to send to a client that can generate
+	 * boards with the given generator version.
+	 **/
+	public BoardSpec getBoardSpec(int generatorVersion) {
+		return BoardSpec.canSendSeed(board, generatorVersion) ? seedSpec : fullSpec;
+	}
+
+	public List<ClientInfo> getPlayers() {
+		return players;
+	}
+
+	/**
+	 * Records the word-list of one of the round's players, whose words must
+	 * already be set, and blocks until all players have submitted. Then the
+	 * results of the round are returned.
+	 *
+	 * @param player a player of this round
+	 * @param dict the dictionary to score the words against
+	 * @return the results of the round
+	 **/
+	public GameResults submit(ClientInfo player, Dictionary dict) {
+		return submitAsync(player, dict).join();
+	}
+
+	/**
+	 * Records a single word of one of the round's players, while the round is
+	 * played. The word is checked right away; sending it again, or with the
+	 * word-list at the end, costs nothing more.
+	 *
+	 * @param player a player of this round
+	 * @param word the word, in lower case as a {@link WordList} keeps it
+	 * @param dict the dictionary to check the word against
+	 * @return true if the word is in the dictionary and can be traced on the
+	 *         board
+	 * @throws IllegalStateException if the player has already submitted
+	 **/
+	public boolean addWord(ClientInfo player, String word, Dictionary dict) {
+		return addWords(player, Collections.singleton(word), dict) == 1;
+	}
+
+	/**
+	 * Records some words of one of the round's players, while the round is
+	 * played. Same as {@link #addWord} for each word.
+	 *
+	 * @return how many of the words are in the dictionary and can be traced
+	 *         on the board
+	 * @throws IllegalStateException if the player has already submitted
+	 **/
+	public int addWords(ClientInfo player, Collection<String> words, Dictionary dict) {
+		PlayerWords mine = wordsOf(player);
+
+		// Only the words not sent before need to be checked.
+		List<String> fresh = new ArrayList<String>();
+		lock.lock();
+		try {
+			checkNotDone(player, mine);
+			for (String word : words) {
+				if (!mine.words.contains(word))
+					fresh.add(word);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		// Check outside the lock; both the validator and the dictionary may
+		// be used by several threads at once.
+		long checkStart = System.nanoTime();
+		boolean[] traceable = new boolean[fresh.size()];
+		boolean[] valid = new boolean[fresh.size()];
+		for (int i = 0; i < fresh.size(); i++) {
+			traceable[i] = validator.isTraceable(fresh.get(i));
+			valid[i] = traceable[i] && dict.contains(fresh.get(i));
+		}
+		if (!fresh.isEmpty()) {
+			ServerMetrics.getInstance().getValidation().recordSince(checkStart);
+			ServerMetrics.getInstance().wordsChecked(fresh.size());
+		}
+
+		lock.lock();
+		try {
+			checkNotDone(player, mine);
+			for (int i = 0; i < fresh.size(); i++) {
+				if (mine.words.add(fresh.get(i)))
+					count(mine, fresh.get(i), traceable[i], valid[i]);
+			}
+
+			int validCount = 0;
+			for (String word : words) {
+				if (mine.valid.contains(word))
+					validCount++;
+			}
+			return validCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void checkNotDone(ClientInfo player, PlayerWords mine) {
+		if (mine.done)
+			throw new IllegalStateException(player.getName() + " has already submitted");
+	}
+
+	/**
+	 * Counts a word that the player hasn't sent before. Called with the lock
+	 * held.
+	 **/
+	private void count(PlayerWords mine, String word, boolean traceable, boolean valid) {
+		if (!traceable) {
+			mine.rejected.addWord(word);
+			return;
+		}
+		if (!valid)
+			return;
+
+		mine.valid.add(word);
+		int[] count = finders.get(word);
+		if (count == null) {
+			finders.put(word, new int[] { 1 });
+			soleFinders.put(word, mine);
+			mine.score += GameResults.computeScore(word);
+		} else if (++count[0] == 2) {
+			// The first player to find it no longer scores it.
+			soleFinders.remove(word).score -= GameResults.computeScore(word);
+		}
+	}
+
+	private PlayerWords wordsOf(ClientInfo player) {
+		PlayerWords mine = playerWords.get(player.getName());
+		if (mine == null)
+			throw new IllegalArgumentException(player.getName() + " doesn't play in round " + id);
+		return mine;
+	}
+
+	/**
+	 * Records the word-list of one of the round's players, whose words must
+	 * already be set, and returns right away. The returned future completes
+	 * with the results of the round once all players have submitted. If this
+	 * is the last player, the results are computed before this method
+	 * returns.
+	 * <p>
+	 * The words the player has already sent with {@link #addWord} or
+	 * {@link #addWords} count too, whether or not they are in the word-list.
+	 * If the round ended before the word-list came in, the word-list doesn't
+	 * count, and the future is that of the results without it.
+	 *
+	 * @param player a player of this round
+	 * @param dict the dictionary to score the words against
+	 * @return the future results of the round
+	 **/
+	public CompletableFuture<GameResults> submitAsync(ClientInfo player, Dictionary dict) {
+		PlayerWords mine = wordsOf(player);
+		ServerMetrics.getInstance().getSubmissionSize().record(player.getWords().size());
+		try {
+			addWords(player, player.getWords().getWordList(), dict);
+		} catch (IllegalStateException e) {
+			if (isClosedOut(mine))
+				return results;
+			throw e;
+		}
+		GameResults computed;
+
+		lock.lock();
+		try {
+			if (mine.closedOut)
+				return results;
+			checkNotDone(player, mine);
+			mine.done = true;
+			doneCount++;
+			computed = resultsIfDone();
+		} finally {
+			lock.unlock();
+		}
+
+		publish(computed);
+		return results;
+	}
+
+	/**
+	 * Ends the round for every player that hasn't submitted yet, and releases
+	 * the results. Called by the round's clock at the end of the grace
+	 * period.
+	 *
+	 * @return true if this released the results, false if they already were
+	 **/
+	public boolean expire() {
+		return closeOut(players, "the round's time is up");
+	}
+
+	/**
+	 * Ends the round for a player that is gone, e.g. whose connection was
+	 * lost, without waiting for its word-list. The player is scored by the
+	 * words it has sent so far. If everyone else has submitted, the results
+	 * are released.
+	 *
+	 * @return true if this released the results
+	 **/
+	public boolean abandon(ClientInfo player) {
+		return closeOut(Collections.singletonList(player), "it is gone");
+	}
+
+	private boolean closeOut(List<ClientInfo> leaving, String reason) {
+		GameResults computed;
+
+		lock.lock();
+		try {
+			for (ClientInfo player : leaving) {
+				PlayerWords mine = playerWords.get(player.getName());
+				if (mine != null && !mine.done) {
+					logger.info("Round " + id + " goes on without \"" + player.getName() + "\", since " + reason + ".");
+					mine.done = true;
+					mine.closedOut = true;
+					doneCount++;
+				}
+			}
+			computed = resultsIfDone();
+		} finally {
+			lock.unlock();
+		}
+
+		publish(computed);
+		return computed != null;
+	}
+
+	private boolean isClosedOut(PlayerWords mine) {
+		lock.lock();
+		try {
+			return mine.closedOut;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Puts together the "game results" from what has been counted, once the
+	 * last player is done, or returns null. Called with the lock held.
+	 **/
+	private GameResults resultsIfDone() {
+		if (over || doneCount < players.size())
+			return null;
+		over = true;
+
+		long scoringStart = System.nanoTime();
+		GameResults computed = new GameResults();
+		for (ClientInfo res : players) {
+			PlayerWords mine = playerWords.get(res.getName());
+			computed.addClientResult(result(mine.closedOut ? standIn(res, mine) : res, mine));
+		}
+		release();
+		ServerMetrics.getInstance().getScoring().recordSince(scoringStart);
+		return computed;
+	}
+
+	/**
+	 * Returns the information of a player that was closed out, with the words
+	 * it sent as its word-list. The player's own information is left alone,
+	 * since the player may still submit, too late.
+	 **/
+	private static ClientInfo standIn(ClientInfo player, PlayerWords mine) {
+		ClientInfo info = new ClientInfo(player.getName());
+		info.setPlaying();
+		WordList words = new WordList();
+		for (String word : mine.words)
+			words.addWord(word);
+		info.setWords(words);
+		return info;
+	}
+
+	/**
+	 * Encodes and releases the results, if there are any. Called outside the
+	 * lock, since completing runs the actions waiting for the results.
+	 **/
+	private void publish(GameResults computed) {
+		if (computed != null) {
+			computed.freeze();
+			overNanos = System.nanoTime();
+			ServerMetrics.getInstance().roundOver();
+			logger.info("Round " + id + " is over.");
+			results.complete(computed);
+		}
+	}
+
+	/**
+	 * Sets a player's rejected words, filtered words and score from what has
+	 * been counted. Called with the lock held, once every player is done.
+	 **/
+	private ClientInfo result(ClientInfo res, PlayerWords mine) {
+		// The words sent during the round, but left out of the word-list;
+		// all words of the word-list were added to the player's words, so
+		// there are some only if the sizes differ. The word-list is the
+		// caller's own, so they go in a copy of it.
+		WordList submitted = res.getWords();
+		if (submitted.size() != mine.words.size()) {
+			WordList all = new WordList();
+			all.addWordList(submitted);
+			for (String word : mine.words)
+				all.addWord(word);
+			res.replaceWords(all);
+		}
+
+		// Only real words on the board that no other client found
+		WordList filteredWords = new WordList();
+		for (String word : mine.valid) {
+			if (finders.get(word)[0] == 1)
+				filteredWords.addWord(word);
+		}
+
+		res.setRejectedWords(mine.rejected);
+		res.setFilteredWords(filteredWords);
+		res.setScore(mine.score);
+		return res;
+	}
+
+	/**
+	 * Drops what was counted, once it's in the results, so it needn't live as
+	 * long as the round does. Every player is done by then, so nothing is
+	 * counted again. Called with the lock held.
+	 **/
+	private void release() {
+		for (PlayerWords mine : playerWords.values()) {
+			mine.words.clear();
+			mine.valid.clear();
+		}
+		finders.clear();
+		soleFinders.clear();
+	}
+
+	/** Returns true once the results of the round have been computed. **/
+	public boolean isOver() {
+		return results.isDone();
+	}
+}
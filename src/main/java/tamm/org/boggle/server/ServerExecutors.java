@@ -0,0 +1,86 @@
+package tamm.org.boggle.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Factory for the executors that run the server's blocking work, i.e. tasks
+ * that spend most of their time parked in a lobby or waiting for the rest of
+ * a round.
+ * <p>
+ * On a JVM with virtual threads, every task gets a virtual thread of its
+ * own, so a parked player costs a few hundred bytes of heap rather than a
+ * platform thread. The server is built for Java 8, so virtual threads are
+ * looked up reflectively; on older JVMs, or if they are turned off with the
+ * <tt>boggle.virtualThreads</tt> system property, tasks get daemon platform
+ * threads with a small stack instead.
+ **/
+public final class ServerExecutors {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(ServerExecutors.class);
+
+	/** Set this system property to false to never use virtual threads. **/
+	public static final String VIRTUAL_THREADS_PROPERTY = "boggle.virtualThreads";
+
+	/**
+	 * The stack size of the platform threads used instead of virtual threads.
+	 * The blocking handlers never recurse deeply, so a small stack is plenty,
+	 * and lets many more threads fit in the address space.
+	 **/
+	private static final long FALLBACK_STACK_SIZE = 256 * 1024;
+
+	/** <tt>Executors.newVirtualThreadPerTaskExecutor</tt>, or null. **/
+	private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+	private ServerExecutors() {
+	}
+
+	private static Method findVirtualExecutor() {
+		if (!Boolean.parseBoolean(System.getProperty(VIRTUAL_THREADS_PROPERTY, "true")))
+			return null;
+
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/** Returns true if {@link #newBlockingExecutor} uses virtual threads. **/
+	public static boolean hasVirtualThreads() {
+		return VIRTUAL_EXECUTOR != null;
+	}
+
+	/**
+	 * Returns a new executor that starts a thread per task, preferably a
+	 * virtual one.
+	 *
+	 * @param name the name prefix of the platform threads, if virtual threads
+	 *        aren't available
+	 **/
+	public static ExecutorService newBlockingExecutor(final String name) {
+		if (VIRTUAL_EXECUTOR != null) {
+			try {
+				return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				logger.warn("Can't create a virtual thread executor, using platform threads.", e);
+			}
+		}
+
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(null, r, name + "-" + count.incrementAndGet(), FALLBACK_STACK_SIZE);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
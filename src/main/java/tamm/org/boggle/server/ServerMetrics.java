@@ -0,0 +1,263 @@
+package tamm.org.boggle.server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class holds the process-wide counters and histograms of the life of
+ * the server's rounds: how long players wait in the lobbies, how long it
+ * takes to tell them a round started and to send them its results, how many
+ * words they submit, and how long the words take to check and to score.
+ * <p>
+ * Recording never takes a lock: the counters are {@link LongAdder}s and the
+ * histograms are {@link Histogram}s, so the rounds' threads don't contend on
+ * the metrics. Times are recorded in microseconds.
+ * <p>
+ * The metrics can be read through JMX, once {@link #registerMBeans
+ * registered}, and are dumped to the log as text every
+ * <tt>boggle.metricsInterval</tt> seconds by a server started through
+ * {@link BoggleServerApp#main}.
+ **/
+public final class ServerMetrics implements ServerMetricsMBean {
+
+	/** The logger instance **/
+	private static Logger logger = Logger.getLogger(ServerMetrics.class);
+
+	/**
+	 * Set this system property to the number of seconds between dumps of the
+	 * metrics to the log, or to 0 to never dump them.
+	 **/
+	public static final String DUMP_INTERVAL_PROPERTY = "boggle.metricsInterval";
+
+	/** The seconds between dumps, unless the system property says otherwise. **/
+	private static final long DEFAULT_DUMP_INTERVAL = 60;
+
+	/** The JMX domain of the metrics' MBeans. **/
+	public static final String DOMAIN = "tamm.org.boggle";
+
+	/** The single instance of the metrics **/
+	private static final ServerMetrics INSTANCE = new ServerMetrics();
+
+	private final LongAdder activeRooms = new LongAdder();
+	private final LongAdder activePlayers = new LongAdder();
+	private final LongAdder waitingPlayers = new LongAdder();
+	private final LongAdder roundsStarted = new LongAdder();
+	private final LongAdder roundsOver = new LongAdder();
+	private final LongAdder wordsChecked = new LongAdder();
+
+	/**
+	 * The running board pools, whose empty takes are the starved rounds, and
+	 * the empty takes of the pools that were stopped.
+	 **/
+	private final Set<BoardPool> boardPools = new CopyOnWriteArraySet<BoardPool>();
+	private final LongAdder stoppedPoolsStarved = new LongAdder();
+
+	/** From joining a lobby to the start of the round, per player. **/
+	private final Histogram lobbyWait = new Histogram("lobbyWait", "us");
+
+	/** From the start of a round to the player having its board, per player. **/
+	private final Histogram roundStart = new Histogram("roundStart", "us");
+
+	/** The words in each word-list submitted at the end of a round. **/
+	private final Histogram submissionSize = new Histogram("submissionSize", "words");
+
+	/** Checking words against the dictionary and the board, per batch. **/
+	private final Histogram validation = new Histogram("validation", "us");
+
+	/** Putting together the scores of a round. **/
+	private final Histogram scoring = new Histogram("scoring", "us");
+
+	/** Encoding the results of a round. **/
+	private final Histogram encoding = new Histogram("encoding", "us");
+
+	/** From the results being ready to their hand-over to the player, per player. **/
+	private final Histogram resultsFanOut = new Histogram("resultsFanOut", "us");
+
+	private final List<Histogram> histograms = Collections.unmodifiableList(Arrays.asList(lobbyWait,
+			roundStart, submissionSize, validation, scoring, encoding, resultsFanOut));
+
+	private ServerMetrics() {
+	}
+
+	/**
+	 * Returns the process-wide metrics
+	 * @return ServerMetrics
+	 */
+	public static ServerMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	void roomCreated() {
+		activeRooms.increment();
+	}
+
+	void playerRegistered() {
+		activePlayers.increment();
+	}
+
+	void playerLeft() {
+		activePlayers.decrement();
+	}
+
+	void playersWaiting(int delta) {
+		waitingPlayers.add(delta);
+	}
+
+	void roundStarted() {
+		roundsStarted.increment();
+	}
+
+	void roundOver() {
+		roundsOver.increment();
+	}
+
+	void boardPoolStarted(BoardPool pool) {
+		boardPools.add(pool);
+	}
+
+	void boardPoolStopped(BoardPool pool) {
+		if (boardPools.remove(pool))
+			stoppedPoolsStarved.add(pool.getTakenWhileEmpty());
+	}
+
+	void wordsChecked(int count) {
+		wordsChecked.add(count);
+	}
+
+	public long getActiveRooms() {
+		return activeRooms.sum();
+	}
+
+	public long getActivePlayers() {
+		return activePlayers.sum();
+	}
+
+	public long getWaitingPlayers() {
+		return waitingPlayers.sum();
+	}
+
+	public long getRoundsStarted() {
+		return roundsStarted.sum();
+	}
+
+	public long getRoundsOver() {
+		return roundsOver.sum();
+	}
+
+	public long getRoundsStarved() {
+		long starved = stoppedPoolsStarved.sum();
+		for (BoardPool pool : boardPools)
+			starved += pool.getTakenWhileEmpty();
+		return starved;
+	}
+
+	public long getWordsChecked() {
+		return wordsChecked.sum();
+	}
+
+	public Histogram getLobbyWait() {
+		return lobbyWait;
+	}
+
+	public Histogram getRoundStart() {
+		return roundStart;
+	}
+
+	public Histogram getSubmissionSize() {
+		return submissionSize;
+	}
+
+	public Histogram getValidation() {
+		return validation;
+	}
+
+	public Histogram getScoring() {
+		return scoring;
+	}
+
+	public Histogram getEncoding() {
+		return encoding;
+	}
+
+	public Histogram getResultsFanOut() {
+		return resultsFanOut;
+	}
+
+	/** Returns all of the histograms, in the order they are dumped. **/
+	public List<Histogram> getHistograms() {
+		return histograms;
+	}
+
+	public String dump() {
+		StringBuilder text = new StringBuilder();
+		text.append("rooms ").append(getActiveRooms())
+				.append(", players ").append(getActivePlayers())
+				.append(" (").append(getWaitingPlayers()).append(" waiting)")
+				.append(", rounds ").append(getRoundsStarted()).append(" started, ")
+				.append(getRoundsOver()).append(" over, ")
+				.append(getRoundsStarved()).append(" starved")
+				.append(", words ").append(getWordsChecked());
+		for (Histogram h : histograms)
+			text.append('\n').append(h);
+
+		return text.toString();
+	}
+
+	/**
+	 * Registers the metrics, and each of the histograms, as MBeans. Metrics
+	 * that are already registered are left alone.
+	 *
+	 * @throws JMException if an MBean can't be registered
+	 **/
+	public void registerMBeans(MBeanServer server) throws JMException {
+		register(server, new ObjectName(DOMAIN + ":type=ServerMetrics"), this);
+		for (Histogram h : histograms)
+			register(server, new ObjectName(DOMAIN + ":type=Histogram,name=" + h.getName()), h);
+	}
+
+	private static void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+		if (!server.isRegistered(name))
+			server.registerMBean(bean, name);
+	}
+
+	/**
+	 * Returns the seconds between dumps of the metrics, as set by the
+	 * <tt>boggle.metricsInterval</tt> system property.
+	 **/
+	public static long getDumpInterval() {
+		try {
+			return Long.parseLong(System.getProperty(DUMP_INTERVAL_PROPERTY, "" + DEFAULT_DUMP_INTERVAL));
+		} catch (NumberFormatException e) {
+			logger.warn("Bad " + DUMP_INTERVAL_PROPERTY + ", using " + DEFAULT_DUMP_INTERVAL + " seconds.");
+			return DEFAULT_DUMP_INTERVAL;
+		}
+	}
+
+	/**
+	 * Dumps the metrics to the log every so often, until the returned task is
+	 * cancelled. The dump is quick, so it can run on the rooms' scheduler.
+	 *
+	 * @param scheduler runs the dumps
+	 * @param seconds the time between dumps
+	 **/
+	public ScheduledFuture<?> startDumping(ScheduledExecutorService scheduler, long seconds) {
+		return scheduler.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				logger.info("Server metrics:\n" + dump());
+			}
+		}, seconds, seconds, TimeUnit.SECONDS);
+	}
+}
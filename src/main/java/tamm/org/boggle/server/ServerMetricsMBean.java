@@ -0,0 +1,30 @@
+package tamm.org.boggle.server;
+
+/**
+ * The management interface of the {@link ServerMetrics}, as it is shown
+ * through JMX. The histograms are registered as MBeans of their own.
+ **/
+public interface ServerMetricsMBean {
+
+	/** Returns the number of rooms. **/
+	long getActiveRooms();
+
+	/** Returns the number of players registered, waiting or playing. **/
+	long getActivePlayers();
+
+	/** Returns the number of players waiting in a lobby. **/
+	long getWaitingPlayers();
+
+	long getRoundsStarted();
+
+	long getRoundsOver();
+
+	/** Returns the number of rounds that found their board pool empty. **/
+	long getRoundsStarved();
+
+	/** Returns the number of words checked, each player's words once. **/
+	long getWordsChecked();
+
+	/** Returns the metrics as text, as they are dumped to the log. **/
+	String dump();
+}
@@ -0,0 +1,48 @@
+package tamm.org.boggle.server;
+
+import java.util.Map;
+
+import tamm.org.boggle.board.BoggleBoard;
+
+/**
+ * A Boggle board together with all the dictionary words that can be traced on
+ * it, as found by the {@link tamm.org.boggle.board.BoggleSolver}.
+ **/
+public class SolvedBoard {
+
+	private final BoggleBoard board;
+
+	/** The words on the board, each with one path that spells it. **/
+	private final Map<String, int[]> words;
+
+	/** The sum of the scores of all words on the board. **/
+	private final int totalScore;
+
+	public SolvedBoard(BoggleBoard board, Map<String, int[]> words) {
+		this.board = board;
+		this.words = words;
+
+		int score = 0;
+		for (String word : words.keySet())
+			score += GameResults.computeScore(word);
+		totalScore = score;
+	}
+
+	public BoggleBoard getBoard() {
+		return board;
+	}
+
+	/** Returns the words on the board, each with one path that spells it. **/
+	public Map<String, int[]> getWords() {
+		return words;
+	}
+
+	public int getWordCount() {
+		return words.size();
+	}
+
+	/** Returns the score a single player would get for finding every word. **/
+	public int getTotalScore() {
+		return totalScore;
+	}
+}
@@ -0,0 +1,48 @@
+package tamm.org.boggle.server;
+
+import java.io.Serializable;
+
+/**
+ * One player's line of the leaderboard of a round: the name, the score and
+ * how many words the player submitted. Personal {@link GameResults} hold
+ * only these for the other players, rather than their word-lists.
+ **/
+public class Standing implements Serializable {
+
+	private static final long serialVersionUID = -1571609453204637913L;
+
+	private final String name;
+	private final int score;
+	private final int wordCount;
+
+	public Standing(String name, int score, int wordCount) {
+		if (name == null)
+			throw new NullPointerException();
+
+		this.name = name;
+		this.score = score;
+		this.wordCount = wordCount;
+	}
+
+	/** Returns the standing of a player whose results are known. **/
+	static Standing of(ClientInfo info) {
+		return new Standing(info.getName(), info.getScore(), info.getWords() == null ? 0 : info.getWords().size());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + score + " points, " + wordCount + " words";
+	}
+}
@@ -0,0 +1,82 @@
+package tamm.org.boggle.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the words a player submitted in a round, in alphabetical order,
+ * with the ones that scored and the ones that weren't on the board. Clients
+ * that got personal {@link GameResults} fetch the other players' words this
+ * way with {@link BoggleServer#getWordPage}, one page at a time, and only if
+ * they want to see them.
+ **/
+public class WordPage implements Serializable {
+
+	private static final long serialVersionUID = 7729381659468019270L;
+
+	/** The most words on a page. **/
+	public static final int PAGE_SIZE = 100;
+
+	private final String playerName;
+	private final int page;
+	private final int pageCount;
+
+	private final List<String> words;
+	private final List<String> scoredWords;
+	private final List<String> rejectedWords;
+
+	/**
+	 * Constructs a new page.
+	 *
+	 * @param page the number of the page, from 0
+	 * @param pageCount the number of pages of all the player's words
+	 * @param words the words on the page
+	 * @param scoredWords those of the words that scored
+	 * @param rejectedWords those of the words that weren't on the board
+	 **/
+	public WordPage(String playerName, int page, int pageCount, List<String> words, List<String> scoredWords,
+			List<String> rejectedWords) {
+		this.playerName = playerName;
+		this.page = page;
+		this.pageCount = pageCount;
+		this.words = Collections.unmodifiableList(new ArrayList<String>(words));
+		this.scoredWords = Collections.unmodifiableList(new ArrayList<String>(scoredWords));
+		this.rejectedWords = Collections.unmodifiableList(new ArrayList<String>(rejectedWords));
+	}
+
+	public String getPlayerName() {
+		return playerName;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/** Returns true if there are pages after this one. **/
+	public boolean hasMore() {
+		return page + 1 < pageCount;
+	}
+
+	public List<String> getWords() {
+		return words;
+	}
+
+	public List<String> getScoredWords() {
+		return scoredWords;
+	}
+
+	public List<String> getRejectedWords() {
+		return rejectedWords;
+	}
+
+	@Override
+	public String toString() {
+		return playerName + "'s words, page " + (page + 1) + " of " + pageCount;
+	}
+}
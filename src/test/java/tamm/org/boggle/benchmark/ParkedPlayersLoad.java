@@ -0,0 +1,112 @@
+package tamm.org.boggle.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.server.BoardQuality;
+import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.DictionaryService;
+import tamm.org.boggle.server.Room;
+import tamm.org.boggle.server.RoomManager;
+import tamm.org.boggle.server.RoomSettings;
+import tamm.org.boggle.server.ServerExecutors;
+
+/**
+ * Parks many players in one room, the way the server's blocking handlers do:
+ * each player gets a task on a {@link ServerExecutors#newBlockingExecutor}
+ * that joins the room, waits for the round to start, and then waits for the
+ * results of the round. It prints how long it took to park and release them
+ * all, and how much heap and how many platform threads that needed. This is
+ * not run as part of the tests; run it with
+ *
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=tamm.org.boggle.benchmark.ParkedPlayersLoad \
+ *       -Dexec.args=50000
+ * </pre>
+ *
+ * or directly with <tt>java</tt> on the test classpath. The optional argument
+ * is the number of players; run it on a JVM with virtual threads to park tens
+ * of thousands of them.
+ */
+public class ParkedPlayersLoad {
+
+	public static void main(String[] args) throws InterruptedException {
+		final int players = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+
+		System.out.println("virtual threads: " + ServerExecutors.hasVirtualThreads());
+		System.out.println("players: " + players);
+
+		DictionaryService.getInstance().getDictionary();
+		RoomManager rooms = new RoomManager(BoardQuality.DEFAULT, Executors.newScheduledThreadPool(1));
+		ExecutorService executor = ServerExecutors.newBlockingExecutor("player");
+
+		try {
+			// The round starts once the last player has joined and a second
+			// has passed.
+			final Room room = rooms.createRoom("load", new RoomSettings(players, 1000, 4, 60));
+			final CountDownLatch joined = new CountDownLatch(players);
+			final CountDownLatch done = new CountDownLatch(players);
+			final AtomicInteger scored = new AtomicInteger();
+
+			long heapBefore = usedHeap();
+			int threadsBefore = Thread.activeCount();
+			long start = System.nanoTime();
+
+			for (int i = 0; i < players; i++) {
+				final String name = "player-" + i;
+				executor.execute(new Runnable() {
+					public void run() {
+						ClientInfo info = new ClientInfo(name);
+						room.join(info);
+						joined.countDown();
+
+						try {
+							info.awaitPlaying();
+						} catch (InterruptedException e) {
+							return;
+						}
+
+						WordList words = new WordList();
+						words.addWord("tea");
+						info.setWords(words);
+						if (info.getRound().submit(info, DictionaryService.getInstance().getDictionary()) != null)
+							scored.incrementAndGet();
+						done.countDown();
+					}
+				});
+			}
+
+			joined.await();
+			long parked = System.nanoTime();
+			System.out.println("parked in lobby: " + ms(parked - start) + " ms, heap +"
+					+ (usedHeap() - heapBefore) / (1024 * 1024) + " MB, threads +"
+					+ (Thread.activeCount() - threadsBefore));
+
+			done.await(5, TimeUnit.MINUTES);
+			long finished = System.nanoTime();
+			System.out.println("round played and scored: " + ms(finished - parked) + " ms, "
+					+ scored.get() + " results, lobby start lag "
+					+ room.getLobby().getMaxStartLag() + " ms");
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			executor.shutdownNow();
+			rooms.shutdown();
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static long ms(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+}
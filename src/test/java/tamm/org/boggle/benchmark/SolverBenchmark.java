@@ -0,0 +1,91 @@
+package tamm.org.boggle.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.BoggleSolver;
+import tamm.org.boggle.server.DictionaryService;
+
+/**
+ * Measures how the parallel solver scales with the number of threads on large
+ * boards. This is not run as part of the tests; run it with
+ *
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=tamm.org.boggle.benchmark.SolverBenchmark
+ * </pre>
+ *
+ * or directly with <tt>java</tt> on the test classpath. The optional argument
+ * is the number of boards solved per measurement. The speedups only mean
+ * something on a machine with several cores; on a single core they show the
+ * cost of splitting the search.
+ */
+public class SolverBenchmark {
+
+	private static final int[] SIZES = { 4, 20, 50, 100 };
+
+	public static void main(String[] args) {
+		int boards = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int cores = Runtime.getRuntime().availableProcessors();
+		BoggleSolver solver = new BoggleSolver(DictionaryService.getInstance().getDictionary().getLexicon());
+
+		System.out.println("cores: " + cores);
+		System.out.println("size  threads  ms/board  speedup  words");
+
+		for (int size : SIZES) {
+			BoggleBoard[] sample = new BoggleBoard[boards];
+			for (int i = 0; i < boards; i++) {
+				sample[i] = new BoggleBoard(size);
+			}
+
+			double serial = measure(sample, solver, 0);
+			print(size, 1, serial, 1.0, count(solver.solve(sample[0])));
+
+			for (int threads = 2; threads <= Math.max(cores, 2); threads *= 2) {
+				double parallel = measure(sample, solver, threads);
+				print(size, threads, parallel, serial / parallel, count(solver.solve(sample[0])));
+			}
+		}
+	}
+
+	/**
+	 * Returns the average milliseconds per board, serially if threads is 0
+	 */
+	private static double measure(BoggleBoard[] sample, BoggleSolver solver, int threads) {
+		ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : null;
+		final LongAdder words = new LongAdder();
+
+		try {
+			// warm-up round
+			run(sample, solver, pool, words);
+
+			long start = System.nanoTime();
+			run(sample, solver, pool, words);
+			return (System.nanoTime() - start) / 1e6 / sample.length;
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private static void run(BoggleBoard[] sample, BoggleSolver solver, ForkJoinPool pool, final LongAdder words) {
+		for (BoggleBoard board : sample) {
+			if (pool == null) {
+				words.add(solver.solve(board).size());
+			} else {
+				solver.solveParallel(board, pool, (word, path) -> words.increment());
+			}
+		}
+	}
+
+	private static int count(Map<String, int[]> words) {
+		return words.size();
+	}
+
+	private static void print(int size, int threads, double ms, double speedup, int words) {
+		System.out.println(String.format("%4d  %7d  %8.3f  %7.2f  %5d", size, threads, ms, speedup, words));
+	}
+}
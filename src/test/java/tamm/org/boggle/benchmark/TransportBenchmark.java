@@ -0,0 +1,235 @@
+package tamm.org.boggle.benchmark;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoggleSolver;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.gui.NioBoggleConnection;
+import tamm.org.boggle.server.BoardSpec;
+import tamm.org.boggle.server.BoggleListener;
+import tamm.org.boggle.server.BoggleServer;
+import tamm.org.boggle.server.BoggleServerApp;
+import tamm.org.boggle.server.DictionaryService;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.NioBoggleServer;
+import tamm.org.boggle.server.RoomSettings;
+
+/**
+ * Plays the same round over RMI and over the binary protocol, and prints how
+ * many bytes each transport puts on the wire per player: joining, the round
+ * start, the ticks, submitting about twenty words, and the results. This is
+ * not run as part of the tests; run it with
+ *
+ * <pre>
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=tamm.org.boggle.benchmark.TransportBenchmark \
+ *       -Dexec.args=8
+ * </pre>
+ *
+ * or directly with <tt>java</tt> on the test classpath. The optional argument
+ * is the number of players in the round.
+ * <p>
+ * The RMI bytes are counted by the client socket factory both the server and
+ * the players' listeners are exported with, so they include the calls, the
+ * callbacks and RMI's own distributed garbage collection. The binary
+ * protocol bytes are counted by the server.
+ */
+public class TransportBenchmark {
+
+	private static final int WORDS_PER_PLAYER = 20;
+	private static final int ROUND_LENGTH = 2;
+
+	/** The bytes read and written by all sockets of {@link CountingSocketFactory}. **/
+	private static final AtomicLong rmiBytes = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+		int players = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		DictionaryService.getInstance().getDictionary();
+
+		System.out.println("players: " + players);
+
+		BoggleServerApp rmiApp = new BoggleServerApp();
+		CountingSocketFactory factory = new CountingSocketFactory();
+		BoggleServer rmiServer = (BoggleServer) UnicastRemoteObject.exportObject(rmiApp, 0, factory, null);
+		rmiServer.createRoom("rmi", new RoomSettings(players, 200, 4, ROUND_LENGTH));
+
+		// warm up the connections, then count a round of their own
+		playRound(rmiServer, "rmi", "warmup-", players, factory);
+		rmiBytes.set(0);
+		playRound(rmiServer, "rmi", "player-", players, factory);
+		long rmi = rmiBytes.get() / players;
+		System.out.println("rmi:    " + rmi + " bytes per player per round");
+
+		NioBoggleServer nioServer = new NioBoggleServer(new BoggleServerApp(), 0);
+		nioServer.start();
+		List<NioBoggleConnection> connections = new ArrayList<NioBoggleConnection>();
+		for (int i = 0; i < players; i++)
+			connections.add(new NioBoggleConnection("localhost", nioServer.getPort()));
+		connections.get(0).createRoom("nio", new RoomSettings(players, 200, 4, ROUND_LENGTH));
+
+		long before = nioServer.getBytesRead() + nioServer.getBytesWritten();
+		playRound(connections, "nio", "player-");
+		long nio = (nioServer.getBytesRead() + nioServer.getBytesWritten() - before) / players;
+		System.out.println("binary: " + nio + " bytes per player per round");
+		System.out.println(String.format("ratio:  %.1fx", (double) rmi / nio));
+
+		for (NioBoggleConnection connection : connections)
+			connection.close();
+		nioServer.stop();
+		UnicastRemoteObject.unexportObject(rmiApp, true);
+		System.exit(0);
+	}
+
+	private static void playRound(BoggleServer server, String room, String prefix, int players,
+			CountingSocketFactory factory) throws Exception {
+		List<BoggleServer> servers = new ArrayList<BoggleServer>();
+		for (int i = 0; i < players; i++)
+			servers.add(server);
+		playRound(servers, room, prefix, factory);
+	}
+
+	private static void playRound(List<? extends BoggleServer> servers, String room, String prefix)
+			throws Exception {
+		playRound(servers, room, prefix, null);
+	}
+
+	/**
+	 * Joins a player to the room over each server, waits for the round to
+	 * start, submits words found on the board and waits for all results
+	 */
+	private static void playRound(List<? extends BoggleServer> servers, String room, String prefix,
+			CountingSocketFactory factory) throws Exception {
+		int players = servers.size();
+		Player[] player = new Player[players];
+		CountDownLatch started = new CountDownLatch(players);
+		CountDownLatch finished = new CountDownLatch(players);
+
+		for (int i = 0; i < players; i++) {
+			player[i] = new Player(started, finished);
+			BoggleListener listener = player[i];
+			if (factory != null)
+				listener = (BoggleListener) UnicastRemoteObject.exportObject(player[i], 0, factory, null);
+			player[i].ticket = servers.get(i).joinGame(prefix + i, room, BoardGenerator.VERSION, listener);
+		}
+
+		if (!started.await(30, TimeUnit.SECONDS))
+			throw new IllegalStateException("The round didn't start");
+
+		BoggleSolver solver = new BoggleSolver(DictionaryService.getInstance().getDictionary().getLexicon());
+		List<String> found = new ArrayList<String>(solver.solve(player[0].board.toBoard()).keySet());
+
+		for (int i = 0; i < players; i++) {
+			WordList words = new WordList();
+			for (int j = 0; j < WORDS_PER_PLAYER - 2 && j < found.size(); j++)
+				words.addWord(found.get((i + j) % found.size()));
+			// and a couple that don't score
+			words.addWord("zzz" + i);
+			words.addWord("qqq" + i);
+			servers.get(i).submitWords(player[i].ticket, words);
+		}
+
+		if (!finished.await(30, TimeUnit.SECONDS))
+			throw new IllegalStateException("The results didn't come");
+
+		if (factory != null) {
+			for (Player p : player)
+				UnicastRemoteObject.unexportObject(p, true);
+		}
+	}
+
+	/** A player that waits for the events of its game. **/
+	private static class Player implements BoggleListener {
+		private final CountDownLatch started;
+		private final CountDownLatch finished;
+		volatile long ticket;
+		volatile BoardSpec board;
+
+		Player(CountDownLatch started, CountDownLatch finished) {
+			this.started = started;
+			this.finished = finished;
+		}
+
+		public void roundStarted(long t, BoardSpec spec, int roundLength) {
+			board = spec;
+			started.countDown();
+		}
+
+		public void tick(long t, int secondsRemaining) {
+		}
+
+		public void resultsReady(long t, GameResults results) {
+			finished.countDown();
+		}
+	}
+
+	/** Creates sockets that count every byte they read and write. **/
+	private static class CountingSocketFactory implements RMIClientSocketFactory, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		public Socket createSocket(String host, int port) throws IOException {
+			return new Socket(host, port) {
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return new FilterInputStream(super.getInputStream()) {
+						@Override
+						public int read() throws IOException {
+							int b = super.read();
+							if (b >= 0)
+								rmiBytes.incrementAndGet();
+							return b;
+						}
+
+						@Override
+						public int read(byte[] b, int off, int len) throws IOException {
+							int n = super.read(b, off, len);
+							if (n > 0)
+								rmiBytes.addAndGet(n);
+							return n;
+						}
+					};
+				}
+
+				@Override
+				public OutputStream getOutputStream() throws IOException {
+					return new FilterOutputStream(super.getOutputStream()) {
+						@Override
+						public void write(int b) throws IOException {
+							out.write(b);
+							rmiBytes.incrementAndGet();
+						}
+
+						@Override
+						public void write(byte[] b, int off, int len) throws IOException {
+							out.write(b, off, len);
+							rmiBytes.addAndGet(len);
+						}
+					};
+				}
+			};
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof CountingSocketFactory;
+		}
+
+		@Override
+		public int hashCode() {
+			return CountingSocketFactory.class.hashCode();
+		}
+	}
+}
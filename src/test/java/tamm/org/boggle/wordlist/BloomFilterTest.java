@@ -0,0 +1,79 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.BoggleSolver;
+import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.Dictionary;
+import tamm.org.boggle.server.DictionaryService;
+import tamm.org.boggle.server.Round;
+import tamm.org.boggle.server.SolvedBoard;
+
+public class BloomFilterTest {
+
+	private final Dictionary dict = DictionaryService.getInstance().getDictionary();
+	private final BoggleSolver solver = new BoggleSolver(dict.getLexicon());
+
+	@Test
+	public void testBoardWords() {
+		BoggleBoard board = new BoggleBoard(4, 1234L);
+		Map<String, int[]> words = solver.solve(board);
+		BloomFilter filter = BloomFilter.of(words.keySet());
+
+		for (String word : words.keySet()) {
+			Assert.assertTrue(filter.mightContain(word), word);
+			Assert.assertTrue(filter.mightContain(word.toUpperCase()), word);
+		}
+
+		// a few hundred bytes for a 4x4 board
+		Assert.assertTrue(filter.toByteArray().length < 600, "" + filter.toByteArray().length);
+
+		int falsePositives = 0;
+		int others = 0;
+		for (String word : dict.getLexicon().words()) {
+			if (!words.containsKey(word)) {
+				others++;
+				if (filter.mightContain(word)) {
+					falsePositives++;
+				}
+			}
+		}
+		Assert.assertTrue(falsePositives < others * 0.03, falsePositives + " of " + others);
+	}
+
+	@Test
+	public void testSizedByWordCount() {
+		BoggleBoard small = new BoggleBoard(4, 99L);
+		BoggleBoard large = new BoggleBoard(8, 99L);
+		BloomFilter smallFilter = BloomFilter.of(solver.solve(small).keySet());
+		BloomFilter largeFilter = BloomFilter.of(solver.solve(large).keySet());
+
+		Assert.assertTrue(largeFilter.getBitCount() > smallFilter.getBitCount() * 4);
+
+		BloomFilter empty = BloomFilter.of(Collections.<String>emptySet());
+		Assert.assertFalse(empty.mightContain("cat"));
+		Assert.assertEquals(new BloomFilter(smallFilter.toByteArray(), smallFilter.getBitCount(),
+				smallFilter.getHashCount()), smallFilter);
+	}
+
+	@Test
+	public void testRoundSendsFilter() {
+		BoggleBoard board = new BoggleBoard(4, 42L);
+		SolvedBoard solved = new SolvedBoard(board, solver.solve(board));
+		Round round = new Round(1, solved, Arrays.asList(new ClientInfo("a")));
+
+		BloomFilter filter = round.getBoardSpec(board.getGeneratorVersion()).getWordFilter();
+		Assert.assertNotNull(filter);
+		for (String word : solved.getWords().keySet()) {
+			Assert.assertTrue(filter.mightContain(word), word);
+		}
+		Assert.assertSame(round.getBoardSpec(-1).getWordFilter(), filter);
+	}
+}
@@ -0,0 +1,68 @@
+package tamm.org.boggle.wordlist;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.server.BoardPool;
+import tamm.org.boggle.server.BoardQuality;
+import tamm.org.boggle.server.SolvedBoard;
+
+public class BoardPoolTest {
+
+	@Test
+	public void testQueuedBoardsMeetTargets() throws InterruptedException {
+		BoardQuality quality = new BoardQuality(40, 50, 0.0625);
+		BoardPool pool = new BoardPool(4, 4, quality);
+		pool.start();
+
+		try {
+			long deadline = System.currentTimeMillis() + 10000;
+			while (pool.getQueueDepth() < 4 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertEquals(pool.getQueueDepth(), 4);
+
+			for (int i = 0; i < 4; i++) {
+				SolvedBoard solved = pool.take();
+				Assert.assertTrue(quality.accepts(solved));
+				Assert.assertTrue(solved.getWordCount() >= 40);
+				Assert.assertTrue(solved.getTotalScore() >= 50);
+			}
+
+			Assert.assertTrue(pool.getGenerated() >= 4);
+			Assert.assertEquals(pool.getTaken(), 4);
+		} finally {
+			pool.stop();
+		}
+	}
+
+	@Test
+	public void testEmptyPoolDoesNotWaitForTargets() {
+		// No board has this many words, and the producer isn't started.
+		BoardQuality quality = new BoardQuality(100000, 0, 1);
+		BoardPool pool = new BoardPool(4, 4, quality);
+
+		SolvedBoard solved = pool.take();
+		Assert.assertNotNull(solved);
+		Assert.assertFalse(quality.accepts(solved));
+		Assert.assertEquals(pool.getGenerated(), 1);
+		Assert.assertEquals(pool.getTakenWhileEmpty(), 1);
+	}
+
+	@Test
+	public void testRareLetterShare() {
+		BoardQuality quality = new BoardQuality(0, 0, 0.125);
+
+		Assert.assertTrue(quality.acceptsLetters(new BoggleBoard(new String[][] {
+				{ "Qu", "A", "T", "S" },
+				{ "E", "R", "A", "I" },
+				{ "D", "O", "G", "T" },
+				{ "N", "E", "X", "E" } })));
+		Assert.assertFalse(quality.acceptsLetters(new BoggleBoard(new String[][] {
+				{ "Qu", "A", "T", "S" },
+				{ "E", "R", "Z", "I" },
+				{ "D", "O", "G", "T" },
+				{ "N", "E", "X", "E" } })));
+	}
+}
@@ -0,0 +1,59 @@
+package tamm.org.boggle.wordlist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.server.BoardSpec;
+
+public class BoardSpecTest {
+
+	@Test
+	public void testSeedOnlySpecRebuildsBoard() throws Exception {
+		BoggleBoard board = new BoggleBoard(4);
+		BoardSpec spec = roundTrip(BoardSpec.seedOnly(board));
+
+		Assert.assertTrue(spec.isSeedOnly());
+		Assert.assertEquals(spec.toBoard().getFieldValues(), board.getFieldValues());
+	}
+
+	@Test
+	public void testFallsBackToFullBoard() throws Exception {
+		BoggleBoard board = new BoggleBoard(new String[][] { { "A", "B" }, { "C", "Qu" } });
+
+		Assert.assertFalse(BoardSpec.canSendSeed(board, BoardGenerator.VERSION));
+		Assert.assertFalse(BoardSpec.canSendSeed(new BoggleBoard(4), BoardGenerator.VERSION + 1));
+
+		BoardSpec spec = roundTrip(BoardSpec.fullBoard(board));
+		Assert.assertFalse(spec.isSeedOnly());
+		Assert.assertEquals(spec.toBoard().getFieldValues(), board.getFieldValues());
+	}
+
+	@Test
+	public void testSeedOnlySpecIsSmaller() throws IOException {
+		BoggleBoard board = new BoggleBoard(4);
+
+		Assert.assertTrue(serialize(BoardSpec.seedOnly(board)).length < serialize(BoardSpec.fullBoard(board)).length);
+	}
+
+	private static byte[] serialize(Object o) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static BoardSpec roundTrip(BoardSpec spec) throws Exception {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(spec)))) {
+			return (BoardSpec) in.readObject();
+		}
+	}
+}
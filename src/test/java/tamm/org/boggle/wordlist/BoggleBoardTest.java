@@ -1,8 +1,13 @@
 package tamm.org.boggle.wordlist;
 
+import java.util.SplittableRandom;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import tamm.org.boggle.board.AliasSampler;
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoardTopology;
 import tamm.org.boggle.board.BoggleBoard;
 
 public class BoggleBoardTest {
@@ -28,6 +33,94 @@ public class BoggleBoardTest {
 	  Assert.assertTrue(checkCellValues(new BoggleBoard()));
   }
 
+  @Test
+  public void testTopology()
+  {
+	  BoardTopology topology = new BoggleBoard(6).getTopology();
+	  
+	  Assert.assertSame(topology, new BoggleBoard(6).getTopology());
+	  Assert.assertEquals(topology.cellCount(), 36);
+	  
+	  // corner, edge and inner cells
+	  Assert.assertEquals(topology.offset(1) - topology.offset(0), 3);
+	  Assert.assertEquals(topology.offset(2) - topology.offset(1), 5);
+	  Assert.assertEquals(topology.offset(8) - topology.offset(7), 8);
+	  
+	  for(int i = topology.offset(7); i < topology.offset(8); i++)
+	  {
+		  Assert.assertTrue(topology.isAdjacent(7, topology.neighbor(i)));
+	  }
+	  Assert.assertFalse(topology.isAdjacent(5, 6));
+	  Assert.assertFalse(topology.isAdjacent(7, 7));
+  }
+
+  @Test
+  public void testSeedReproducesBoard()
+  {
+	  BoggleBoard random = new BoggleBoard(5);
+	  Assert.assertTrue(random.hasSeed());
+	  
+	  BoggleBoard replay = new BoggleBoard(5, random.getSeed());
+	  Assert.assertEquals(replay.getFieldValues(), random.getFieldValues());
+	  Assert.assertEquals(new BoggleBoard(4, 42L).getFieldValues(), new BoggleBoard(4, 42L).getFieldValues());
+	  
+	  Assert.assertFalse(new BoggleBoard(new String[][] { { "A" } }).hasSeed());
+  }
+  
+  @Test
+  public void testBatchMatchesSingleBoards()
+  {
+	  long[] seeds = { 1L, 2L, 3L };
+	  byte[] buffer = new byte[seeds.length * 16];
+	  BoardGenerator.CLASSIC.fillBatch(4, seeds, buffer);
+	  
+	  for(int i = 0; i < seeds.length; i++)
+	  {
+		  BoggleBoard single = new BoggleBoard(4, seeds[i]);
+		  for(int cell = 0; cell < 16; cell++)
+		  {
+			  Assert.assertEquals(buffer[i * 16 + cell], single.getCode(cell));
+		  }
+	  }
+  }
+  
+  @Test
+  public void testFourByFourBoardsUseEachDieOnce()
+  {
+	  // Only one die has a Qu face, so a 4x4 board never has two.
+	  for(int i = 0; i < 1000; i++)
+	  {
+		  int qu = 0;
+		  BoggleBoard random = new BoggleBoard(4, i);
+		  for(int cell = 0; cell < random.getCellCount(); cell++)
+		  {
+			  if(random.getLetters().get(random.getCode(cell)).equals("Qu"))
+			  {
+				  qu++;
+			  }
+		  }
+		  Assert.assertTrue(qu <= 1);
+	  }
+  }
+  
+  @Test
+  public void testAliasSamplerFrequencies()
+  {
+	  AliasSampler sampler = new AliasSampler(new double[] { 1, 0, 3, 4 });
+	  SplittableRandom random = new SplittableRandom(7);
+	  int[] counts = new int[4];
+	  
+	  for(int i = 0; i < 80000; i++)
+	  {
+		  counts[sampler.sample(random)]++;
+	  }
+	  
+	  Assert.assertEquals(counts[1], 0);
+	  Assert.assertEquals(counts[0], 10000, 500);
+	  Assert.assertEquals(counts[2], 30000, 1000);
+	  Assert.assertEquals(counts[3], 40000, 1000);
+  }
+
   public boolean checkCellValues(BoggleBoard board)
   {
 	  String[][] cells = board.getFieldValues();
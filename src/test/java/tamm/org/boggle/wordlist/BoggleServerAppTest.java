@@ -0,0 +1,236 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.server.BoardSpec;
+import tamm.org.boggle.server.BoggleListener;
+import tamm.org.boggle.server.BoggleServerApp;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.PlayerException;
+import tamm.org.boggle.server.RoomManager;
+import tamm.org.boggle.server.RoomSettings;
+import tamm.org.boggle.server.Round;
+import tamm.org.boggle.server.WordPage;
+
+public class BoggleServerAppTest {
+
+	/** Records the callbacks of one client. **/
+	private static class Recorder implements BoggleListener {
+		final BlockingQueue<BoardSpec> boards = new LinkedBlockingQueue<BoardSpec>();
+		final BlockingQueue<Integer> ticks = new LinkedBlockingQueue<Integer>();
+		final BlockingQueue<GameResults> results = new LinkedBlockingQueue<GameResults>();
+
+		public void roundStarted(long ticket, BoardSpec board, int roundLength) {
+			boards.add(board);
+		}
+
+		public void tick(long ticket, int secondsRemaining) {
+			ticks.add(secondsRemaining);
+		}
+
+		public void resultsReady(long ticket, GameResults results) {
+			this.results.add(results);
+		}
+	}
+
+	private WordList words(String... words) {
+		WordList list = new WordList();
+		for (String w : words) {
+			list.addWord(w);
+		}
+		return list;
+	}
+
+	@Test
+	public void testAsyncGame() throws Exception {
+		BoggleServerApp server = new BoggleServerApp();
+		server.createRoom("async", new RoomSettings(2, 50, 4, 3));
+
+		Recorder a = new Recorder();
+		Recorder b = new Recorder();
+		long ta = server.joinGame("a", "async", BoardGenerator.VERSION, a);
+		long tb = server.joinGame("b", "async", BoardGenerator.VERSION, b);
+		Assert.assertNotEquals(ta, tb);
+
+		BoardSpec boardA = a.boards.poll(10, TimeUnit.SECONDS);
+		BoardSpec boardB = b.boards.poll(10, TimeUnit.SECONDS);
+		Assert.assertNotNull(boardA);
+		Assert.assertTrue(boardA.isSeedOnly());
+		Assert.assertEquals(boardA.getSeed(), boardB.getSeed());
+		Assert.assertEquals(boardA.getDeadline(), boardB.getDeadline());
+		Assert.assertTrue(boardA.getDeadline() > System.currentTimeMillis());
+
+		// Words may be sent while the round is played.
+		Assert.assertFalse(server.submitWord(ta, "xyz"));
+		Assert.assertEquals(server.submitBatch(tb, words("qqq", "zzz")), 0);
+
+		Integer tick = a.ticks.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull(tick);
+		Assert.assertTrue(tick <= 3);
+
+		server.submitWords(ta, words("xyz"));
+		Assert.assertNull(a.results.poll(200, TimeUnit.MILLISECONDS));
+
+		server.submitWords(tb, words("qqq"));
+		GameResults results = a.results.poll(10, TimeUnit.SECONDS);
+		Assert.assertNotNull(results);
+		Assert.assertEquals(results.getClientNames().size(), 2);
+		Assert.assertNotNull(b.results.poll(10, TimeUnit.SECONDS));
+		Assert.assertEquals(results.getClientResult("b").getWords().size(), 2);
+
+		// The names are free again once the results are sent.
+		Recorder c = new Recorder();
+		server.joinGame("a", "async", BoardGenerator.VERSION, c);
+	}
+
+	@Test
+	public void testPersonalResults() throws Exception {
+		BoggleServerApp server = new BoggleServerApp();
+		server.createRoom("personal", new RoomSettings(2, 50, 4, 3, true));
+
+		Recorder a = new Recorder();
+		Recorder b = new Recorder();
+		long ta = server.joinGame("a", "personal", BoardGenerator.VERSION, a);
+		long tb = server.joinGame("b", "personal", BoardGenerator.VERSION, b);
+		Assert.assertNotNull(a.boards.poll(10, TimeUnit.SECONDS));
+		Assert.assertNotNull(b.boards.poll(10, TimeUnit.SECONDS));
+
+		server.submitWords(ta, words("xyz"));
+		server.submitWords(tb, words("qqq", "zzz"));
+
+		// Each player gets their own words, and only the standing of the other
+		GameResults results = a.results.poll(10, TimeUnit.SECONDS);
+		Assert.assertNotNull(results);
+		Assert.assertFalse(results.isComplete());
+		Assert.assertEquals(results.getClientNames().size(), 1);
+		Assert.assertEquals(results.getClientResult("a").getWords().size(), 1);
+		Assert.assertEquals(results.getStandings().size(), 2);
+		Assert.assertEquals(b.results.poll(10, TimeUnit.SECONDS).getClientNames().size(), 1);
+
+		// and fetches the other's words when it wants to see them
+		WordPage page = server.getWordPage(results.getId(), "b", 0);
+		Assert.assertEquals(page.getWords(), Arrays.asList("qqq", "zzz"));
+		Assert.assertEquals(page.getRejectedWords().size(), 2);
+
+		try {
+			server.getWordPage(results.getId() + 1000, "b", 0);
+			Assert.fail();
+		} catch (PlayerException e) {
+			// not kept
+		}
+	}
+
+	@Test
+	public void testPersonalResultsOfBlockingClients() throws Exception {
+		final BoggleServerApp server = new BoggleServerApp();
+		server.createRoom("personal-rmi", new RoomSettings(2, 50, 4, 3, true));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<GameResults> fa = play(executor, server, "a", "personal-rmi", words("xyz"));
+			Future<GameResults> fb = play(executor, server, "b", "personal-rmi", words("qqq", "zzz"));
+
+			GameResults results = fa.get(10, TimeUnit.SECONDS);
+			Assert.assertFalse(results.isComplete());
+			Assert.assertEquals(results.getClientNames(), Collections.singleton("a"));
+			Assert.assertEquals(results.getStandings().size(), 2);
+			Assert.assertEquals(fb.get(10, TimeUnit.SECONDS).getClientNames(), Collections.singleton("b"));
+
+			Assert.assertEquals(server.getWordPage(results.getId(), "b", 0).getWords(), Arrays.asList("qqq", "zzz"));
+		} finally {
+			executor.shutdownNow();
+			server.shutdown();
+		}
+	}
+
+	/** Plays a round through the blocking calls, on another thread. **/
+	private Future<GameResults> play(ExecutorService executor, final BoggleServerApp server, final String name,
+			final String room, final WordList words) {
+		return executor.submit(new Callable<GameResults>() {
+			public GameResults call() throws Exception {
+				server.startGame(name, room, BoardGenerator.VERSION);
+				return server.gameOver(name, words);
+			}
+		});
+	}
+
+	@Test
+	public void testStragglerDoesNotHoldUpTheRound() throws Exception {
+		BoggleServerApp server = new BoggleServerApp();
+		server.createRoom("deadline", new RoomSettings(2, 50, 4, 1));
+
+		Recorder a = new Recorder();
+		Recorder b = new Recorder();
+		long ta = server.joinGame("a", "deadline", BoardGenerator.VERSION, a);
+		server.joinGame("b", "deadline", BoardGenerator.VERSION, b);
+		Assert.assertNotNull(a.boards.poll(10, TimeUnit.SECONDS));
+
+		// b never submits, but both get the results once the grace is over.
+		server.submitWords(ta, words("tea"));
+		GameResults results = a.results.poll(1000 + Round.GRACE_MILLIS + 5000, TimeUnit.MILLISECONDS);
+		Assert.assertNotNull(results);
+		Assert.assertEquals(results.getClientResult("b").getWords().size(), 0);
+		Assert.assertNotNull(b.results.poll(5, TimeUnit.SECONDS));
+
+		// and b's name is free again
+		server.joinGame("b", "deadline", BoardGenerator.VERSION, new Recorder());
+	}
+
+	@Test
+	public void testLateBlockingClientGetsTheResults() throws Exception {
+		final BoggleServerApp server = new BoggleServerApp();
+		server.createRoom("late", new RoomSettings(2, 50, 4, 1));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<GameResults> fa = play(executor, server, "a", "late", words("tea"));
+			Future<BoardSpec> fb = executor.submit(new Callable<BoardSpec>() {
+				public BoardSpec call() throws Exception {
+					return server.startGame("b", "late", BoardGenerator.VERSION);
+				}
+			});
+			Assert.assertNotNull(fb.get(10, TimeUnit.SECONDS));
+
+			// The round ends without b.
+			GameResults results = fa.get(1000 + Round.GRACE_MILLIS + 5000, TimeUnit.MILLISECONDS);
+
+			// b's word-list comes too late to count, but b gets the results.
+			GameResults late = server.gameOver("b", words("tea"));
+			Assert.assertEquals(late.getId(), results.getId());
+			Assert.assertEquals(late.getClientResult("b").getWords().size(), 0);
+		} finally {
+			executor.shutdownNow();
+			server.shutdown();
+		}
+	}
+
+	@Test(expectedExceptions = PlayerException.class)
+	public void testUnknownHeartbeat() throws PlayerException {
+		new BoggleServerApp().heartbeat(12345);
+	}
+
+	@Test(expectedExceptions = PlayerException.class)
+	public void testWordBeforeTheRound() throws Exception {
+		BoggleServerApp server = new BoggleServerApp();
+		long ticket = server.joinGame("early", RoomManager.DEFAULT_ROOM, BoardGenerator.VERSION, new Recorder());
+		server.submitWord(ticket, "cat");
+	}
+
+	@Test(expectedExceptions = PlayerException.class)
+	public void testUnknownTicket() throws PlayerException {
+		new BoggleServerApp().submitWords(12345, words("cat"));
+	}
+}
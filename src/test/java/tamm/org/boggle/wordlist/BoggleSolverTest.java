@@ -0,0 +1,100 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.BoggleSolver;
+import tamm.org.boggle.board.Lexicon;
+import tamm.org.boggle.server.DictionaryService;
+
+public class BoggleSolverTest {
+
+	private final BoggleBoard board = new BoggleBoard(new String[][] {
+			{ "C", "A", "T", "S" },
+			{ "X", "R", "Qu", "I" },
+			{ "D", "O", "G", "T" },
+			{ "X", "X", "X", "E" } });
+
+	private final Lexicon lexicon = Lexicon.build(Arrays.asList(
+			"cat", "cats", "car", "cart", "rat", "dog", "quit", "quite", "tat", "at", "xray"));
+
+	@Test
+	public void testFindsTraceableWords() {
+		Map<String, int[]> words = new BoggleSolver(lexicon).solve(board);
+
+		Assert.assertEquals(words.keySet(),
+				new java.util.HashSet<String>(Arrays.asList("cat", "cats", "car", "cart", "rat", "dog", "quit", "quite")));
+	}
+
+	@Test
+	public void testPathsSpellTheWords() {
+		Map<String, int[]> words = new BoggleSolver(lexicon).solve(board);
+
+		Assert.assertEquals(words.get("cart"), new int[] { 0, 1, 5, 2 });
+		Assert.assertEquals(words.get("quite"), new int[] { 6, 7, 11, 15 });
+	}
+
+	@Test
+	public void testDoesNotReuseCells() {
+		// "tat" would need the single T in the top row twice.
+		Assert.assertFalse(new BoggleSolver(lexicon).solve(board).containsKey("tat"));
+	}
+
+	@Test
+	public void testSolvesRandomBoards() {
+		BoggleSolver solver = new BoggleSolver(DictionaryService.getInstance().getDictionary().getLexicon());
+
+		for (int i = 0; i < 100; i++) {
+			BoggleBoard random = new BoggleBoard();
+			for (Map.Entry<String, int[]> e : solver.solve(random).entrySet()) {
+				Assert.assertEquals(spell(random, e.getValue()), e.getKey());
+			}
+		}
+	}
+
+	@Test
+	public void testParallelSolveMatchesSerial() {
+		BoggleSolver solver = new BoggleSolver(DictionaryService.getInstance().getDictionary().getLexicon());
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			for (int i = 0; i < 5; i++) {
+				BoggleBoard large = new BoggleBoard(20);
+				Map<String, int[]> serial = solver.solve(large);
+
+				Assert.assertEquals(solver.solveParallel(large, pool).keySet(), serial.keySet());
+
+				final Map<String, int[]> streamed = new ConcurrentHashMap<String, int[]>();
+				final AtomicInteger calls = new AtomicInteger();
+				solver.solveParallel(large, pool, (word, path) -> {
+					calls.incrementAndGet();
+					streamed.put(word, path);
+				});
+
+				Assert.assertEquals(streamed.keySet(), serial.keySet());
+				// Tasks don't share what they found, so words may repeat.
+				Assert.assertTrue(calls.get() >= serial.size());
+				for (Map.Entry<String, int[]> e : streamed.entrySet()) {
+					Assert.assertEquals(spell(large, e.getValue()), e.getKey());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static String spell(BoggleBoard b, int[] path) {
+		StringBuilder sb = new StringBuilder();
+		for (int cell : path) {
+			sb.append(b.getCell(cell / b.getSize(), cell % b.getSize()).toLowerCase());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,228 @@
+package tamm.org.boggle.wordlist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.Dictionary;
+import tamm.org.boggle.server.DictionaryService;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.Round;
+import tamm.org.boggle.server.Standing;
+import tamm.org.boggle.server.WordPage;
+
+public class GameResultsTest {
+
+	private final BoggleBoard board = new BoggleBoard(new String[][] {
+			{ "C", "A", "T", "S" },
+			{ "X", "R", "Qu", "I" },
+			{ "D", "O", "G", "T" },
+			{ "X", "X", "X", "E" } });
+
+	private ClientInfo player(String name, String... words) {
+		ClientInfo info = new ClientInfo(name);
+		info.setPlaying();
+
+		WordList list = new WordList();
+		for (String w : words) {
+			list.addWord(w);
+		}
+		info.setWords(list);
+
+		return info;
+	}
+
+	@Test
+	public void testOnlyUniqueWordsScore() {
+		List<ClientInfo> players = Arrays.asList(
+				player("a", "cat", "cart", "quite"),
+				player("b", "cat", "dog"),
+				player("c", "cat", "cart", "rat"));
+
+		GameResults results = new GameResults();
+		results.computeResults(players, board);
+
+		Assert.assertEquals(results.getClientResult("a").getFilteredWords().getWordList(),
+				new java.util.HashSet<String>(Arrays.asList("quite")));
+		Assert.assertEquals(results.getClientResult("a").getScore(), 2);
+		Assert.assertEquals(results.getClientResult("b").getScore(), 1);
+		Assert.assertEquals(results.getClientResult("c").getScore(), 1);
+	}
+
+	@Test
+	public void testRejectedWordsDoNotCountAsFound() {
+		// "tat" is not on the board, so b finding it doesn't take it away from a.
+		List<ClientInfo> players = Arrays.asList(
+				player("a", "cart"),
+				player("b", "tat", "cdx"));
+
+		GameResults results = new GameResults();
+		results.computeResults(players, board);
+
+		Assert.assertEquals(results.getClientResult("a").getScore(), 1);
+		Assert.assertEquals(results.getClientResult("b").getScore(), 0);
+		Assert.assertEquals(results.getClientResult("b").getRejectedWords().size(), 2);
+	}
+
+	private byte[] serialize(Object o) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(o);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testRoundResultsAreSerializedOnce() throws Exception {
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		Round round = new Round(1, board, Arrays.asList(a, b));
+		a.setPlaying(round);
+		b.setPlaying(round);
+
+		WordList wa = new WordList();
+		wa.addWord("cart");
+		wa.addWord("cdx");
+		a.setWords(wa);
+		WordList wb = new WordList();
+		wb.addWord("dog");
+		b.setWords(wb);
+
+		Dictionary dict = DictionaryService.getInstance().getDictionary();
+		round.submitAsync(a, dict);
+		GameResults frozen = round.submitAsync(b, dict).get();
+
+		// The same results, but not frozen by a round
+		GameResults plain = new GameResults();
+		plain.computeResults(Arrays.asList(player("a", "cart", "cdx"), player("b", "dog")), dict, board);
+
+		byte[] once = serialize(frozen);
+		Assert.assertEquals(serialize(frozen), once);
+		Assert.assertTrue(once.length < serialize(plain).length / 2, once.length + " vs " + serialize(plain).length);
+
+		GameResults copy = (GameResults) new ObjectInputStream(new ByteArrayInputStream(once)).readObject();
+		Assert.assertEquals(copy.getClientNames(), plain.getClientNames());
+		for (String name : plain.getClientNames()) {
+			ClientInfo expected = plain.getClientResult(name);
+			ClientInfo actual = copy.getClientResult(name);
+			Assert.assertEquals(actual.getScore(), expected.getScore());
+			Assert.assertEquals(actual.getWords().getWordList(), expected.getWords().getWordList());
+			Assert.assertEquals(actual.getFilteredWords().getWordList(), expected.getFilteredWords().getWordList());
+			Assert.assertEquals(actual.getRejectedWords().getWordList(), expected.getRejectedWords().getWordList());
+		}
+	}
+
+	@Test
+	public void testRoundResultsAreImmutable() throws Exception {
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		Round round = new Round(1, board, Arrays.asList(a, b));
+		a.setPlaying(round);
+		b.setPlaying(round);
+		a.setWords(new WordList());
+		WordList wb = new WordList();
+		wb.addWord("dog");
+		b.setWords(wb);
+
+		Dictionary dict = DictionaryService.getInstance().getDictionary();
+		round.submitAsync(a, dict);
+		GameResults results = round.submitAsync(b, dict).get();
+		Assert.assertTrue(results.isFrozen());
+
+		// The results are a snapshot, which changing the players doesn't touch
+		b.getWords().addWord("cart");
+		ClientInfo frozen = results.getClientResult("b");
+		Assert.assertNotSame(frozen, b);
+		Assert.assertEquals(frozen.getWords().size(), 1);
+		Assert.assertEquals(frozen.getScore(), 1);
+
+		try {
+			frozen.setScore(11);
+			Assert.fail();
+		} catch (IllegalStateException expected) {
+		}
+		try {
+			frozen.getFilteredWords().addWord("cart");
+			Assert.fail();
+		} catch (UnsupportedOperationException expected) {
+		}
+		try {
+			results.clear();
+			Assert.fail();
+		} catch (IllegalStateException expected) {
+		}
+
+		// and so are results sent to another player
+		GameResults copy = (GameResults) new ObjectInputStream(new ByteArrayInputStream(serialize(results)))
+				.readObject();
+		Assert.assertTrue(copy.isFrozen());
+		Assert.assertTrue(copy.getClientResult("a").isFrozen());
+	}
+
+	@Test
+	public void testPersonalResults() throws Exception {
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		ClientInfo c = new ClientInfo("c");
+		Round round = new Round(1, board, Arrays.asList(a, b, c));
+		a.setPlaying(round);
+		b.setPlaying(round);
+		c.setPlaying(round);
+
+		a.setWords(new WordList());
+		WordList wb = new WordList();
+		wb.addWord("dog");
+		wb.addWord("cart");
+		b.setWords(wb);
+		WordList wc = new WordList();
+		for (int i = 0; i < WordPage.PAGE_SIZE + 10; i++)
+			wc.addWord("w" + i);
+		wc.addWord("quite");
+		wc.addWord("rat");
+		c.setWords(wc);
+
+		Dictionary dict = DictionaryService.getInstance().getDictionary();
+		round.submitAsync(a, dict);
+		round.submitAsync(b, dict);
+		GameResults results = round.submitAsync(c, dict).get();
+		Assert.assertTrue(results.isComplete());
+
+		GameResults personal = (GameResults) new ObjectInputStream(
+				new ByteArrayInputStream(serialize(results.personalFor("b")))).readObject();
+		Assert.assertFalse(personal.isComplete());
+		Assert.assertEquals(personal.getId(), results.getId());
+		Assert.assertEquals(personal.getClientNames(), Collections.singleton("b"));
+		Assert.assertEquals(personal.getClientResult("b").getScore(), 2);
+
+		// Every player is on the leaderboard, the best first
+		List<Standing> standings = personal.getStandings();
+		Assert.assertEquals(standings.size(), 3);
+		Assert.assertEquals(standings.get(0).getName(), "c");
+		Assert.assertEquals(standings.get(0).getScore(), 3);
+		Assert.assertEquals(standings.get(0).getWordCount(), WordPage.PAGE_SIZE + 12);
+		Assert.assertEquals(standings.get(2).getName(), "a");
+
+		WordPage first = results.getWordPage("c", 0);
+		Assert.assertEquals(first.getWords().size(), WordPage.PAGE_SIZE);
+		Assert.assertEquals(first.getPageCount(), 2);
+		Assert.assertTrue(first.hasMore());
+		WordPage second = results.getWordPage("c", 1);
+		Assert.assertEquals(second.getWords().size(), 12);
+		Assert.assertEquals(first.getScoredWords(), Arrays.asList("quite", "rat"));
+		Assert.assertTrue(second.getScoredWords().isEmpty());
+		Assert.assertFalse(second.hasMore());
+		Assert.assertTrue(results.getWordPage("c", 5).getWords().isEmpty());
+		Assert.assertNull(results.getWordPage("nobody", 0));
+	}
+}
@@ -0,0 +1,161 @@
+package tamm.org.boggle.wordlist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.server.BoggleServerApp;
+import tamm.org.boggle.server.HttpBoggleServer;
+import tamm.org.boggle.server.JsonWriter;
+import tamm.org.boggle.server.RoomSettings;
+
+public class HttpBoggleServerTest {
+
+	private BoggleServerApp app;
+	private HttpBoggleServer server;
+
+	@BeforeClass
+	public void startServer() throws Exception {
+		app = new BoggleServerApp();
+		server = new HttpBoggleServer(app, 0);
+		server.start();
+	}
+
+	@AfterClass
+	public void stopServer() {
+		server.stop();
+	}
+
+	/** Sends a request, and returns the status followed by the body. **/
+	private String[] request(String method, String path, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+				.openConnection();
+		connection.setRequestMethod(method);
+		if (body != null) {
+			connection.setDoOutput(true);
+			OutputStream out = connection.getOutputStream();
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+			out.close();
+		}
+
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			bytes.write(buffer, 0, n);
+		}
+		in.close();
+		return new String[] { String.valueOf(status), new String(bytes.toByteArray(), StandardCharsets.UTF_8) };
+	}
+
+	private long ticketOf(String json) {
+		Matcher m = Pattern.compile("\"ticket\":(\\d+)").matcher(json);
+		Assert.assertTrue(m.find(), json);
+		return Long.parseLong(m.group(1));
+	}
+
+	@Test
+	public void testJsonWriter() throws IOException {
+		StringWriter out = new StringWriter();
+		new JsonWriter(out).beginObject().name("a").value(1).name("b").beginArray().value("x\"y").value(true)
+				.beginArray().endArray().endArray().name("c").value((String) null).endObject().flush();
+		Assert.assertEquals(out.toString(), "{\"a\":1,\"b\":[\"x\\\"y\",true,[]],\"c\":null}");
+	}
+
+	@Test
+	public void testRawJsonValue() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JsonWriter json = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+		json.beginObject().name("a").value("\u00e4").name("b").rawValue("[1,2]".getBytes(StandardCharsets.UTF_8), bytes)
+				.name("c").value(3).endObject().flush();
+		Assert.assertEquals(new String(bytes.toByteArray(), StandardCharsets.UTF_8), "{\"a\":\"\u00e4\",\"b\":[1,2],\"c\":3}");
+	}
+
+	@Test
+	public void testLongPolledGame() throws Exception {
+		app.createRoom("http", new RoomSettings(2, 50, 4, 2));
+
+		long a = ticketOf(request("POST", "/join?name=alice&room=http", "")[1]);
+		String[] notYet = request("GET", "/board?ticket=" + a, null);
+		Assert.assertEquals(notYet[0], "200");
+		Assert.assertTrue(notYet[1].contains("\"started\":false"), notYet[1]);
+
+		// The board request waits until the second player joins.
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final long ticket = a;
+			Future<String[]> board = executor.submit(new Callable<String[]>() {
+				public String[] call() throws Exception {
+					return request("GET", "/board?wait=10&ticket=" + ticket, null);
+				}
+			});
+			Thread.sleep(100);
+			Assert.assertFalse(board.isDone());
+
+			long b = ticketOf(request("POST", "/join?name=bob&room=http", "")[1]);
+			String[] started = board.get(10, TimeUnit.SECONDS);
+			Assert.assertTrue(started[1].contains("\"started\":true"), started[1]);
+			Assert.assertTrue(started[1].contains("\"board\":[["), started[1]);
+
+			Assert.assertEquals(request("POST", "/submit?ticket=" + a, "tea\nxyzzy\n")[0], "200");
+			Assert.assertEquals(request("POST", "/submit?ticket=" + a, "tea\n")[0], "409");
+			Assert.assertTrue(request("GET", "/results?ticket=" + a, null)[1].contains("\"ready\":false"));
+
+			Assert.assertEquals(request("POST", "/submit?ticket=" + b, "qqq\n")[0], "200");
+			String[] results = request("GET", "/results?wait=10&ticket=" + a, null);
+			Assert.assertTrue(results[1].contains("\"ready\":true"), results[1]);
+			Assert.assertTrue(results[1].contains("\"name\":\"bob\""), results[1]);
+			Assert.assertTrue(results[1].contains("\"rejected\":[\"qqq\"]"), results[1]);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPersonalResults() throws Exception {
+		app.createRoom("http-personal", new RoomSettings(2, 50, 4, 2, true));
+
+		long a = ticketOf(request("POST", "/join?name=carol&room=http-personal", "")[1]);
+		long b = ticketOf(request("POST", "/join?name=dave&room=http-personal", "")[1]);
+		Assert.assertTrue(request("GET", "/board?wait=10&ticket=" + a, null)[1].contains("\"started\":true"));
+
+		Assert.assertEquals(request("POST", "/submit?ticket=" + a, "tea\n")[0], "200");
+		Assert.assertEquals(request("POST", "/submit?ticket=" + b, "qqq\n")[0], "200");
+
+		// Only carol's words, and the standings of both
+		String[] results = request("GET", "/results?wait=10&ticket=" + a, null);
+		Assert.assertTrue(results[1].contains("\"players\":[{\"name\":\"carol\""), results[1]);
+		Assert.assertFalse(results[1].contains("\"rejected\":[\"qqq\"]"), results[1]);
+		Assert.assertTrue(results[1].contains("\"standings\":["), results[1]);
+		Assert.assertTrue(results[1].contains("\"name\":\"dave\""), results[1]);
+	}
+
+	@Test
+	public void testErrors() throws IOException {
+		Assert.assertEquals(request("GET", "/board?ticket=987654", null)[0], "404");
+		Assert.assertEquals(request("GET", "/board", null)[0], "400");
+		Assert.assertEquals(request("GET", "/join?name=x", null)[0], "405");
+		Assert.assertEquals(request("POST", "/join?name=x&room=nowhere", "")[0], "404");
+		Assert.assertTrue(request("GET", "/rooms", null)[1].contains("\"name\":\"lobby\""));
+	}
+}
@@ -0,0 +1,91 @@
+package tamm.org.boggle.wordlist;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.Lexicon;
+import tamm.org.boggle.server.Dictionary;
+import tamm.org.boggle.server.DictionaryService;
+
+public class LexiconTest {
+
+	private final List<String> words = Arrays.asList("Cat", "cats", "car", "cart", "dog", "dogs", "ain't", "cat");
+
+	private final Lexicon lexicon = Lexicon.build(words);
+
+	@Test
+	public void testContains() {
+		Assert.assertEquals(lexicon.size(), 6);
+
+		Assert.assertTrue(lexicon.contains("cat"));
+		Assert.assertTrue(lexicon.contains("CARt"));
+		Assert.assertTrue(lexicon.contains("dogs"));
+
+		Assert.assertFalse(lexicon.contains("ca"));
+		Assert.assertFalse(lexicon.contains("cattle"));
+		Assert.assertFalse(lexicon.contains("ain't"));
+		Assert.assertFalse(lexicon.contains(""));
+	}
+
+	@Test
+	public void testIsPrefix() {
+		Assert.assertTrue(lexicon.isPrefix(""));
+		Assert.assertTrue(lexicon.isPrefix("ca"));
+		Assert.assertTrue(lexicon.isPrefix("cart"));
+
+		Assert.assertFalse(lexicon.isPrefix("cb"));
+		Assert.assertFalse(lexicon.isPrefix("carts"));
+	}
+
+	@Test
+	public void testChildSteps() {
+		int node = lexicon.child(lexicon.root(), 'c');
+		node = lexicon.child(node, Lexicon.letterCode('a'));
+		Assert.assertFalse(lexicon.isWord(node));
+
+		int mask = lexicon.childMask(node);
+		Assert.assertEquals(mask, (1 << Lexicon.letterCode('r')) | (1 << Lexicon.letterCode('t')));
+
+		Assert.assertEquals(lexicon.child(node, 'x'), Lexicon.NONE);
+		Assert.assertTrue(lexicon.isWord(lexicon.child(node, 't')));
+	}
+
+	@Test
+	public void testSuffixesAreShared() {
+		// "cats"/"dogs" and "cat"/"dog" end in equivalent nodes, so the minimized
+		// graph is smaller than a plain trie (which would need 13 nodes).
+		Assert.assertTrue(lexicon.nodeCount() < 13);
+		Assert.assertEquals(lexicon.words(), Arrays.asList("car", "cart", "cat", "cats", "dog", "dogs"));
+	}
+
+	@Test
+	public void testBundledDictionary() {
+		Dictionary dict = new Dictionary();
+
+		Assert.assertTrue(dict.size() > 20000);
+		Assert.assertTrue(dict.contains("aardvark"));
+		Assert.assertTrue(dict.isPrefix("aardv"));
+		Assert.assertFalse(dict.contains("aardv"));
+	}
+
+	@Test
+	public void testFailedReloadKeepsDictionary() throws IOException {
+		DictionaryService service = DictionaryService.getInstance();
+		Dictionary dict = service.getDictionary();
+
+		try {
+			service.reload(new File("missing.txt"));
+			Assert.fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+		Assert.assertSame(service.getDictionary(), dict);
+
+		Assert.assertEquals(Dictionary.fromResource().size(), dict.size());
+	}
+}
@@ -0,0 +1,106 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.Lobby;
+
+public class LobbyTest {
+
+	private ScheduledExecutorService scheduler;
+	private BlockingQueue<List<ClientInfo>> rounds;
+	private Consumer<List<ClientInfo>> starter;
+
+	@BeforeMethod
+	public void setUp() {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+		rounds = new LinkedBlockingQueue<List<ClientInfo>>();
+		starter = new Consumer<List<ClientInfo>>() {
+			public void accept(List<ClientInfo> players) {
+				rounds.add(players);
+			}
+		};
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testStartsAfterTimeout() throws InterruptedException {
+		Lobby lobby = new Lobby(2, 100, scheduler, starter);
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+
+		long joined = System.currentTimeMillis();
+		lobby.join(a);
+		lobby.join(b);
+
+		List<ClientInfo> players = rounds.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull(players);
+		Assert.assertTrue(System.currentTimeMillis() - joined >= 100);
+		Assert.assertEquals(players.size(), 2);
+		Assert.assertSame(players.get(0), a);
+		Assert.assertSame(players.get(1), b);
+		Assert.assertEquals(lobby.getWaitingCount(), 0);
+		Assert.assertEquals(lobby.getRoundsStarted(), 1);
+		Assert.assertTrue(lobby.getMaxStartLag() < 1000);
+	}
+
+	@Test
+	public void testWaitsForMinPlayers() throws InterruptedException {
+		Lobby lobby = new Lobby(2, 50, scheduler, starter);
+		lobby.join(new ClientInfo("a"));
+
+		Assert.assertNull(rounds.poll(300, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(lobby.getWaitingCount(), 1);
+
+		lobby.join(new ClientInfo("b"));
+		Assert.assertNotNull(rounds.poll(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testJoinMovesDeadline() throws InterruptedException {
+		Lobby lobby = new Lobby(2, 300, scheduler, starter);
+		lobby.join(new ClientInfo("a"));
+		lobby.join(new ClientInfo("b"));
+		Thread.sleep(200);
+		lobby.join(new ClientInfo("c"));
+
+		// The first deadline passes, but the third join replaced it.
+		Assert.assertNull(rounds.poll(200, TimeUnit.MILLISECONDS));
+
+		List<ClientInfo> players = rounds.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull(players);
+		Assert.assertEquals(players.size(), 3);
+		Assert.assertNull(rounds.poll(400, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testClosedLobbyHoldsPlayers() throws InterruptedException {
+		Lobby lobby = new Lobby(2, 50, scheduler, starter);
+		lobby.setOpen(false);
+		lobby.join(new ClientInfo("a"));
+		lobby.join(new ClientInfo("b"));
+
+		Assert.assertNull(rounds.poll(300, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(lobby.getWaitingCount(), 2);
+
+		lobby.setOpen(true);
+		List<ClientInfo> players = rounds.poll(5, TimeUnit.SECONDS);
+		Assert.assertNotNull(players);
+		Assert.assertEquals(players.size(), 2);
+	}
+}
@@ -0,0 +1,215 @@
+package tamm.org.boggle.wordlist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BloomFilter;
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.gui.NioBoggleConnection;
+import tamm.org.boggle.server.BinaryProtocol;
+import tamm.org.boggle.server.BoardSpec;
+import tamm.org.boggle.server.BoggleListener;
+import tamm.org.boggle.server.BoggleServerApp;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.NioBoggleServer;
+import tamm.org.boggle.server.PlayerException;
+import tamm.org.boggle.server.RoomException;
+import tamm.org.boggle.server.RoomInfo;
+import tamm.org.boggle.server.RoomSettings;
+
+public class NioBoggleServerTest {
+
+	private NioBoggleServer nioServer;
+
+	/** Collects the events of one game. **/
+	private static class Recorder implements BoggleListener {
+		final BlockingQueue<BoardSpec> boards = new LinkedBlockingQueue<BoardSpec>();
+		final BlockingQueue<GameResults> results = new LinkedBlockingQueue<GameResults>();
+
+		public void roundStarted(long ticket, BoardSpec board, int roundLength) {
+			boards.add(board);
+		}
+
+		public void tick(long ticket, int secondsRemaining) {
+		}
+
+		public void resultsReady(long ticket, GameResults res) {
+			results.add(res);
+		}
+	}
+
+	@BeforeClass
+	public void startServer() throws Exception {
+		nioServer = new NioBoggleServer(new BoggleServerApp(), 0);
+		nioServer.start();
+	}
+
+	@AfterClass
+	public void stopServer() {
+		nioServer.stop();
+	}
+
+	private WordList words(String... words) {
+		WordList list = new WordList();
+		for (String w : words) {
+			list.addWord(w);
+		}
+		return list;
+	}
+
+	@Test
+	public void testBoardSpecRoundTrip() throws Exception {
+		BoggleBoard board = new BoggleBoard(new String[][] { { "T", "E", "A" }, { "Qu", "I", "T" }, { "S", "O", "N" } });
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BinaryProtocol.writeBoardSpec(out, BoardSpec.fullBoard(board));
+		BloomFilter filter = BloomFilter.of(Arrays.asList("tea", "quit", "sit"));
+		BinaryProtocol.writeBoardSpec(out,
+				BoardSpec.seedOnly(BoardGenerator.VERSION, 4, 42L).withWordFilter(filter).withDeadline(1234567890123L));
+		BinaryProtocol.writeVarInt(out, 300);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		BoardSpec full = BinaryProtocol.readBoardSpec(in);
+		Assert.assertFalse(full.isSeedOnly());
+		Assert.assertEquals(full.toBoard().getCell(1, 0), "Qu");
+		Assert.assertEquals(full.toBoard().getCell(2, 2), "N");
+
+		BoardSpec seed = BinaryProtocol.readBoardSpec(in);
+		Assert.assertTrue(seed.isSeedOnly());
+		Assert.assertEquals(seed.getSeed(), 42L);
+		Assert.assertEquals(seed.getSize(), 4);
+		Assert.assertNull(full.getWordFilter());
+		Assert.assertEquals(seed.getWordFilter(), filter);
+		Assert.assertEquals(full.getDeadline(), 0);
+		Assert.assertEquals(seed.getDeadline(), 1234567890123L);
+		Assert.assertEquals(BinaryProtocol.readVarInt(in), 300);
+	}
+
+	@Test
+	public void testRooms() throws Exception {
+		NioBoggleConnection connection = new NioBoggleConnection("localhost", nioServer.getPort());
+		try {
+			RoomInfo info = connection.createRoom("nio-rooms", new RoomSettings(3, 1000, 5, 90));
+			Assert.assertEquals(info.getName(), "nio-rooms");
+			Assert.assertEquals(info.getSettings().getBoardSize(), 5);
+
+			Assert.assertEquals(connection.getRoom("nio-rooms").getSettings().getRoundLength(), 90);
+			Assert.assertTrue(connection.createRoom("nio-personal", new RoomSettings(3, 1000, 5, 90, true))
+					.getSettings().isPersonalResults());
+
+			try {
+				connection.getWordPage(987654, "nobody", 0);
+				Assert.fail();
+			} catch (PlayerException e) {
+				// the results aren't kept
+			}
+
+			List<RoomInfo> rooms = connection.listRooms();
+			Assert.assertTrue(rooms.size() >= 2);
+
+			try {
+				connection.getRoom("no-such-room");
+				Assert.fail();
+			} catch (RoomException e) {
+				// the error kind is kept across the wire
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void testGameOverBothApis() throws Exception {
+		final NioBoggleConnection blocking = new NioBoggleConnection("localhost", nioServer.getPort());
+		NioBoggleConnection async = new NioBoggleConnection("localhost", nioServer.getPort());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			async.createRoom("nio-game", new RoomSettings(2, 50, 4, 3));
+
+			Future<GameResults> blockingResults = executor.submit(new Callable<GameResults>() {
+				public GameResults call() throws Exception {
+					BoardSpec spec = blocking.startGame("blocking", "nio-game", BoardGenerator.VERSION);
+					Assert.assertTrue(spec.isSeedOnly());
+					return blocking.gameOver("blocking", words("tea", "xyzzy"));
+				}
+			});
+
+			Recorder recorder = new Recorder();
+			long ticket = async.joinGame("async", "nio-game", BoardGenerator.VERSION, recorder);
+			Assert.assertNotNull(recorder.boards.poll(10, TimeUnit.SECONDS));
+
+			try {
+				async.submitWords(ticket + 1000, words("cat"));
+				Assert.fail();
+			} catch (PlayerException e) {
+				// unknown ticket
+			}
+
+			async.submitWords(ticket, words("qqq"));
+
+			GameResults results = recorder.results.poll(10, TimeUnit.SECONDS);
+			Assert.assertNotNull(results);
+			Assert.assertEquals(results.getClientNames().size(), 2);
+			Assert.assertEquals(results.getClientResults().get("async").getRejectedWords().getWordList(),
+					words("qqq").getWordList());
+			Assert.assertEquals(results.getClientResults().get("blocking").getWords().size(), 2);
+
+			Assert.assertEquals(blockingResults.get(10, TimeUnit.SECONDS).getClientNames().size(), 2);
+			Assert.assertTrue(nioServer.getBytesRead() > 0);
+			Assert.assertTrue(nioServer.getBytesWritten() > 0);
+		} finally {
+			executor.shutdownNow();
+			blocking.close();
+			async.close();
+		}
+	}
+
+	@Test
+	public void testLostConnectionLeavesTheRound() throws Exception {
+		NioBoggleConnection staying = new NioBoggleConnection("localhost", nioServer.getPort());
+		NioBoggleConnection leaving = new NioBoggleConnection("localhost", nioServer.getPort());
+
+		try {
+			staying.createRoom("nio-lost", new RoomSettings(2, 50, 4, 60));
+
+			Recorder recorder = new Recorder();
+			long ticket = staying.joinGame("staying", "nio-lost", BoardGenerator.VERSION, recorder);
+			Recorder gone = new Recorder();
+			leaving.joinGame("leaving", "nio-lost", BoardGenerator.VERSION, gone);
+			Assert.assertNotNull(recorder.boards.poll(10, TimeUnit.SECONDS));
+			Assert.assertNotNull(gone.boards.poll(10, TimeUnit.SECONDS));
+
+			staying.heartbeat(ticket);
+			staying.submitWords(ticket, words("tea"));
+			leaving.close();
+
+			// The results don't wait for the end of the minute long round.
+			GameResults results = recorder.results.poll(10, TimeUnit.SECONDS);
+			Assert.assertNotNull(results);
+			Assert.assertEquals(results.getClientNames().size(), 2);
+		} finally {
+			staying.close();
+			leaving.close();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package tamm.org.boggle.wordlist;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.BoggleSolver;
+import tamm.org.boggle.board.PathValidator;
+import tamm.org.boggle.server.DictionaryService;
+
+public class PathValidatorTest {
+
+	private final BoggleBoard board = new BoggleBoard(new String[][] {
+			{ "C", "A", "T", "S" },
+			{ "X", "R", "Qu", "I" },
+			{ "D", "O", "G", "T" },
+			{ "X", "X", "X", "E" } });
+
+	@Test
+	public void testTraceableWords() {
+		PathValidator validator = new PathValidator(board);
+
+		Assert.assertTrue(validator.isTraceable("cart"));
+		Assert.assertTrue(validator.isTraceable("Quite"));
+		Assert.assertTrue(validator.isTraceable("xrdo"));
+	}
+
+	@Test
+	public void testUntraceableWords() {
+		PathValidator validator = new PathValidator(board);
+
+		Assert.assertFalse(validator.isTraceable("tat"));
+		Assert.assertFalse(validator.isTraceable("cd"));
+		Assert.assertFalse(validator.isTraceable("qit"));
+		Assert.assertFalse(validator.isTraceable("ain't"));
+		Assert.assertFalse(validator.isTraceable(""));
+	}
+
+	@Test
+	public void testDeadPrefixesDoNotHideLongerWords() {
+		PathValidator validator = new PathValidator(board);
+
+		// "tq" fails on the Qu tile, which must not mark "tqu..." as dead.
+		Assert.assertFalse(validator.isTraceable("tqx"));
+		Assert.assertTrue(validator.isTraceable("tqui"));
+
+		// "cad" is dead, and so is everything that starts with it.
+		Assert.assertFalse(validator.isTraceable("cad"));
+		Assert.assertFalse(validator.isTraceable("cadr"));
+	}
+
+	@Test
+	public void testPrefixOfManyPaths() {
+		String[] row = { "E", "E", "E", "E" };
+		PathValidator validator = new PathValidator(new BoggleBoard(new String[][] { row, row, row, row }));
+
+		// Too many paths spell these to memoize them all.
+		Assert.assertTrue(validator.isTraceable("eeeeeeeeeeeeeeee"));
+		Assert.assertFalse(validator.isTraceable("eeeeeeeeeeeeeeeee"));
+		Assert.assertFalse(validator.isTraceable("eeex"));
+	}
+
+	@Test
+	public void testAgreesWithSolver() {
+		BoggleSolver solver = new BoggleSolver(DictionaryService.getInstance().getDictionary().getLexicon());
+
+		for (int i = 0; i < 100; i++) {
+			BoggleBoard random = new BoggleBoard();
+			PathValidator validator = new PathValidator(random);
+
+			for (String word : solver.solve(random).keySet()) {
+				Assert.assertTrue(validator.isTraceable(word), word);
+			}
+		}
+	}
+}
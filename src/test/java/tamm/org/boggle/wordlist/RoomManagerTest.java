@@ -0,0 +1,120 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.server.BoardQuality;
+import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.Room;
+import tamm.org.boggle.server.RoomException;
+import tamm.org.boggle.server.RoomInfo;
+import tamm.org.boggle.server.RoomManager;
+import tamm.org.boggle.server.RoomSettings;
+
+public class RoomManagerTest {
+
+	private RoomManager manager;
+
+	@BeforeMethod
+	public void setUp() {
+		manager = new RoomManager(new BoardQuality(0, 0, 1), Executors.newScheduledThreadPool(1));
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		manager.shutdown();
+	}
+
+	@Test
+	public void testCreateAndList() throws RoomException {
+		manager.createRoom("small", new RoomSettings(2, 100, 3, 30));
+		manager.createRoom("large", new RoomSettings(3, 100, 5, 120));
+
+		Set<String> names = new HashSet<String>();
+		for (RoomInfo info : manager.listRooms()) {
+			names.add(info.getName());
+		}
+		Assert.assertEquals(names.size(), 2);
+		Assert.assertTrue(names.contains("small"));
+		Assert.assertTrue(names.contains("large"));
+
+		RoomInfo large = manager.getRoom("large").getInfo();
+		Assert.assertEquals(large.getSettings().getBoardSize(), 5);
+		Assert.assertEquals(large.getSettings().getRoundLength(), 120);
+	}
+
+	@Test(expectedExceptions = RoomException.class)
+	public void testDuplicateName() throws RoomException {
+		manager.createRoom("room", RoomSettings.DEFAULT);
+		manager.createRoom("room", RoomSettings.DEFAULT);
+	}
+
+	@Test(expectedExceptions = RoomException.class)
+	public void testUnknownRoom() throws RoomException {
+		manager.getRoom("nowhere");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testBoardSizeOutOfRange() {
+		new RoomSettings(2, 100, RoomSettings.MAX_BOARD_SIZE + 1, 60);
+	}
+
+	@Test
+	public void testRoomsPlaySeparately() throws Exception {
+		Room small = manager.createRoom("small", new RoomSettings(2, 50, 3, 30));
+		Room large = manager.createRoom("large", new RoomSettings(2, 50, 5, 30));
+
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		ClientInfo c = new ClientInfo("c");
+		small.join(a);
+		large.join(b);
+
+		// Neither room has enough players on its own.
+		Thread.sleep(200);
+		Assert.assertTrue(a.isWaiting());
+		Assert.assertTrue(b.isWaiting());
+
+		small.join(c);
+		a.awaitPlaying();
+		c.awaitPlaying();
+		Assert.assertSame(a.getRound(), c.getRound());
+		Assert.assertEquals(a.getRound().getBoard().getSize(), 3);
+		Assert.assertEquals(small.getRoundsStarted(), 1);
+
+		Assert.assertTrue(b.isWaiting());
+		Assert.assertEquals(large.getWaitingCount(), 1);
+		Assert.assertEquals(large.getRoundsStarted(), 0);
+	}
+
+	@Test
+	public void testQualityScales() {
+		BoardQuality quality = new BoardQuality(30, 40, 0.125);
+		Assert.assertSame(quality.scaledTo(4), quality);
+		Assert.assertEquals(quality.scaledTo(8).getMinWords(), 120);
+		Assert.assertEquals(quality.scaledTo(8).getMinScore(), 160);
+		Assert.assertEquals(quality.scaledTo(2).getMinWords(), 7);
+		Assert.assertEquals(quality.scaledTo(2).getMaxRareShare(), 0.125);
+	}
+
+	@Test
+	public void testRoundStartsOnSharedScheduler() throws Exception {
+		Room room = manager.createRoom("room", new RoomSettings(1, 10, 4, 30));
+		ClientInfo a = new ClientInfo("a");
+		room.join(a);
+
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		while (a.isWaiting() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertFalse(a.isWaiting());
+		Assert.assertNotNull(a.getRound());
+	}
+}
@@ -0,0 +1,170 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoggleBoard;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.server.ClientInfo;
+import tamm.org.boggle.server.Dictionary;
+import tamm.org.boggle.server.DictionaryService;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.Round;
+
+public class RoundTest {
+
+	private final BoggleBoard board = new BoggleBoard(new String[][] {
+			{ "C", "A", "T", "S" },
+			{ "X", "R", "Qu", "I" },
+			{ "D", "O", "G", "T" },
+			{ "X", "X", "X", "E" } });
+
+	private ClientInfo finish(ClientInfo info, String... words) {
+		WordList list = new WordList();
+		for (String w : words) {
+			list.addWord(w);
+		}
+		info.setWords(list);
+		return info;
+	}
+
+	private Future<GameResults> submit(ExecutorService executor, final Round round, final ClientInfo player) {
+		return executor.submit(() -> round.submit(player, DictionaryService.getInstance().getDictionary()));
+	}
+
+	@Test
+	public void testRoundsAreScoredSeparately() throws Exception {
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		ClientInfo c = new ClientInfo("c");
+		ClientInfo d = new ClientInfo("d");
+
+		Round first = new Round(1, board, Arrays.asList(a, b));
+		Round second = new Round(2, board, Arrays.asList(c, d));
+		a.setPlaying(first);
+		b.setPlaying(first);
+		c.setPlaying(second);
+		d.setPlaying(second);
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			// The first round waits for b, while the second round finishes.
+			Future<GameResults> fa = submit(executor, first, finish(a, "cart", "dog"));
+			Future<GameResults> fc = submit(executor, second, finish(c, "cart"));
+			Future<GameResults> fd = submit(executor, second, finish(d, "dog"));
+
+			GameResults secondResults = fc.get(5, TimeUnit.SECONDS);
+			Assert.assertSame(fd.get(5, TimeUnit.SECONDS), secondResults);
+			Assert.assertTrue(second.isOver());
+			Assert.assertEquals(secondResults.getClientNames().size(), 2);
+			Assert.assertEquals(secondResults.getClientResult("c").getScore(), 1);
+
+			Assert.assertFalse(first.isOver());
+			Assert.assertFalse(fa.isDone());
+
+			Future<GameResults> fb = submit(executor, first, finish(b, "dog"));
+			GameResults firstResults = fa.get(5, TimeUnit.SECONDS);
+			Assert.assertSame(fb.get(5, TimeUnit.SECONDS), firstResults);
+			Assert.assertEquals(firstResults.getClientResult("a").getScore(), 1);
+			Assert.assertEquals(firstResults.getClientResult("b").getScore(), 0);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWordsSentDuringTheRound() throws Exception {
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		Round round = new Round(3, board, Arrays.asList(a, b));
+		a.setPlaying(round);
+		b.setPlaying(round);
+
+		Dictionary dict = DictionaryService.getInstance().getDictionary();
+		Assert.assertTrue(round.addWord(a, "cart", dict));
+		Assert.assertTrue(round.addWord(a, "dog", dict));
+		Assert.assertFalse(round.addWord(a, "zzz", dict));
+		Assert.assertEquals(round.addWords(b, Arrays.asList("dog", "rat", "xyzzy"), dict), 2);
+		// Sending a word again changes nothing.
+		Assert.assertTrue(round.addWord(b, "dog", dict));
+
+		// a leaves "dog" out of the word-list, but it counts anyway.
+		round.submitAsync(finish(a, "cart"), dict);
+		WordList sentByA = a.getWords();
+		try {
+			round.addWord(a, "cat", dict);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			// a has submitted
+		}
+
+		GameResults results = round.submitAsync(finish(b), dict).get(5, TimeUnit.SECONDS);
+		// The word-list a submitted is left as it was.
+		Assert.assertEquals(sentByA.size(), 1);
+
+		// The same as scoring the whole word-lists at the end
+		ClientInfo a2 = new ClientInfo("a");
+		ClientInfo b2 = new ClientInfo("b");
+		a2.setPlaying();
+		b2.setPlaying();
+		finish(a2, "cart", "dog", "zzz");
+		finish(b2, "dog", "rat", "xyzzy");
+		GameResults expected = new GameResults();
+		expected.computeResults(Arrays.asList(a2, b2), dict, board);
+
+		for (String name : Arrays.asList("a", "b")) {
+			ClientInfo actual = results.getClientResult(name);
+			ClientInfo wanted = expected.getClientResult(name);
+			Assert.assertEquals(actual.getScore(), wanted.getScore(), name);
+			Assert.assertEquals(actual.getWords().getWordList(), wanted.getWords().getWordList(), name);
+			Assert.assertEquals(actual.getFilteredWords().getWordList(), wanted.getFilteredWords().getWordList(), name);
+			Assert.assertEquals(actual.getRejectedWords().getWordList(), wanted.getRejectedWords().getWordList(), name);
+		}
+		Assert.assertEquals(results.getClientResult("a").getScore(), 1);
+		Assert.assertEquals(results.getClientResult("b").getScore(), 1);
+	}
+
+	@Test
+	public void testRoundEndsWithoutStragglers() throws Exception {
+		ClientInfo a = new ClientInfo("a");
+		ClientInfo b = new ClientInfo("b");
+		ClientInfo c = new ClientInfo("c");
+		Round round = new Round(1, board, Arrays.asList(a, b, c));
+		a.setPlaying(round);
+		b.setPlaying(round);
+		c.setPlaying(round);
+		Dictionary dict = DictionaryService.getInstance().getDictionary();
+
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		try {
+			round.startClock(100, scheduler);
+			Assert.assertTrue(round.getDeadline() > 0);
+
+			// b sends a word, but never its word-list; c is gone.
+			round.addWord(b, "dog", dict);
+			round.submitAsync(finish(a, "cart", "dog"), dict);
+			Assert.assertFalse(round.abandon(c));
+			Assert.assertFalse(round.isOver());
+
+			GameResults results = round.whenOver().toCompletableFuture()
+					.get(Round.GRACE_MILLIS + 5000, TimeUnit.MILLISECONDS);
+			Assert.assertEquals(results.getClientNames().size(), 3);
+			Assert.assertEquals(results.getClientResult("a").getScore(), 1);
+			Assert.assertEquals(results.getClientResult("b").getWords().size(), 1);
+			Assert.assertEquals(results.getClientResult("c").getWords().size(), 0);
+			Assert.assertFalse(round.expire());
+
+			// A word-list that comes too late gets the results without it.
+			Assert.assertSame(round.submitAsync(finish(b, "rat"), dict).get(), results);
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+}
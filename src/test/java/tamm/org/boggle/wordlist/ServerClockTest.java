@@ -0,0 +1,36 @@
+package tamm.org.boggle.wordlist;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.gui.ServerClock;
+import tamm.org.boggle.server.BoggleServerApp;
+
+public class ServerClockTest {
+
+	@Test
+	public void testSample() {
+		// Sent at 1000, answered with 5050 by a server 4000 ahead, back at 1100
+		ServerClock clock = ServerClock.fromSample(1000, 5050, 1100);
+		Assert.assertEquals(clock.getOffset(), 4000);
+		Assert.assertEquals(clock.getRoundTrip(), 100);
+		Assert.assertEquals(clock.toLocalTime(65000), 61000);
+	}
+
+	@Test
+	public void testSkewedServer() throws Exception {
+		BoggleServerApp server = new BoggleServerApp() {
+			@Override
+			public long getServerTime() {
+				return super.getServerTime() + 5000;
+			}
+		};
+
+		ServerClock clock = ServerClock.sample(server, ServerClock.DEFAULT_SAMPLES);
+		Assert.assertTrue(Math.abs(clock.getOffset() - 5000) <= 50, clock.toString());
+
+		long deadline = server.getServerTime() + 60000;
+		long local = clock.toLocalTime(deadline);
+		Assert.assertTrue(Math.abs(local - (System.currentTimeMillis() + 60000)) <= 50, "" + local);
+	}
+}
@@ -0,0 +1,123 @@
+package tamm.org.boggle.wordlist;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import tamm.org.boggle.board.BoardGenerator;
+import tamm.org.boggle.board.WordList;
+import tamm.org.boggle.server.BoardSpec;
+import tamm.org.boggle.server.BoggleListener;
+import tamm.org.boggle.server.BoggleServerApp;
+import tamm.org.boggle.server.GameResults;
+import tamm.org.boggle.server.Histogram;
+import tamm.org.boggle.server.RoomSettings;
+import tamm.org.boggle.server.ServerMetrics;
+
+public class ServerMetricsTest {
+
+	private final ServerMetrics metrics = ServerMetrics.getInstance();
+
+	@Test
+	public void testHistogram() {
+		Histogram h = new Histogram("test", "us");
+		Assert.assertEquals(h.getCount(), 0);
+		Assert.assertEquals(h.getMedian(), 0);
+
+		for (int i = 1; i <= 1000; i++) {
+			h.record(i);
+		}
+		Assert.assertEquals(h.getCount(), 1000);
+		Assert.assertEquals(h.getMax(), 1000);
+		Assert.assertEquals(h.getMean(), 500.5, 0.001);
+
+		// Within the width of a bucket, an eighth of the value.
+		Assert.assertEquals(h.getMedian(), 500, 500 / 8);
+		Assert.assertEquals(h.get99thPercentile(), 990, 990 / 8);
+		Assert.assertTrue(h.getPercentile(100) <= 1000);
+
+		h.record(-5);
+		Assert.assertEquals(h.getPercentile(0), 0);
+		h.record(Long.MAX_VALUE);
+		Assert.assertEquals(h.getPercentile(100), Long.MAX_VALUE);
+		Assert.assertTrue(h.toString().startsWith("test (us): count 1002"), h.toString());
+	}
+
+	@Test
+	public void testRoundIsMeasured() throws Exception {
+		long roundsOver = metrics.getRoundsOver();
+		long waits = metrics.getLobbyWait().getCount();
+		long starts = metrics.getRoundStart().getCount();
+		long submissions = metrics.getSubmissionSize().getCount();
+		long scorings = metrics.getScoring().getCount();
+		long encodings = metrics.getEncoding().getCount();
+		long fanOuts = metrics.getResultsFanOut().getCount();
+
+		final BlockingQueue<BoardSpec> boards = new LinkedBlockingQueue<BoardSpec>();
+		final BlockingQueue<GameResults> results = new LinkedBlockingQueue<GameResults>();
+		BoggleListener listener = new BoggleListener() {
+			public void roundStarted(long ticket, BoardSpec board, int roundLength) {
+				boards.add(board);
+			}
+
+			public void tick(long ticket, int secondsRemaining) {
+			}
+
+			public void resultsReady(long ticket, GameResults r) {
+				results.add(r);
+			}
+		};
+
+		BoggleServerApp server = new BoggleServerApp();
+		try {
+			server.createRoom("metrics", new RoomSettings(2, 50, 4, 3));
+			long a = server.joinGame("metrics-a", "metrics", BoardGenerator.VERSION, listener);
+			long b = server.joinGame("metrics-b", "metrics", BoardGenerator.VERSION, listener);
+
+			Assert.assertNotNull(boards.poll(10, TimeUnit.SECONDS));
+			Assert.assertNotNull(boards.poll(10, TimeUnit.SECONDS));
+
+			WordList words = new WordList();
+			words.addWord("qqq");
+			server.submitWords(a, words);
+			server.submitWords(b, words);
+			Assert.assertNotNull(results.poll(10, TimeUnit.SECONDS));
+			Assert.assertNotNull(results.poll(10, TimeUnit.SECONDS));
+
+			Assert.assertTrue(metrics.getRoundsOver() > roundsOver);
+			Assert.assertTrue(metrics.getLobbyWait().getCount() >= waits + 2);
+			Assert.assertTrue(metrics.getRoundStart().getCount() >= starts + 2);
+			Assert.assertTrue(metrics.getSubmissionSize().getCount() >= submissions + 2);
+			Assert.assertTrue(metrics.getScoring().getCount() > scorings);
+			Assert.assertTrue(metrics.getEncoding().getCount() > encodings);
+			Assert.assertTrue(metrics.getResultsFanOut().getCount() >= fanOuts + 2);
+			Assert.assertTrue(metrics.getActiveRooms() >= 2);
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void testMBeans() throws Exception {
+		MBeanServer mbeans = MBeanServerFactory.newMBeanServer();
+		metrics.registerMBeans(mbeans);
+		// Registering again leaves the beans alone.
+		metrics.registerMBeans(mbeans);
+
+		ObjectName name = new ObjectName(ServerMetrics.DOMAIN + ":type=ServerMetrics");
+		Assert.assertEquals(mbeans.getAttribute(name, "RoundsStarted"), metrics.getRoundsStarted());
+		Assert.assertEquals(mbeans.getAttribute(name, "RoundsStarved"), metrics.getRoundsStarved());
+		Assert.assertTrue(((String) mbeans.invoke(name, "dump", null, null)).contains("lobbyWait (us)"));
+
+		ObjectName lobbyWait = new ObjectName(ServerMetrics.DOMAIN + ":type=Histogram,name=lobbyWait");
+		Assert.assertEquals(mbeans.getAttribute(lobbyWait, "Description"), "lobbyWait (us)");
+		Assert.assertNotNull(mbeans.getAttribute(lobbyWait, "99thPercentile"));
+	}
+}